@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BenchmarkSettings {
+
+  private static boolean loaded;
+
+  /**
+   * Loads the default config, as the benchmarked code reads the settings.
+   */
+  public static synchronized void load() {
+    if (!loaded) {
+      try {
+        Path directory = Files.createTempDirectory("limboauth-jmh");
+        Settings.IMP.reload(directory.resolve("config.yml").toFile(), Settings.IMP.PREFIX);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      loaded = true;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckCacheBenchmark {
+
+  private static final long LIFETIME = TimeUnit.HOURS.toMillis(1);
+
+  @Param({"10000", "100000", "1000000"})
+  private int size;
+
+  private final Map<String, LimboAuth.CachedPremiumUser> activeCache = new ConcurrentHashMap<>();
+  private final Map<String, LimboAuth.CachedPremiumUser> halfExpiredCache = new ConcurrentHashMap<>();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    long currentTime = System.currentTimeMillis();
+    for (int i = 0; i < this.size; ++i) {
+      this.activeCache.put("player" + i, new LimboAuth.CachedPremiumUser(currentTime, false));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void fillHalfExpired() {
+    this.halfExpiredCache.clear();
+    long expiredTime = System.currentTimeMillis() - LIFETIME * 2;
+    this.activeCache.forEach((nickname, user) ->
+        this.halfExpiredCache.put(nickname, (nickname.hashCode() & 1) == 0 ? user : new LimboAuth.CachedPremiumUser(expiredTime, false)));
+  }
+
+  /**
+   * The usual case, the whole cache is scanned, but nothing is removed.
+   */
+  @Benchmark
+  public Map<String, LimboAuth.CachedPremiumUser> nothingExpired() {
+    LimboAuth.checkCache(this.activeCache, LIFETIME);
+    return this.activeCache;
+  }
+
+  @Benchmark
+  public Map<String, LimboAuth.CachedPremiumUser> halfExpired() {
+    LimboAuth.checkCache(this.halfExpiredCache, LIFETIME);
+    return this.halfExpiredCache;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PremiumResponseBenchmark {
+
+  // Mojang API returns the UUID without dashes, other APIs may return it with dashes.
+  private String undashedUuid = "069a79f444e94726a5befca90e38aaf5";
+  private String dashedUuid = "069a79f4-44e9-4726-a5be-fca90e38aaf5";
+
+  @Benchmark
+  public LimboAuth.PremiumResponse undashed() {
+    return new LimboAuth.PremiumResponse(LimboAuth.PremiumState.PREMIUM_USERNAME, this.undashedUuid);
+  }
+
+  @Benchmark
+  public LimboAuth.PremiumResponse dashed() {
+    return new LimboAuth.PremiumResponse(LimboAuth.PremiumState.PREMIUM_USERNAME, this.dashedUuid);
+  }
+}
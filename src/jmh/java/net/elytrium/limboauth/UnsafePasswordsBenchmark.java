@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnsafePasswordsBenchmark {
+
+  private final Set<String> unsafePasswords = new HashSet<>();
+
+  private String unsafePassword;
+  private String safePassword = "Kj8#mQ2!vX9$";
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    // Loaded the same way as LimboAuth#reload does.
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        Objects.requireNonNull(LimboAuth.class.getResourceAsStream("/unsafe_passwords.txt")), StandardCharsets.UTF_8))) {
+      this.unsafePasswords.addAll(reader.lines().collect(Collectors.toList()));
+    }
+
+    this.unsafePassword = this.unsafePasswords.iterator().next();
+  }
+
+  @Benchmark
+  public boolean unsafe() {
+    return this.unsafePasswords.contains(this.unsafePassword);
+  }
+
+  @Benchmark
+  public boolean safe() {
+    return this.unsafePasswords.contains(this.safePassword);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.handler;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckPasswordBenchmark {
+
+  private static final String PASSWORD = "correct horse battery staple";
+
+  // 10 is the default cost.
+  @Param({"4", "8", "10", "12"})
+  private int cost;
+
+  private RegisteredPlayer player;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.player = new RegisteredPlayer("Player", "", "127.0.0.1")
+        .setHash(BCrypt.withDefaults().hashToString(this.cost, PASSWORD.toCharArray()));
+    if (!AuthSessionHandler.checkPassword(PASSWORD, this.player, null)) {
+      throw new IllegalStateException("Generated hash doesn't match the password");
+    }
+  }
+
+  @Benchmark
+  public boolean correctPassword() {
+    return AuthSessionHandler.checkPassword(PASSWORD, this.player, null);
+  }
+
+  /**
+   * Wrong passwords are checked by the migration hash too, it isn't set there, as it isn't used with BCrypt hashes.
+   */
+  @Benchmark
+  public boolean wrongPassword() {
+    return AuthSessionHandler.checkPassword("wrong password", this.player, null);
+  }
+
+  @Benchmark
+  public byte[] hashPassword() {
+    return BCrypt.withDefaults().hash(this.cost, PASSWORD.getBytes(StandardCharsets.UTF_8));
+  }
+}
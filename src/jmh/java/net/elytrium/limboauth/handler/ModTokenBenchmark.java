@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.handler;
+
+import java.util.concurrent.TimeUnit;
+import net.elytrium.limboauth.BenchmarkSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModTokenBenchmark {
+
+  private String lowercaseNickname = "player";
+  private long issueTime;
+  private long hash;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    BenchmarkSettings.load();
+    this.issueTime = System.currentTimeMillis();
+    this.hash = AuthSessionHandler.getModTokenHash(this.lowercaseNickname, this.issueTime);
+  }
+
+  /**
+   * The same check as made by AuthSessionHandler when the mod sends the token.
+   */
+  @Benchmark
+  public boolean verify() {
+    return this.hash == AuthSessionHandler.getModTokenHash(this.lowercaseNickname, this.issueTime);
+  }
+}
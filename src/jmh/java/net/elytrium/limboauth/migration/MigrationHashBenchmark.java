@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.migration;
+
+import com.google.common.hash.Hashing;
+import de.mkammerer.argon2.Argon2Factory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MigrationHashBenchmark {
+
+  private static final String PASSWORD = "correct horse battery staple";
+  private static final String SALT = "a1b2c3d4e5f6a7b8";
+
+  @Param({
+      "AUTHME", "AUTHME_NP", "ARGON2", "SHA512_DBA", "SHA512_NP", "SHA512_P", "SHA256_NP", "SHA256_P", "MD5",
+      "MOON_SHA256", "SHA256_NO_SALT", "SHA512_NO_SALT", "SHA512_P_REVERSED_HASH", "SHA512_NLOGIN", "CRC32C", "PLAINTEXT",
+      "AUTO"
+  })
+  private MigrationHash migrationHash;
+
+  private String hash;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.hash = hash(this.migrationHash);
+    if (!this.migrationHash.checkPassword(this.hash, PASSWORD)) {
+      throw new IllegalStateException("Generated " + this.migrationHash + " hash doesn't match the password");
+    }
+  }
+
+  @Benchmark
+  public boolean correctPassword() {
+    return this.migrationHash.checkPassword(this.hash, PASSWORD);
+  }
+
+  @Benchmark
+  public boolean wrongPassword() {
+    return this.migrationHash.checkPassword(this.hash, "wrong password");
+  }
+
+  @SuppressWarnings("UnstableApiUsage")
+  private static String hash(MigrationHash migrationHash) {
+    switch (migrationHash) {
+      case AUTHME:
+        return "$SHA$" + SALT + "$" + digest(digest(PASSWORD, "SHA-256") + SALT, "SHA-256");
+      case AUTHME_NP:
+        return "SHA$" + SALT + "$" + digest(digest(PASSWORD, "SHA-256") + SALT, "SHA-256");
+      case ARGON2:
+        return Argon2Factory.create().hash(2, 65536, 1, PASSWORD.toCharArray());
+      case SHA512_DBA:
+        return "SHA$" + SALT + "$" + digest(digest(PASSWORD, "SHA-512") + SALT, "SHA-512");
+      case SHA512_NP:
+        return "SHA$" + SALT + "$" + digest(PASSWORD + SALT, "SHA-512");
+      case SHA512_P:
+        return "$SHA$" + SALT + "$" + digest(PASSWORD + SALT, "SHA-512");
+      case SHA256_NP:
+        return "SHA$" + SALT + "$" + digest(PASSWORD + SALT, "SHA-256");
+      case SHA256_P:
+        return "$SHA$" + SALT + "$" + digest(PASSWORD + SALT, "SHA-256");
+      case MD5:
+        return digest(PASSWORD, "MD5");
+      case MOON_SHA256:
+        return "$SHA$" + digest(digest(PASSWORD, "SHA-256"), "SHA-256");
+      case SHA256_NO_SALT:
+        return "$SHA$" + digest(PASSWORD, "SHA-256");
+      case SHA512_NO_SALT:
+        return "$SHA$" + digest(PASSWORD, "SHA-512");
+      case SHA512_P_REVERSED_HASH:
+        return "$SHA$" + digest(PASSWORD + SALT, "SHA-512") + "$" + SALT;
+      case SHA512_NLOGIN:
+        return "$SHA$" + digest(digest(PASSWORD, "SHA-512") + SALT, "SHA-512") + "$" + SALT;
+      case CRC32C:
+        return Hashing.crc32c().hashString(PASSWORD, StandardCharsets.UTF_8).toString();
+      case PLAINTEXT:
+        return PASSWORD;
+      case AUTO:
+        // The second candidate of its format, so the detection and one unsuccessful verification are measured too.
+        return "$SHA$" + digest(PASSWORD + SALT, "SHA-512") + "$" + SALT;
+      default:
+        throw new IllegalArgumentException(migrationHash.name());
+    }
+  }
+
+  private static String digest(String string, String algorithm) {
+    try {
+      byte[] digest = MessageDigest.getInstance(algorithm).digest(string.getBytes(StandardCharsets.UTF_8));
+      StringBuilder builder = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
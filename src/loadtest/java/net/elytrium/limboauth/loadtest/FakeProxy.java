@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import com.velocitypowered.api.command.CommandManager;
+import com.velocitypowered.api.event.EventManager;
+import com.velocitypowered.api.plugin.PluginContainer;
+import com.velocitypowered.api.plugin.PluginManager;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.api.scheduler.Scheduler;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.elytrium.limboapi.api.Limbo;
+import net.elytrium.limboapi.api.LimboFactory;
+import net.elytrium.limboapi.api.LimboSessionHandler;
+import net.elytrium.limboapi.api.chunk.VirtualWorld;
+import net.elytrium.limboauth.listener.AuthListener;
+
+/**
+ * The part of Velocity and LimboAPI, that is used by the plugin during the login.
+ */
+class FakeProxy {
+
+  private final Map<Player, SimulatedPlayer> players = new ConcurrentHashMap<>();
+  // Velocity runs the scheduled tasks on a cached thread pool.
+  private final ExecutorService taskExecutor = Executors.newCachedThreadPool(daemonThreadFactory("LimboAuth LoadTest Scheduler"));
+  // Delayed and repeating tasks, also used as the LimboPlayer executor.
+  private final ScheduledExecutorService scheduledExecutor;
+  // Stands for the netty event loops, that handle the limbo packets.
+  private final ExecutorService eventLoop;
+  private final Limbo limbo;
+  private final ProxyServer server;
+  private volatile AuthListener authListener;
+
+  FakeProxy(int eventLoopThreads) {
+    this.scheduledExecutor = Executors.newScheduledThreadPool(eventLoopThreads, daemonThreadFactory("LimboAuth LoadTest Limbo Executor"));
+    this.eventLoop = Executors.newFixedThreadPool(eventLoopThreads, daemonThreadFactory("LimboAuth LoadTest Event Loop"));
+
+    this.limbo = Stubs.create(Limbo.class, (method, args) -> {
+      if (method.getName().equals("spawnPlayer")) {
+        this.spawnPlayer((Player) args[0], (LimboSessionHandler) args[1]);
+        return null;
+      }
+
+      return Stubs.DEFAULT;
+    });
+
+    LimboFactory factory = Stubs.create(LimboFactory.class, (method, args) -> {
+      switch (method.getName()) {
+        case "createVirtualWorld":
+          return Stubs.create(VirtualWorld.class);
+        case "createLimbo":
+          return this.limbo;
+        case "passLoginLimbo":
+          this.getPlayer((Player) args[0]).passLoginLimbo();
+          return null;
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+
+    PluginContainer limboApiContainer = Stubs.create(PluginContainer.class, (method, args) -> {
+      if (method.getName().equals("getInstance")) {
+        return Optional.of(factory);
+      }
+
+      return Stubs.DEFAULT;
+    });
+
+    PluginManager pluginManager = Stubs.create(PluginManager.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getPlugin":
+          return args[0].equals("limboapi") ? Optional.of(limboApiContainer) : Optional.empty();
+        case "isLoaded":
+          return args[0].equals("limboapi");
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+
+    EventManager eventManager = Stubs.create(EventManager.class, (method, args) -> {
+      switch (method.getName()) {
+        case "register":
+          if (args.length == 2 && args[1] instanceof AuthListener) {
+            this.authListener = (AuthListener) args[1];
+          }
+
+          return null;
+        case "fire":
+          // There are no other plugins, so the events are returned as is.
+          return CompletableFuture.completedFuture(args[0]);
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+
+    Scheduler scheduler = Stubs.create(Scheduler.class, (method, args) -> {
+      if (method.getName().equals("buildTask") && args[1] instanceof Runnable) {
+        return this.buildTask(args[0], (Runnable) args[1]);
+      }
+
+      return Stubs.DEFAULT;
+    });
+
+    CommandManager commandManager = Stubs.create(CommandManager.class);
+    this.server = Stubs.create(ProxyServer.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getPluginManager":
+          return pluginManager;
+        case "getEventManager":
+          return eventManager;
+        case "getScheduler":
+          return scheduler;
+        case "getCommandManager":
+          return commandManager;
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+  }
+
+  private static ThreadFactory daemonThreadFactory(String name) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + " #" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private void spawnPlayer(Player player, LimboSessionHandler handler) {
+    SimulatedPlayer simulatedPlayer = this.getPlayer(player);
+    this.eventLoop.execute(() -> simulatedPlayer.spawn(this.limbo, handler, this.scheduledExecutor));
+  }
+
+  private Scheduler.TaskBuilder buildTask(Object plugin, Runnable runnable) {
+    long[] delayMillis = new long[1];
+    long[] repeatMillis = new long[1];
+    return Stubs.create(Scheduler.TaskBuilder.class, (method, args) -> {
+      switch (method.getName()) {
+        case "delay":
+          delayMillis[0] = toMillis(args);
+          return Stubs.DEFAULT;
+        case "repeat":
+          repeatMillis[0] = toMillis(args);
+          return Stubs.DEFAULT;
+        case "clearDelay":
+          delayMillis[0] = 0;
+          return Stubs.DEFAULT;
+        case "clearRepeat":
+          repeatMillis[0] = 0;
+          return Stubs.DEFAULT;
+        case "schedule":
+          return this.schedule(plugin, runnable, delayMillis[0], repeatMillis[0]);
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+  }
+
+  private static long toMillis(Object[] args) {
+    return args.length == 1 ? ((Duration) args[0]).toMillis() : ((TimeUnit) args[1]).toMillis((Long) args[0]);
+  }
+
+  private ScheduledTask schedule(Object plugin, Runnable runnable, long delayMillis, long repeatMillis) {
+    Future<?> future;
+    if (repeatMillis > 0) {
+      Runnable task = () -> this.taskExecutor.execute(runnable);
+      future = this.scheduledExecutor.scheduleAtFixedRate(task, delayMillis, repeatMillis, TimeUnit.MILLISECONDS);
+    } else if (delayMillis > 0) {
+      future = this.scheduledExecutor.schedule(() -> this.taskExecutor.execute(runnable), delayMillis, TimeUnit.MILLISECONDS);
+    } else {
+      future = this.taskExecutor.submit(runnable);
+    }
+
+    return Stubs.create(ScheduledTask.class, (method, args) -> {
+      switch (method.getName()) {
+        case "plugin":
+          return plugin;
+        case "cancel":
+          future.cancel(false);
+          return null;
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+  }
+
+  void addPlayer(Player player, SimulatedPlayer simulatedPlayer) {
+    this.players.put(player, simulatedPlayer);
+  }
+
+  private SimulatedPlayer getPlayer(Player player) {
+    SimulatedPlayer simulatedPlayer = this.players.get(player);
+    if (simulatedPlayer == null) {
+      throw new IllegalStateException("Unknown player " + player.getUsername());
+    }
+
+    return simulatedPlayer;
+  }
+
+  void shutdown() {
+    this.taskExecutor.shutdownNow();
+    this.scheduledExecutor.shutdownNow();
+    this.eventLoop.shutdownNow();
+  }
+
+  ProxyServer getServer() {
+    return this.server;
+  }
+
+  AuthListener getAuthListener() {
+    return this.authListener;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the executed statements with the H2 query statistics, the other databases don't have an equivalent.
+ */
+class H2QueryStatistics {
+
+  private final ConnectionSource connectionSource;
+
+  H2QueryStatistics(ConnectionSource connectionSource) {
+    this.connectionSource = connectionSource;
+  }
+
+  /**
+   * Enables the statistics, the statements executed before are not counted.
+   */
+  void reset() throws SQLException {
+    DatabaseConnection connection = this.connectionSource.getReadWriteConnection(null);
+    try (Statement statement = connection.getUnderlyingConnection().createStatement()) {
+      // Disabling the statistics clears them.
+      statement.execute("SET QUERY_STATISTICS FALSE");
+      statement.execute("SET QUERY_STATISTICS_MAX_ENTRIES 1000");
+      statement.execute("SET QUERY_STATISTICS TRUE");
+    } finally {
+      this.connectionSource.releaseConnection(connection);
+    }
+  }
+
+  List<Entry> collect() throws SQLException {
+    List<Entry> entries = new ArrayList<>();
+    DatabaseConnection connection = this.connectionSource.getReadWriteConnection(null);
+    try (Statement statement = connection.getUnderlyingConnection().createStatement();
+        ResultSet resultSet = statement.executeQuery(
+            "SELECT SQL_STATEMENT, EXECUTION_COUNT, CUMULATIVE_EXECUTION_TIME FROM INFORMATION_SCHEMA.QUERY_STATISTICS"
+                + " ORDER BY EXECUTION_COUNT DESC")) {
+      while (resultSet.next()) {
+        String sql = resultSet.getString(1);
+        if (!sql.startsWith("SET QUERY_STATISTICS") && !sql.contains("INFORMATION_SCHEMA.QUERY_STATISTICS")) {
+          entries.add(new Entry(sql, resultSet.getLong(2), resultSet.getDouble(3)));
+        }
+      }
+    } finally {
+      this.connectionSource.releaseConnection(connection);
+    }
+
+    return entries;
+  }
+
+  static class Entry {
+
+    private final String sql;
+    private final long executions;
+    private final double totalMillis;
+
+    Entry(String sql, long executions, double totalMillis) {
+      this.sql = sql;
+      this.executions = executions;
+      this.totalMillis = totalMillis;
+    }
+
+    String getSql() {
+      return this.sql;
+    }
+
+    long getExecutions() {
+      return this.executions;
+    }
+
+    double getTotalMillis() {
+      return this.totalMillis;
+    }
+  }
+}
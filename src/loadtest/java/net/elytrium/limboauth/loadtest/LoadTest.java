@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import com.j256.ormlite.dao.Dao;
+import com.velocitypowered.api.util.UuidUtils;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import net.elytrium.limboauth.LimboAuth;
+import net.elytrium.limboauth.Settings;
+import net.elytrium.limboauth.dependencies.DatabaseLibrary;
+import net.elytrium.limboauth.listener.AuthListener;
+import net.elytrium.limboauth.metrics.Counter;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+import net.elytrium.limboauth.storage.BackupFormat;
+import net.elytrium.limboauth.storage.PlayerBackup;
+import net.elytrium.limboauth.storage.ProgressListener;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulates a join storm: every player goes through the pre-login, the game profile request and the auth limbo.
+ * Use {@link LoadTestLauncher} to run it, as the plugin expects to be loaded by a class loader with the addPath method.
+ */
+public class LoadTest {
+
+  private static final String PREMIUM_PREFIX = "Premium";
+  private static final String CRACKED_PREFIX = "Cracked";
+  private static final String PASSWORD = "LoadTest-Password-1";
+  private static final int TOP_STATEMENTS = 10;
+
+  private final LoadTestOptions options;
+  private final PrintStream out = System.out;
+
+  private LoadTest(LoadTestOptions options) {
+    this.options = options;
+  }
+
+  public static void run(String[] args) throws Exception {
+    new LoadTest(LoadTestOptions.parse(args)).run();
+  }
+
+  private void run() throws Exception {
+    Path dataDirectory = this.options.dataDirectory == null ? Files.createTempDirectory("limboauth-loadtest") : this.options.dataDirectory;
+    Files.createDirectories(dataDirectory);
+
+    PremiumApiStub premiumApi = new PremiumApiStub(
+        PREMIUM_PREFIX, this.options.premiumLatencyMillis, this.options.premiumJitterMillis, this.options.rateLimit
+    );
+    premiumApi.start();
+
+    FakeProxy proxy = new FakeProxy(this.options.eventLoopThreads);
+    try {
+      this.writeConfig(dataDirectory.resolve("config.yml"), premiumApi.getUrl());
+
+      System.setProperty("com.j256.simplelogging.level", "ERROR");
+      LimboAuth plugin = new LimboAuth(LoggerFactory.getLogger("LimboAuth"), proxy.getServer(), null, dataDirectory);
+      plugin.reload();
+
+      AuthListener listener = proxy.getAuthListener();
+      if (listener == null) {
+        throw new IllegalStateException("The plugin hasn't registered the AuthListener");
+      }
+
+      List<SimulatedPlayer> players = this.createPlayers();
+      this.out.printf(Locale.ROOT, "Seeding %d registered players into %s...%n",
+          players.stream().filter(SimulatedPlayer::isRegistered).count(), Settings.IMP.DATABASE.STORAGE_TYPE);
+      this.seed(plugin.getPlayerDao(), players);
+
+      H2QueryStatistics queryStatistics = null;
+      if (Settings.IMP.DATABASE.STORAGE_TYPE == DatabaseLibrary.H2) {
+        queryStatistics = new H2QueryStatistics(plugin.getConnectionSource());
+        queryStatistics.reset();
+      }
+
+      Map<String, Long> countersBefore = snapshotCounters();
+      long elapsedNanos = this.joinAll(proxy, plugin, listener, players);
+      this.report(players, elapsedNanos, premiumApi, queryStatistics, countersBefore);
+      if (this.options.verifyBackup) {
+        this.verifyBackup(plugin, dataDirectory);
+      }
+    } finally {
+      proxy.shutdown();
+      premiumApi.stop();
+    }
+  }
+
+  private void writeConfig(Path configFile, String premiumUrl) throws IOException {
+    // Generates the default config, the plugin reads it again on reload.
+    Settings.IMP.reload(configFile.toFile(), Settings.IMP.PREFIX);
+
+    Map<String, String> values = new LinkedHashMap<>();
+    values.put("database.storage-type", quote(this.options.storage.toUpperCase(Locale.ROOT)));
+    values.put("main.ispremium-auth-url", quote(premiumUrl));
+    this.options.config.forEach(values::put);
+
+    List<String> lines = new ArrayList<>(Files.readAllLines(configFile, StandardCharsets.UTF_8));
+    values.forEach((path, value) -> setConfigValue(lines, path, value));
+    Files.write(configFile, lines, StandardCharsets.UTF_8);
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  /**
+   * Replaces the value of the key, e.g. "main.bcrypt-cost", the sections are expected to be indented with two spaces.
+   */
+  static void setConfigValue(List<String> lines, String path, String value) {
+    String[] keys = path.split("\\.");
+    int from = 0;
+    int indent = 0;
+    for (int depth = 0; depth < keys.length; ++depth) {
+      int found = -1;
+      for (int i = from; i < lines.size(); ++i) {
+        String line = lines.get(i);
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+          continue;
+        }
+
+        int lineIndent = line.length() - line.stripLeading().length();
+        if (lineIndent < indent) {
+          // The section has ended.
+          break;
+        }
+
+        if (lineIndent == indent && trimmed.startsWith(keys[depth] + ":")) {
+          found = i;
+          break;
+        }
+      }
+
+      if (found == -1) {
+        throw new IllegalArgumentException("Unknown config key: " + path);
+      }
+
+      if (depth == keys.length - 1) {
+        lines.set(found, " ".repeat(indent) + keys[depth] + ": " + value);
+        // Removes the block style list items of the previous value.
+        while (found + 1 < lines.size()) {
+          String next = lines.get(found + 1);
+          String trimmed = next.trim();
+          int nextIndent = next.length() - next.stripLeading().length();
+          if (trimmed.isEmpty() || trimmed.startsWith("#") || nextIndent < indent || (nextIndent == indent && !trimmed.startsWith("-"))) {
+            break;
+          }
+
+          lines.remove(found + 1);
+        }
+      } else {
+        from = found + 1;
+        indent += 2;
+      }
+    }
+  }
+
+  private List<SimulatedPlayer> createPlayers() {
+    Random random = new Random(this.options.seed);
+    List<SimulatedPlayer> players = new ArrayList<>(this.options.players);
+    for (int i = 1; i <= this.options.players; ++i) {
+      boolean premium = random.nextDouble() < this.options.premium;
+      boolean registered = !premium && random.nextDouble() < this.options.registered;
+      String nickname = (premium ? PREMIUM_PREFIX : CRACKED_PREFIX) + i;
+      players.add(new SimulatedPlayer(i, nickname, PASSWORD, premium, registered));
+    }
+
+    return players;
+  }
+
+  private void seed(Dao<RegisteredPlayer, String> playerDao, List<SimulatedPlayer> players) throws Exception {
+    // Hashing once keeps the seeding fast, the logins still verify the hash with the configured cost.
+    String hash = RegisteredPlayer.genHash(PASSWORD);
+    long now = System.currentTimeMillis();
+    playerDao.callBatchTasks(() -> {
+      for (SimulatedPlayer player : players) {
+        if (player.isRegistered()) {
+          String nickname = player.getNickname();
+          playerDao.create(new RegisteredPlayer(nickname, UuidUtils.generateOfflinePlayerUuid(nickname).toString(), "")
+              .setHash(hash)
+              .setRegDate(now)
+              .setLoginDate(now));
+        }
+      }
+
+      return null;
+    });
+  }
+
+  private long joinAll(FakeProxy proxy, LimboAuth plugin, AuthListener listener, List<SimulatedPlayer> players) throws InterruptedException {
+    // Stands for the Velocity event threads, that run the pre-login and the game profile request handlers.
+    ExecutorService connections = Executors.newFixedThreadPool(this.options.concurrency, runnable -> {
+      Thread thread = new Thread(runnable, "LimboAuth LoadTest Connection");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    Semaphore inFlight = new Semaphore(this.options.concurrency);
+    CompletableFuture<?>[] results = new CompletableFuture<?>[players.size()];
+    long startNanos = System.nanoTime();
+    try {
+      for (int i = 0; i < results.length; ++i) {
+        SimulatedPlayer player = players.get(i);
+        inFlight.acquire();
+        results[i] = player.getResult().whenComplete((outcome, throwable) -> inFlight.release());
+        connections.execute(() -> player.connect(proxy, plugin, listener, this.options.timeoutMillis));
+      }
+
+      CompletableFuture.allOf(results).join();
+      return System.nanoTime() - startNanos;
+    } finally {
+      connections.shutdownNow();
+    }
+  }
+
+  private static Map<String, Long> snapshotCounters() {
+    Map<String, Long> counters = new LinkedHashMap<>();
+    for (Counter counter : LimboAuth.getMetrics().getCounters()) {
+      counters.put(counterName(counter), counter.get());
+    }
+
+    return counters;
+  }
+
+  private static String counterName(Counter counter) {
+    return counter.getLabels().isEmpty() ? counter.getName() : counter.getName() + counter.getLabels();
+  }
+
+  private void report(List<SimulatedPlayer> players, long elapsedNanos, PremiumApiStub premiumApi,
+      H2QueryStatistics queryStatistics, Map<String, Long> countersBefore) throws Exception {
+    Map<SimulatedPlayer.Outcome, Integer> outcomes = new EnumMap<>(SimulatedPlayer.Outcome.class);
+    Map<String, Integer> kickReasons = new LinkedHashMap<>();
+    Throwable firstFailure = null;
+    long[] latencies = new long[players.size()];
+    int successful = 0;
+    for (SimulatedPlayer player : players) {
+      SimulatedPlayer.Outcome outcome = player.getResult().join();
+      outcomes.merge(outcome, 1, Integer::sum);
+      if (outcome.isSuccessful()) {
+        latencies[successful++] = player.getLatencyNanos();
+      } else if (outcome == SimulatedPlayer.Outcome.KICKED) {
+        kickReasons.merge(player.getKickReason(), 1, Integer::sum);
+      } else if (outcome == SimulatedPlayer.Outcome.FAILED && firstFailure == null) {
+        firstFailure = player.getFailure();
+      }
+    }
+
+    long premium = players.stream().filter(SimulatedPlayer::isPremium).count();
+    long registered = players.stream().filter(SimulatedPlayer::isRegistered).count();
+    double elapsedSeconds = elapsedNanos / 1.0E9;
+
+    this.out.println();
+    this.out.printf(Locale.ROOT, "Players: %d (premium %d, registered %d, new %d), concurrency %d, storage %s%n",
+        players.size(), premium, registered, players.size() - premium - registered, this.options.concurrency, Settings.IMP.DATABASE.STORAGE_TYPE);
+    this.out.println("Outcomes: " + outcomes);
+    this.out.printf(Locale.ROOT, "Elapsed: %.2f s, throughput: %.1f logins/s%n", elapsedSeconds, successful / elapsedSeconds);
+
+    if (successful != 0) {
+      long[] sorted = Arrays.copyOf(latencies, successful);
+      Arrays.sort(sorted);
+      this.out.printf(Locale.ROOT, "Login latency: p50 %.1f ms, p99 %.1f ms, p999 %.1f ms, max %.1f ms%n",
+          percentileMillis(sorted, 0.5), percentileMillis(sorted, 0.99), percentileMillis(sorted, 0.999), sorted[sorted.length - 1] / 1.0E6);
+    }
+
+    this.out.printf(Locale.ROOT, "Premium API: %d requests, %d rate limited%n", premiumApi.getRequests(), premiumApi.getRateLimited());
+
+    if (queryStatistics == null) {
+      this.out.println("Database queries: not available, only H2 collects the query statistics");
+    } else {
+      List<H2QueryStatistics.Entry> entries = queryStatistics.collect();
+      long total = entries.stream().mapToLong(H2QueryStatistics.Entry::getExecutions).sum();
+      this.out.printf(Locale.ROOT, "Database queries: %d, %.2f per player%n", total, (double) total / players.size());
+      for (H2QueryStatistics.Entry entry : entries.subList(0, Math.min(TOP_STATEMENTS, entries.size()))) {
+        this.out.printf(Locale.ROOT, "  %8d  %10.1f ms  %s%n", entry.getExecutions(), entry.getTotalMillis(), entry.getSql());
+      }
+    }
+
+    this.out.println("Plugin counters:");
+    for (Counter counter : LimboAuth.getMetrics().getCounters()) {
+      long delta = counter.get() - countersBefore.getOrDefault(counterName(counter), 0L);
+      if (delta != 0) {
+        this.out.printf(Locale.ROOT, "  %s %d%n", counterName(counter), delta);
+      }
+    }
+
+    if (!kickReasons.isEmpty()) {
+      this.out.println("Kick reasons:");
+      kickReasons.forEach((reason, count) -> this.out.printf(Locale.ROOT, "  %6d  %s%n", count, reason));
+    }
+
+    if (firstFailure != null) {
+      this.out.println("First failure:");
+      firstFailure.printStackTrace(this.out);
+    }
+  }
+
+  /**
+   * Restores every backup format into the emptied table, the players should be read back the same with both database schemas.
+   */
+  private void verifyBackup(LimboAuth plugin, Path dataDirectory) throws Exception {
+    Dao<RegisteredPlayer, String> playerDao = plugin.getPlayerDao();
+    PlayerBackup backup = new PlayerBackup(playerDao, plugin.getSingleWriter());
+    List<String> expected = describePlayers(playerDao);
+    for (BackupFormat format : BackupFormat.values()) {
+      Path file = PlayerBackup.getBackupFile(dataDirectory, "loadtest", format);
+      backup.exportPlayers(file, format, ProgressListener.NONE);
+      playerDao.delete(playerDao.deleteBuilder().prepare());
+      backup.restorePlayers(file, ProgressListener.NONE);
+
+      List<String> actual = describePlayers(playerDao);
+      if (!actual.equals(expected)) {
+        int mismatch = 0;
+        while (mismatch < Math.min(expected.size(), actual.size()) && expected.get(mismatch).equals(actual.get(mismatch))) {
+          ++mismatch;
+        }
+
+        throw new IllegalStateException("The " + format + " backup changed the players: expected " + expected.size() + " players, restored "
+            + actual.size() + ", the first difference: " + (mismatch < expected.size() ? expected.get(mismatch) : "none")
+            + " -> " + (mismatch < actual.size() ? actual.get(mismatch) : "none"));
+      }
+
+      this.out.printf(Locale.ROOT, "Backup round trip (%s, %s schema): %d players unchanged%n",
+          format, Settings.IMP.DATABASE.BINARY_SCHEMA ? "binary" : "text", actual.size());
+    }
+  }
+
+  private static List<String> describePlayers(Dao<RegisteredPlayer, String> playerDao) throws Exception {
+    List<String> players = new ArrayList<>();
+    for (RegisteredPlayer player : playerDao.queryBuilder().orderBy(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, true).query()) {
+      players.add(String.join("|", player.getNickname(), player.getHash(), player.getIP(), player.getLoginIp(), player.getTotpToken(),
+          player.getUuid(), player.getPremiumUuid(), Long.toString(player.getRegDate()), Long.toString(player.getLoginDate()),
+          Long.toString(player.getTokenIssuedAt())));
+    }
+
+    return players;
+  }
+
+  private static double percentileMillis(long[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1.0E6;
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+/**
+ * Loads the plugin the same way Velocity does: DatabaseLibrary adds the downloaded driver with the addPath method of the plugin class loader.
+ */
+public class LoadTestLauncher {
+
+  public static void main(String[] args) throws Throwable {
+    String[] classPath = System.getProperty("java.class.path").split(File.pathSeparator);
+    URL[] urls = new URL[classPath.length];
+    for (int i = 0; i < classPath.length; ++i) {
+      urls[i] = Path.of(classPath[i]).toUri().toURL();
+    }
+
+    LoadTestClassLoader classLoader = new LoadTestClassLoader(urls);
+    Thread.currentThread().setContextClassLoader(classLoader);
+    try {
+      Class.forName(LoadTest.class.getName(), true, classLoader).getMethod("run", String[].class).invoke(null, (Object) args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+
+    // The plugin threads are not stopped without the proxy shutdown.
+    System.exit(0);
+  }
+
+  private static class LoadTestClassLoader extends URLClassLoader {
+
+    static {
+      ClassLoader.registerAsParallelCapable();
+    }
+
+    LoadTestClassLoader(URL[] urls) {
+      // The platform class loader is the parent, so the harness and the plugin classes are loaded only by this class loader.
+      super(urls, ClassLoader.getPlatformClassLoader());
+    }
+
+    @SuppressWarnings("unused")
+    void addPath(Path path) throws MalformedURLException {
+      this.addURL(path.toUri().toURL());
+    }
+  }
+}
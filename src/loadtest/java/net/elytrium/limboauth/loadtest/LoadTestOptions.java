@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The load test options, passed as {@code --name=value} arguments.
+ */
+class LoadTestOptions {
+
+  static final String USAGE = String.join(System.lineSeparator(),
+      "Options:",
+      "  --players=5000              Players joining the proxy",
+      "  --concurrency=500           Players in the login process at the same time",
+      "  --premium=0.1               Share of the players with a premium account",
+      "  --registered=0.8            Share of the cracked players, that are already registered",
+      "  --storage=H2                Database storage type, H2 or SQLITE",
+      "  --data-dir=<temp dir>       Plugin data directory, a tmpfs directory keeps the database in memory",
+      "  --premium-latency=50        Premium API response latency, in milliseconds",
+      "  --premium-jitter=0          Random extra premium API latency, in milliseconds",
+      "  --rate-limit=0.0            Share of the premium API requests answered with 429",
+      "  --timeout=120000            Time after which a player is counted as timed out, in milliseconds",
+      "  --event-loop-threads=<2 * CPU cores>",
+      "  --seed=1                    Seed of the player list, the same seed gives the same players",
+      "  --verify-backup=false       Exports and restores the players after the run, and checks that they are unchanged",
+      "  --set=main.bcrypt-cost=10   Overrides a config.yml value, can be repeated"
+  );
+
+  int players = 5000;
+  int concurrency = 500;
+  double premium = 0.1;
+  double registered = 0.8;
+  String storage = "H2";
+  Path dataDirectory;
+  long premiumLatencyMillis = 50;
+  long premiumJitterMillis = 0;
+  double rateLimit = 0.0;
+  long timeoutMillis = 120000;
+  int eventLoopThreads = Runtime.getRuntime().availableProcessors() * 2;
+  long seed = 1;
+  boolean verifyBackup;
+  final Map<String, String> config = new LinkedHashMap<>();
+
+  static LoadTestOptions parse(String[] args) {
+    LoadTestOptions options = new LoadTestOptions();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator == -1) {
+        throw new IllegalArgumentException("Invalid argument: " + arg + System.lineSeparator() + USAGE);
+      }
+
+      String value = arg.substring(separator + 1);
+      switch (arg.substring(2, separator)) {
+        case "players":
+          options.players = Integer.parseInt(value);
+          break;
+        case "concurrency":
+          options.concurrency = Integer.parseInt(value);
+          break;
+        case "premium":
+          options.premium = Double.parseDouble(value);
+          break;
+        case "registered":
+          options.registered = Double.parseDouble(value);
+          break;
+        case "storage":
+          options.storage = value;
+          break;
+        case "data-dir":
+          options.dataDirectory = Path.of(value);
+          break;
+        case "premium-latency":
+          options.premiumLatencyMillis = Long.parseLong(value);
+          break;
+        case "premium-jitter":
+          options.premiumJitterMillis = Long.parseLong(value);
+          break;
+        case "rate-limit":
+          options.rateLimit = Double.parseDouble(value);
+          break;
+        case "timeout":
+          options.timeoutMillis = Long.parseLong(value);
+          break;
+        case "event-loop-threads":
+          options.eventLoopThreads = Integer.parseInt(value);
+          break;
+        case "seed":
+          options.seed = Long.parseLong(value);
+          break;
+        case "verify-backup":
+          options.verifyBackup = Boolean.parseBoolean(value);
+          break;
+        case "set": {
+          int valueSeparator = value.indexOf('=');
+          if (valueSeparator == -1) {
+            throw new IllegalArgumentException("Invalid config override: " + value);
+          }
+
+          options.config.put(value.substring(0, valueSeparator), value.substring(valueSeparator + 1));
+          break;
+        }
+        default: {
+          throw new IllegalArgumentException("Unknown option: " + arg + System.lineSeparator() + USAGE);
+        }
+      }
+    }
+
+    if (options.players <= 0 || options.concurrency <= 0 || options.eventLoopThreads <= 0) {
+      throw new IllegalArgumentException("The players, concurrency and event loop threads count should be positive");
+    }
+
+    return options;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local replacement of the Mojang profile API, that answers like {@code https://api.mojang.com/users/profiles/minecraft/%s}.
+ */
+class PremiumApiStub {
+
+  private static final String PATH = "/users/profiles/minecraft/";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final String premiumPrefix;
+  private final long latencyMillis;
+  private final long jitterMillis;
+  private final double rateLimitRatio;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong rateLimited = new AtomicLong();
+
+  PremiumApiStub(String premiumPrefix, long latencyMillis, long jitterMillis, double rateLimitRatio) throws IOException {
+    this.premiumPrefix = premiumPrefix.toLowerCase(Locale.ROOT);
+    this.latencyMillis = latencyMillis;
+    this.jitterMillis = jitterMillis;
+    this.rateLimitRatio = rateLimitRatio;
+
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "LimboAuth LoadTest Premium API");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.server.setExecutor(this.executor);
+    this.server.createContext(PATH, this::handle);
+  }
+
+  /**
+   * The same UUID is used for the online mode profile of the simulated player.
+   */
+  static UUID premiumUuid(String nickname) {
+    return UUID.nameUUIDFromBytes(("LoadTestPremium:" + nickname.toLowerCase(Locale.ROOT)).getBytes(StandardCharsets.UTF_8));
+  }
+
+  void start() {
+    this.server.start();
+  }
+
+  void stop() {
+    this.server.stop(0);
+    this.executor.shutdownNow();
+  }
+
+  String getUrl() {
+    InetSocketAddress address = this.server.getAddress();
+    return "http://" + address.getHostString() + ":" + address.getPort() + PATH + "%s";
+  }
+
+  long getRequests() {
+    return this.requests.get();
+  }
+
+  long getRateLimited() {
+    return this.rateLimited.get();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    this.requests.incrementAndGet();
+    try {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long delay = this.latencyMillis + (this.jitterMillis > 0 ? random.nextLong(this.jitterMillis + 1) : 0);
+      if (delay > 0) {
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+
+      if (this.rateLimitRatio > 0 && random.nextDouble() < this.rateLimitRatio) {
+        this.rateLimited.incrementAndGet();
+        this.respond(exchange, 429, "");
+        return;
+      }
+
+      String nickname = exchange.getRequestURI().getPath().substring(PATH.length());
+      if (nickname.toLowerCase(Locale.ROOT).startsWith(this.premiumPrefix)) {
+        String id = premiumUuid(nickname).toString().replace("-", "");
+        this.respond(exchange, 200, "{\"name\":\"" + nickname + "\",\"id\":\"" + id + "\"}");
+      } else {
+        this.respond(exchange, 404, "{\"path\":\"" + PATH + nickname + "\",\"errorMessage\":\"Couldn't find any profile with that name\"}");
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+    if (bytes.length != 0) {
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(bytes);
+      }
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import com.velocitypowered.api.event.Continuation;
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.connection.PreLoginEvent;
+import com.velocitypowered.api.event.player.GameProfileRequestEvent;
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.api.proxy.InboundConnection;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.util.GameProfile;
+import com.velocitypowered.api.util.UuidUtils;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.elytrium.limboapi.api.Limbo;
+import net.elytrium.limboapi.api.LimboSessionHandler;
+import net.elytrium.limboapi.api.player.LimboPlayer;
+import net.elytrium.limboauth.LimboAuth;
+import net.elytrium.limboauth.listener.AuthListener;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+/**
+ * A client that joins the proxy once and goes through the same event sequence as the real Velocity connection.
+ */
+class SimulatedPlayer {
+
+  private final String nickname;
+  private final String password;
+  private final boolean premium;
+  private final boolean registered;
+  private final InetSocketAddress address;
+  private final InboundConnection inbound;
+  private final CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+  private final CompletableFuture<Outcome> result;
+
+  private volatile long startNanos;
+  private volatile long endNanos;
+  private volatile Player player;
+  private volatile LimboPlayer limboPlayer;
+  private volatile LimboSessionHandler handler;
+  private volatile String kickReason;
+  private volatile Throwable failure;
+
+  SimulatedPlayer(int index, String nickname, String password, boolean premium, boolean registered) {
+    this.nickname = nickname;
+    this.password = password;
+    this.premium = premium;
+    this.registered = registered;
+    // Every player has its own address, otherwise the IP ratelimiter and registration limits would kick them.
+    this.address = new InetSocketAddress(toAddress(index), 25565);
+    this.inbound = Stubs.create(InboundConnection.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getRemoteAddress":
+          return this.address;
+        case "getProtocolVersion":
+          return ProtocolVersion.MAXIMUM_VERSION;
+        case "isActive":
+          return !this.outcome.isDone();
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+
+    // The end time is set before the dependent stages of the result are run.
+    this.result = this.outcome.thenApply(value -> {
+      this.endNanos = System.nanoTime();
+      return value;
+    });
+  }
+
+  private static InetAddress toAddress(int index) {
+    try {
+      return InetAddress.getByAddress(new byte[] {
+          10, (byte) (index >>> 16), (byte) (index >>> 8), (byte) index
+      });
+    } catch (UnknownHostException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Runs the pre-login, the game profile request and the login limbo registration stages.
+   * The next stages are continued by the plugin through {@link FakeProxy}.
+   */
+  void connect(FakeProxy proxy, LimboAuth plugin, AuthListener listener, long timeoutMillis) {
+    this.startNanos = System.nanoTime();
+    this.outcome.completeOnTimeout(Outcome.TIMED_OUT, timeoutMillis, TimeUnit.MILLISECONDS);
+
+    try {
+      PreLoginEvent preLoginEvent = new PreLoginEvent(this.inbound, this.nickname);
+      runEventTask(listener.onPreLoginEvent(preLoginEvent));
+      if (!preLoginEvent.getResult().isAllowed()) {
+        this.kick("Denied on the pre-login stage");
+        return;
+      }
+
+      boolean onlineMode = preLoginEvent.getResult().isOnlineModeAllowed();
+      if (onlineMode && !this.premium) {
+        // Velocity would kick the player after the failed Mojang session check.
+        plugin.removePrefetchedPlayerInfo(this.nickname);
+        this.complete(Outcome.WRONG_MODE);
+        return;
+      }
+
+      UUID profileId = onlineMode ? PremiumApiStub.premiumUuid(this.nickname) : UuidUtils.generateOfflinePlayerUuid(this.nickname);
+      GameProfileRequestEvent profileEvent = new GameProfileRequestEvent(this.inbound, new GameProfile(profileId, this.nickname, List.of()), onlineMode);
+      runEventTask(listener.onGameProfileRequest(profileEvent));
+
+      GameProfile profile = profileEvent.getGameProfile();
+      this.player = this.createPlayer(profile, onlineMode);
+      proxy.addPlayer(this.player, this);
+
+      if (plugin.needAuth(this.player)) {
+        plugin.authPlayer(this.player);
+      } else {
+        plugin.removePrefetchedPlayerInfo(this.nickname);
+        this.complete(Outcome.SESSION);
+      }
+    } catch (Throwable e) {
+      this.fail(e);
+    }
+  }
+
+  /**
+   * Waits for the async part of the event handler, as Velocity does before firing the next event.
+   */
+  private static void runEventTask(EventTask task) {
+    if (task == null) {
+      return;
+    }
+
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    task.execute(new Continuation() {
+      @Override
+      public void resume() {
+        future.complete(null);
+      }
+
+      @Override
+      public void resumeWithException(Throwable exception) {
+        future.completeExceptionally(exception);
+      }
+    });
+    future.join();
+  }
+
+  /**
+   * Called by the auth limbo, answers to the plugin as the player would do.
+   */
+  void spawn(Limbo server, LimboSessionHandler handler, ScheduledExecutorService executor) {
+    this.handler = handler;
+    this.limboPlayer = this.createLimboPlayer(executor);
+    try {
+      handler.onSpawn(server, this.limboPlayer);
+      if (!this.outcome.isDone()) {
+        handler.onChat(this.registered ? "/login " + this.password : "/register " + this.password + " " + this.password);
+      }
+    } catch (Throwable e) {
+      this.fail(e);
+    }
+  }
+
+  void passLoginLimbo() {
+    this.complete(Outcome.PREMIUM);
+  }
+
+  private Player createPlayer(GameProfile profile, boolean onlineMode) {
+    return Stubs.create(Player.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getUsername":
+          return profile.getName();
+        case "getUniqueId":
+          return profile.getId();
+        case "getGameProfile":
+          return profile;
+        case "getRemoteAddress":
+          return this.address;
+        case "getProtocolVersion":
+          return ProtocolVersion.MAXIMUM_VERSION;
+        case "isOnlineMode":
+          return onlineMode;
+        case "isActive":
+          return !this.outcome.isDone();
+        case "disconnect":
+          this.kick(args.length == 0 ? "" : LegacyComponentSerializer.legacyAmpersand().serialize((Component) args[0]));
+          return null;
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+  }
+
+  private LimboPlayer createLimboPlayer(ScheduledExecutorService executor) {
+    return Stubs.create(LimboPlayer.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getScheduledExecutor":
+          return executor;
+        case "getProxyPlayer":
+          return this.player;
+        case "disconnect":
+          // Leaving the limbo after the successful login.
+          this.leaveLimbo();
+          this.complete(this.registered ? Outcome.LOGGED_IN : Outcome.REGISTERED);
+          return null;
+        default:
+          return Stubs.DEFAULT;
+      }
+    });
+  }
+
+  private void kick(String reason) {
+    this.kickReason = reason;
+    this.leaveLimbo();
+    this.complete(Outcome.KICKED);
+  }
+
+  private void fail(Throwable throwable) {
+    this.failure = throwable;
+    this.leaveLimbo();
+    this.complete(Outcome.FAILED);
+  }
+
+  private void leaveLimbo() {
+    LimboSessionHandler handler = this.handler;
+    if (handler != null) {
+      this.handler = null;
+      handler.onDisconnect();
+    }
+  }
+
+  private void complete(Outcome outcome) {
+    this.outcome.complete(outcome);
+  }
+
+  String getNickname() {
+    return this.nickname;
+  }
+
+  boolean isPremium() {
+    return this.premium;
+  }
+
+  boolean isRegistered() {
+    return this.registered;
+  }
+
+  CompletableFuture<Outcome> getResult() {
+    return this.result;
+  }
+
+  long getLatencyNanos() {
+    return this.endNanos - this.startNanos;
+  }
+
+  String getKickReason() {
+    return this.kickReason;
+  }
+
+  Throwable getFailure() {
+    return this.failure;
+  }
+
+  enum Outcome {
+
+    LOGGED_IN(true),
+    REGISTERED(true),
+    PREMIUM(true),
+    SESSION(true),
+    KICKED(false),
+    WRONG_MODE(false),
+    FAILED(false),
+    TIMED_OUT(false);
+
+    private final boolean successful;
+
+    Outcome(boolean successful) {
+      this.successful = successful;
+    }
+
+    boolean isSuccessful() {
+      return this.successful;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.loadtest;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Creates the Velocity and LimboAPI interface stubs, so the harness doesn't depend on every method of these interfaces.
+ */
+final class Stubs {
+
+  /**
+   * Returned by an {@link Answer} to fall back to the default value of the method.
+   */
+  static final Object DEFAULT = new Object();
+
+  private Stubs() {
+
+  }
+
+  static <T> T create(Class<T> type, Answer answer) {
+    Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {
+        type
+    }, (proxy, method, args) -> {
+      Object[] arguments = args == null ? new Object[0] : args;
+      if (method.getDeclaringClass() == Object.class) {
+        return handleObjectMethod(type, proxy, method, arguments);
+      }
+
+      Object result = answer.answer(method, arguments);
+      return result == DEFAULT ? defaultValue(proxy, method.getReturnType()) : result;
+    });
+
+    return type.cast(stub);
+  }
+
+  static <T> T create(Class<T> type) {
+    return create(type, (method, args) -> DEFAULT);
+  }
+
+  private static Object handleObjectMethod(Class<?> type, Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      default:
+        return type.getSimpleName() + "Stub@" + Integer.toHexString(System.identityHashCode(proxy));
+    }
+  }
+
+  private static Object defaultValue(Object proxy, Class<?> returnType) {
+    if (returnType == void.class) {
+      return null;
+    } else if (returnType == boolean.class) {
+      return false;
+    } else if (returnType == char.class) {
+      return '\0';
+    } else if (returnType == byte.class) {
+      return (byte) 0;
+    } else if (returnType == short.class) {
+      return (short) 0;
+    } else if (returnType == int.class) {
+      return 0;
+    } else if (returnType == long.class) {
+      return 0L;
+    } else if (returnType == float.class) {
+      return 0.0F;
+    } else if (returnType == double.class) {
+      return 0.0;
+    } else if (returnType.isInstance(proxy)) {
+      // Builder-like methods, e.g. Limbo#setName.
+      return proxy;
+    } else if (returnType == Optional.class) {
+      return Optional.empty();
+    } else if (returnType == CompletableFuture.class) {
+      return CompletableFuture.completedFuture(null);
+    } else if (returnType == Set.class) {
+      return Set.of();
+    } else if (returnType == Map.class) {
+      return Map.of();
+    } else if (returnType == List.class || returnType == Collection.class) {
+      return List.of();
+    } else {
+      return null;
+    }
+  }
+
+  @FunctionalInterface
+  interface Answer {
+
+    /**
+     * Handles the stub method call.
+     *
+     * @return the result of the call, or {@link #DEFAULT} to use the default value
+     */
+    Object answer(Method method, Object[] args) throws Throwable;
+  }
+}
@@ -24,13 +24,12 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.inject.Inject;
 import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.dao.GenericRawResults;
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.field.FieldType;
-import com.j256.ormlite.stmt.QueryBuilder;
-import com.j256.ormlite.stmt.UpdateBuilder;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTableConfig;
 import com.j256.ormlite.table.TableInfo;
 import com.j256.ormlite.table.TableUtils;
 import com.velocitypowered.api.command.CommandManager;
@@ -51,7 +50,6 @@ import com.velocitypowered.api.scheduler.ScheduledTask;
 import com.velocitypowered.proxy.util.ratelimit.Ratelimiter;
 import com.velocitypowered.proxy.util.ratelimit.Ratelimiters;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import io.whitfin.siphash.SipHasher;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
@@ -66,6 +64,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -74,8 +73,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -90,6 +95,9 @@ import net.elytrium.limboapi.api.LimboFactory;
 import net.elytrium.limboapi.api.chunk.VirtualWorld;
 import net.elytrium.limboapi.api.command.LimboCommandMeta;
 import net.elytrium.limboapi.api.file.WorldFile;
+import net.elytrium.limboauth.cluster.DatabaseInvalidationBus;
+import net.elytrium.limboauth.cluster.InvalidationBus;
+import net.elytrium.limboauth.cluster.LocalInvalidationBus;
 import net.elytrium.limboauth.command.ChangePasswordCommand;
 import net.elytrium.limboauth.command.DestroySessionCommand;
 import net.elytrium.limboauth.command.ForceChangePasswordCommand;
@@ -99,6 +107,9 @@ import net.elytrium.limboauth.command.LimboAuthCommand;
 import net.elytrium.limboauth.command.PremiumCommand;
 import net.elytrium.limboauth.command.TotpCommand;
 import net.elytrium.limboauth.command.UnregisterCommand;
+import net.elytrium.limboauth.concurrent.BlockingExecutors;
+import net.elytrium.limboauth.concurrent.HashVerificationQueue;
+import net.elytrium.limboauth.dependencies.BaseLibrary;
 import net.elytrium.limboauth.dependencies.DatabaseLibrary;
 import net.elytrium.limboauth.event.AuthPluginReloadEvent;
 import net.elytrium.limboauth.event.PreAuthorizationEvent;
@@ -107,9 +118,29 @@ import net.elytrium.limboauth.event.PreRegisterEvent;
 import net.elytrium.limboauth.event.TaskEvent;
 import net.elytrium.limboauth.floodgate.FloodgateApiHolder;
 import net.elytrium.limboauth.handler.AuthSessionHandler;
+import net.elytrium.limboauth.jfr.InstrumentedDao;
+import net.elytrium.limboauth.jfr.PremiumCheckEvent;
 import net.elytrium.limboauth.listener.AuthListener;
+import net.elytrium.limboauth.metrics.Counter;
+import net.elytrium.limboauth.metrics.Histogram;
+import net.elytrium.limboauth.metrics.MetricsRegistry;
+import net.elytrium.limboauth.metrics.MetricsServer;
+import net.elytrium.limboauth.model.AuthSession;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.session.DatabaseSessionStore;
+import net.elytrium.limboauth.session.MemorySessionStore;
+import net.elytrium.limboauth.session.SessionStorageType;
+import net.elytrium.limboauth.session.SessionStore;
+import net.elytrium.limboauth.storage.BackupFormat;
+import net.elytrium.limboauth.storage.PlayerArchive;
+import net.elytrium.limboauth.storage.PlayerBackup;
+import net.elytrium.limboauth.storage.PlayerRepository;
+import net.elytrium.limboauth.storage.PlayerSchema;
+import net.elytrium.limboauth.storage.ProgressListener;
+import net.elytrium.limboauth.storage.RegisteredPlayerCount;
+import net.elytrium.limboauth.storage.SingleWriter;
+import net.elytrium.limboauth.world.WorldSnapshot;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.ComponentSerializer;
 import net.kyori.adventure.title.Title;
@@ -140,17 +171,34 @@ public class LimboAuth {
   // Architectury API appends /541f59e4256a337ea252bc482a009d46 to the channel name, that is a UUID.nameUUIDFromBytes from the TokenMessage class name
   private static final ChannelIdentifier MOD_CHANNEL = MinecraftChannelIdentifier.create("limboauth", "mod/541f59e4256a337ea252bc482a009d46");
   private static final ChannelIdentifier LEGACY_MOD_CHANNEL = new LegacyChannelIdentifier("LIMBOAUTH|MOD");
+  private static final MetricsRegistry METRICS = new MetricsRegistry();
+  private static final Counter PREFETCH_HITS = METRICS.counter("limboauth_login_prefetch_hits_total", "Logins that reused the prefetched account.");
+  private static final Counter PREFETCH_MISSES = METRICS.counter("limboauth_login_prefetch_misses_total", "Logins that had to fetch the account again.");
+  private static final Histogram INTERNAL_PREMIUM_CHECK_TIME = METRICS.histogram("limboauth_premium_check_seconds",
+      "Time spent checking if the nickname is premium.", Map.of("source", "internal"));
+  private static final Histogram EXTERNAL_PREMIUM_CHECK_TIME = METRICS.histogram("limboauth_premium_check_seconds",
+      "Time spent checking if the nickname is premium.", Map.of("source", "external"));
+  private static final Counter PREMIUM_API_RATE_LIMITED = METRICS.counter("limboauth_premium_api_rate_limited_total",
+      "Premium API responses with the rate limit status code.");
+  private static final Counter PREMIUM_CACHE_HITS = METRICS.counter("limboauth_premium_cache_hits_total", "Premium checks answered by the cache.");
+  private static final Counter PREMIUM_CACHE_MISSES = METRICS.counter("limboauth_premium_cache_misses_total", "Premium checks that were not cached.");
+  private static final Counter SESSION_CACHE_HITS = METRICS.counter("limboauth_session_cache_hits_total", "Joins that skipped the auth with a session.");
+  private static final Counter SESSION_CACHE_MISSES = METRICS.counter("limboauth_session_cache_misses_total", "Joins without a valid session.");
+  private static final Counter BRUTEFORCE_KICKS = METRICS.counter("limboauth_bruteforce_kicks_total",
+      "Players kicked because of too many wrong passwords from their IP address.");
+  private static final String AUTO_EXPORT_PREFIX = "auto";
 
   @MonotonicNonNull
   private static Logger LOGGER;
   @MonotonicNonNull
   private static Serializer SERIALIZER;
 
-  private final Map<String, CachedSessionUser> cachedAuthChecks = new ConcurrentHashMap<>();
   private final Map<String, CachedPremiumUser> premiumCache = new ConcurrentHashMap<>();
   private final Map<InetAddress, CachedBruteforceUser> bruteforceCache = new ConcurrentHashMap<>();
+  private final Map<String, LoginContext> loginContexts = new ConcurrentHashMap<>();
+  private final Map<String, CachedUser> joinTimes = new ConcurrentHashMap<>();
   private final Map<UUID, Runnable> postLoginTasks = new ConcurrentHashMap<>();
-  private final Set<String> unsafePasswords = new HashSet<>();
+  private volatile Set<String> unsafePasswords = Set.of();
   private final Set<String> forcedPreviously = Collections.synchronizedSet(new HashSet<>());
 
   private final HttpClient client = HttpClient.newHttpClient();
@@ -178,11 +226,30 @@ public class LimboAuth {
   private ScheduledTask purgeCacheTask;
   private ScheduledTask purgePremiumCacheTask;
   private ScheduledTask purgeBruteforceCacheTask;
-
-  private ConnectionSource connectionSource;
-  private Dao<RegisteredPlayer, String> playerDao;
-  private Pattern nicknameValidationPattern;
-  private Limbo authServer;
+  private ScheduledTask purgeLoginContextsTask;
+  private ScheduledTask pollInvalidationsTask;
+  private ScheduledTask autoExportTask;
+  private ScheduledTask archiveTask;
+  private ScheduledTask recountPlayersTask;
+
+  private MetricsServer metricsServer;
+  private List<Object> metricsServerSettings;
+  private AuthListener authListener;
+  // Replaced on reload after the new generation is built, read by the event threads.
+  private volatile AuthGeneration generation;
+  private volatile ConnectionSource connectionSource;
+  private volatile Dao<RegisteredPlayer, String> playerDao;
+  private volatile PlayerRepository playerRepository;
+  private volatile PlayerArchive playerArchive;
+  private volatile Pattern nicknameValidationPattern;
+  private volatile Limbo authServer;
+  private volatile HashVerificationQueue hashVerificationQueue;
+  private volatile ExecutorService blockingExecutor;
+  private volatile RegisteredPlayerCount registeredPlayerCount;
+  private volatile SessionStore sessionStore;
+  private volatile InvalidationBus invalidationBus;
+  // The generation used by the running import, export or restore, it isn't closed until the task finishes.
+  private final AtomicReference<AuthGeneration> databaseTaskGeneration = new AtomicReference<>();
 
   @Inject
   public LimboAuth(Logger logger, ProxyServer server, Metrics.Factory metricsFactory, @DataDirectory Path dataDirectory) {
@@ -202,6 +269,58 @@ public class LimboAuth {
     } else {
       this.floodgateApi = null;
     }
+
+    this.prefetchLibraries();
+
+    METRICS.gauge("limboauth_db_pool_connections", "Connections of the database pool.", Map.of("state", "free"),
+        () -> this.connectionSource instanceof JdbcPooledConnectionSource
+            ? ((JdbcPooledConnectionSource) this.connectionSource).getCurrentConnectionsFree() : Double.NaN);
+    METRICS.gauge("limboauth_db_pool_connections", "Connections of the database pool.", Map.of("state", "managed"),
+        () -> this.connectionSource instanceof JdbcPooledConnectionSource
+            ? ((JdbcPooledConnectionSource) this.connectionSource).getCurrentConnectionsManaged() : Double.NaN);
+    // The queue is created by the first reload, the metrics can be scraped before it.
+    METRICS.gauge("limboauth_hash_queue_queued", "Password verifications waiting in the queue.", () -> {
+      HashVerificationQueue queue = this.hashVerificationQueue;
+      return queue == null ? Double.NaN : queue.getQueued();
+    });
+    METRICS.gauge("limboauth_hash_queue_running", "Password verifications running now.", () -> {
+      HashVerificationQueue queue = this.hashVerificationQueue;
+      return queue == null ? Double.NaN : queue.getRunning();
+    });
+    METRICS.gauge("limboauth_db_writer_queued", "Database writes waiting for the SQLite single writer.", () -> {
+      AuthGeneration generation = this.generation;
+      return generation == null || generation.getSingleWriter() == null ? Double.NaN : generation.getSingleWriter().getQueued();
+    });
+    METRICS.gauge("limboauth_login_contexts", "Accounts prefetched for the players that are logging in.", this.loginContexts::size);
+  }
+
+  /**
+   * Starts downloading the database drivers while the other plugins are loading, so the proxy initialization doesn't wait for them.
+   */
+  private void prefetchLibraries() {
+    try {
+      Settings.IMP.reload(this.configFile, Settings.IMP.PREFIX);
+    } catch (RuntimeException e) {
+      // The invalid config is reported by the reload on the proxy initialization.
+      return;
+    }
+
+    setLibrariesMirror();
+    for (BaseLibrary library : Settings.IMP.DATABASE.STORAGE_TYPE.getRequiredLibraries(this.dataDirectory.toAbsolutePath())) {
+      library.prefetch().whenComplete((resolution, throwable) -> {
+        if (throwable == null) {
+          LOGGER.info("Resolved {} from {} in {} ms.", library.getMavenPath(),
+              resolution.getSource().name().toLowerCase(Locale.ROOT), TimeUnit.NANOSECONDS.toMillis(resolution.getNanos()));
+        } else {
+          LOGGER.warn("Unable to resolve {}, retrying on the database connection.", library.getMavenPath(), throwable);
+        }
+      });
+    }
+  }
+
+  private static void setLibrariesMirror() {
+    String librariesMirror = Settings.IMP.DATABASE.LIBRARIES_MIRROR;
+    BaseLibrary.setMirrorDirectory(librariesMirror.isEmpty() ? null : Path.of(librariesMirror));
   }
 
   @Subscribe
@@ -223,7 +342,8 @@ public class LimboAuth {
     metrics.addCustomChart(new SimplePie("totp_enabled", () -> String.valueOf(Settings.IMP.MAIN.ENABLE_TOTP)));
     metrics.addCustomChart(new SimplePie("dimension", () -> String.valueOf(Settings.IMP.MAIN.DIMENSION)));
     metrics.addCustomChart(new SimplePie("save_uuid", () -> String.valueOf(Settings.IMP.MAIN.SAVE_UUID)));
-    metrics.addCustomChart(new SingleLineChart("registered_players", () -> Math.toIntExact(this.playerDao.countOf())));
+    // Charts with the 0 value are not sent, so the count isn't sent until the players are counted.
+    metrics.addCustomChart(new SingleLineChart("registered_players", () -> Math.toIntExact(Math.max(0, this.registeredPlayerCount.get()))));
 
     if (!UpdatesChecker.checkVersionByURL("https://raw.githubusercontent.com/Elytrium/LimboAuth/master/VERSION", Settings.IMP.VERSION)) {
       LOGGER.error("****************************************");
@@ -235,6 +355,10 @@ public class LimboAuth {
 
   @SuppressFBWarnings(value = "NP_NULL_ON_SOME_PATH", justification = "LEGACY_AMPERSAND can't be null in velocity.")
   public void reload() {
+    // Compared with the reloaded settings, so only the caches, which depend on the changed settings, are cleared.
+    final List<Object> previousPremiumSettings = getPremiumSettings();
+    final List<Object> previousSessionSettings = getSessionSettings();
+
     Settings.IMP.reload(this.configFile, Settings.IMP.PREFIX);
 
     if (this.floodgateApi == null && !Settings.IMP.MAIN.FLOODGATE_NEED_AUTH) {
@@ -282,50 +406,170 @@ public class LimboAuth {
 
     if (Settings.IMP.MAIN.CHECK_PASSWORD_STRENGTH) {
       try {
-        this.unsafePasswords.clear();
         Path unsafePasswordsPath = Paths.get(this.dataDirectoryFile.getAbsolutePath(), Settings.IMP.MAIN.UNSAFE_PASSWORDS_FILE);
         if (!unsafePasswordsPath.toFile().exists()) {
           Files.copy(Objects.requireNonNull(this.getClass().getResourceAsStream("/unsafe_passwords.txt")), unsafePasswordsPath);
         }
 
         try (Stream<String> unsafePasswordsStream = Files.lines(unsafePasswordsPath)) {
-          this.unsafePasswords.addAll(unsafePasswordsStream.collect(Collectors.toList()));
+          this.unsafePasswords = unsafePasswordsStream.collect(Collectors.toUnmodifiableSet());
         }
       } catch (IOException e) {
         throw new IllegalArgumentException(e);
       }
     }
 
-    this.cachedAuthChecks.clear();
-    this.premiumCache.clear();
-    this.bruteforceCache.clear();
-
+    // The new database connection and the auth limbo are built before the executors and the generation are replaced,
+    // so the players keep logging in with the previous generation until the swap, and a failed build leaves it running.
+    setLibrariesMirror();
     Settings.DATABASE dbConfig = Settings.IMP.DATABASE;
-    DatabaseLibrary databaseLibrary = dbConfig.STORAGE_TYPE;
+    String embeddedParameters = getEmbeddedParameters(dbConfig);
+    boolean singleWriterEnabled = dbConfig.STORAGE_TYPE == DatabaseLibrary.SQLITE && dbConfig.EMBEDDED.ENABLED && dbConfig.EMBEDDED.SQLITE_SINGLE_WRITER;
+    String databaseKey = String.join("\n",
+        dbConfig.STORAGE_TYPE.name(), dbConfig.HOSTNAME, dbConfig.DATABASE, getConnectionParameters(dbConfig), dbConfig.USER, dbConfig.PASSWORD,
+        embeddedParameters, singleWriterEnabled ? String.valueOf(dbConfig.EMBEDDED.SQLITE_SINGLE_WRITER_MAX_BATCH) : "");
+    AuthGeneration previousGeneration = this.generation;
+    boolean reuseConnection = previousGeneration != null && previousGeneration.getDatabaseKey().equals(databaseKey);
+    ConnectionSource connectionSource = null;
+    Dao<RegisteredPlayer, String> playerDao;
+    SingleWriter singleWriter = null;
+    PlayerArchive playerArchive;
+    SessionStore sessionStore;
+    InvalidationBus invalidationBus;
+    Limbo authServer;
+    Settings.ARCHIVE archiveConfig = Settings.IMP.ARCHIVE;
+    Settings.CLUSTER clusterConfig = Settings.IMP.CLUSTER;
+    boolean built = false;
     try {
-      this.connectionSource = databaseLibrary.connectToORM(
-          this.dataDirectoryFile.toPath().toAbsolutePath(),
-          dbConfig.HOSTNAME,
-          dbConfig.DATABASE + dbConfig.CONNECTION_PARAMETERS,
-          dbConfig.USER,
-          dbConfig.PASSWORD
+      if (reuseConnection) {
+        connectionSource = previousGeneration.getConnectionSource();
+        playerDao = previousGeneration.getPlayerDao();
+        singleWriter = previousGeneration.getSingleWriter();
+      } else {
+        connectionSource = this.connectToDatabase(dbConfig, embeddedParameters);
+        playerDao = this.createPlayerDao(connectionSource, dbConfig, previousGeneration == null);
+        if (singleWriterEnabled) {
+          singleWriter = new SingleWriter(connectionSource, dbConfig.EMBEDDED.SQLITE_SINGLE_WRITER_MAX_BATCH);
+          playerDao = singleWriter.wrap(playerDao);
+        }
+      }
+
+      // The archive table is created when the archival is enabled, the players archived before are restored even if it is disabled later.
+      Dao<RegisteredPlayer, String> archiveDao = PlayerSchema.createArchiveDao(
+          connectionSource, dbConfig.STORAGE_TYPE, archiveConfig.ENABLED && !archiveConfig.DELETE
       );
-    } catch (ReflectiveOperationException e) {
-      throw new ReflectionException(e);
+      if (archiveDao != null) {
+        this.migrateDb(archiveDao);
+      }
+
+      playerArchive = new PlayerArchive(playerDao, archiveDao, singleWriter);
+
+      // The sessions are kept if neither the session storage, nor the database is changed.
+      // They are tied to the accounts of the previous database, so they are dropped with it.
+      sessionStore = this.sessionStore;
+      if (sessionStore == null || !reuseConnection || !getSessionSettings().equals(previousSessionSettings)) {
+        if (Settings.IMP.SESSIONS.STORAGE_TYPE == SessionStorageType.DATABASE) {
+          sessionStore = new DatabaseSessionStore(connectionSource, singleWriter, Settings.IMP.SESSIONS.NEAR_CACHE_MILLIS);
+        } else {
+          sessionStore = new MemorySessionStore();
+        }
+      }
+
+      if (clusterConfig.ENABLED) {
+        invalidationBus = new DatabaseInvalidationBus(
+            connectionSource, singleWriter, clusterConfig.POLL_BATCH_SIZE, clusterConfig.LOOKBACK_MILLIS, clusterConfig.RETENTION_MILLIS,
+            this::invalidateLocalCaches
+        );
+      } else {
+        invalidationBus = new LocalInvalidationBus();
+      }
+
+      authServer = this.createAuthServer();
+      built = true;
     } catch (SQLException e) {
       throw new SQLRuntimeException(e);
-    } catch (IOException | URISyntaxException e) {
-      throw new IllegalArgumentException(e);
+    } finally {
+      // The connection opened by this reload isn't used by anything yet, the reused one still belongs to the previous generation.
+      if (!built && !reuseConnection && connectionSource != null) {
+        if (singleWriter != null) {
+          singleWriter.shutdown();
+        }
+
+        connectionSource.closeQuietly();
+      }
+    }
+
+    // The executors and the metrics server are replaced only after the generation is built, so a failed reload keeps the previous ones.
+    int maxConcurrentHashVerifications = Settings.IMP.MAIN.MAX_CONCURRENT_HASH_VERIFICATIONS;
+    if (maxConcurrentHashVerifications <= 0) {
+      maxConcurrentHashVerifications = Runtime.getRuntime().availableProcessors();
+    }
+
+    boolean virtualThreads = Settings.IMP.MAIN.VIRTUAL_THREADS;
+    if (virtualThreads && !BlockingExecutors.isVirtualThreadsSupported()) {
+      LOGGER.info("Virtual threads require Java 21 or newer, the blocking tasks will be run by a platform thread pool.");
+    }
+
+    int blockingThreads = Settings.IMP.MAIN.BLOCKING_THREADS;
+    if (blockingThreads <= 0) {
+      blockingThreads = Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    // The tasks submitted to the previous queue and executor are finished by them.
+    HashVerificationQueue previousHashVerificationQueue = this.hashVerificationQueue;
+    this.hashVerificationQueue = new HashVerificationQueue(maxConcurrentHashVerifications, virtualThreads, METRICS);
+    if (previousHashVerificationQueue != null) {
+      previousHashVerificationQueue.shutdown();
     }
 
+    ExecutorService previousBlockingExecutor = this.blockingExecutor;
+    this.blockingExecutor = BlockingExecutors.create("LimboAuth Blocking #", blockingThreads, virtualThreads);
+    if (previousBlockingExecutor != null) {
+      previousBlockingExecutor.shutdown();
+    }
+
+    this.reloadMetricsServer();
+
+    final SessionStore previousSessionStore = this.sessionStore;
+    this.connectionSource = connectionSource;
+    this.playerDao = playerDao;
+    this.playerArchive = playerArchive;
+    this.playerRepository = new PlayerRepository(playerDao, playerArchive);
+
+    this.sessionStore = sessionStore;
+    this.invalidationBus = invalidationBus;
+    this.authServer = authServer;
     this.nicknameValidationPattern = Pattern.compile(Settings.IMP.MAIN.ALLOWED_NICKNAME_REGEX);
+    this.generation = new AuthGeneration(databaseKey, connectionSource, playerDao, singleWriter, authServer);
+    if (!reuseConnection) {
+      this.registeredPlayerCount = new RegisteredPlayerCount(playerDao);
+    }
 
-    try {
-      TableUtils.createTableIfNotExists(this.connectionSource, RegisteredPlayer.class);
-      this.playerDao = DaoManager.createDao(this.connectionSource, RegisteredPlayer.class);
-      this.migrateDb(this.playerDao);
-    } catch (SQLException e) {
-      throw new SQLRuntimeException(e);
+    if (previousSessionStore != null && previousSessionStore != sessionStore) {
+      previousSessionStore.shutdown();
+    }
+
+    // The internal premium check reads the database, and the prefetched accounts are read from it too.
+    if (!reuseConnection || !getPremiumSettings().equals(previousPremiumSettings)) {
+      this.premiumCache.clear();
+    }
+
+    if (!reuseConnection) {
+      this.loginContexts.clear();
+    }
+
+    // The bruteforce attempts don't depend on any setting, so they are always kept.
+    // The kept entries expire by their check time, so the changed purge times are applied to them right away.
+    // The sessions are checked with the current purge time when they are read.
+    checkCache(this.premiumCache, Settings.IMP.MAIN.PURGE_PREMIUM_CACHE_MILLIS);
+    checkCache(this.bruteforceCache, Settings.IMP.MAIN.PURGE_BRUTEFORCE_CACHE_MILLIS);
+
+    if (previousGeneration != null) {
+      if (reuseConnection) {
+        previousGeneration.transferConnectionSource();
+      }
+
+      this.retireGeneration(previousGeneration);
     }
 
     CommandManager manager = this.server.getCommandManager();
@@ -343,38 +587,320 @@ public class LimboAuth {
     manager.register("forceregister", new ForceRegisterCommand(this, this.playerDao), "forcereg");
     manager.register("premium", new PremiumCommand(this, this.playerDao), "license");
     manager.register("forceunregister", new ForceUnregisterCommand(this, this.server, this.playerDao), "forceunreg");
-    manager.register("changepassword", new ChangePasswordCommand(this, this.playerDao), "changepass", "cp");
-    manager.register("forcechangepassword", new ForceChangePasswordCommand(this, this.server, this.playerDao), "forcechangepass", "fcp");
+    manager.register("changepassword", new ChangePasswordCommand(this, this.playerRepository), "changepass", "cp");
+    manager.register("forcechangepassword", new ForceChangePasswordCommand(this, this.server, this.playerRepository), "forcechangepass", "fcp");
     manager.register("destroysession", new DestroySessionCommand(this), "logout");
     if (Settings.IMP.MAIN.ENABLE_TOTP) {
-      manager.register("2fa", new TotpCommand(this.playerDao), "totp");
+      manager.register("2fa", new TotpCommand(this.playerRepository), "totp");
     }
     manager.register("limboauth", new LimboAuthCommand(this), "la", "auth", "lauth");
 
+    // The listener reads the current generation, so it is registered only once.
+    // Re-registering it would let the players that join in between skip the auth.
+    EventManager eventManager = this.server.getEventManager();
+    if (this.authListener == null) {
+      this.authListener = new AuthListener(this, this.floodgateApi);
+      eventManager.register(this, this.authListener);
+    }
+
+    if (this.purgeCacheTask != null) {
+      this.purgeCacheTask.cancel();
+    }
+
+    this.purgeCacheTask = this.server.getScheduler()
+        .buildTask(this, () -> this.sessionStore.purgeExpired(System.currentTimeMillis() - Settings.IMP.MAIN.PURGE_CACHE_MILLIS))
+        .delay(Settings.IMP.MAIN.PURGE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
+        .repeat(Settings.IMP.MAIN.PURGE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
+        .schedule();
+
+    if (this.purgePremiumCacheTask != null) {
+      this.purgePremiumCacheTask.cancel();
+    }
+
+    this.purgePremiumCacheTask = this.server.getScheduler()
+        .buildTask(this, () -> checkCache(this.premiumCache, Settings.IMP.MAIN.PURGE_PREMIUM_CACHE_MILLIS))
+        .delay(Settings.IMP.MAIN.PURGE_PREMIUM_CACHE_MILLIS, TimeUnit.MILLISECONDS)
+        .repeat(Settings.IMP.MAIN.PURGE_PREMIUM_CACHE_MILLIS, TimeUnit.MILLISECONDS)
+        .schedule();
+
+    if (this.purgeBruteforceCacheTask != null) {
+      this.purgeBruteforceCacheTask.cancel();
+    }
+
+    this.purgeBruteforceCacheTask = this.server.getScheduler()
+        .buildTask(this, () -> checkCache(this.bruteforceCache, Settings.IMP.MAIN.PURGE_BRUTEFORCE_CACHE_MILLIS))
+        .delay(Settings.IMP.MAIN.PURGE_BRUTEFORCE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
+        .repeat(Settings.IMP.MAIN.PURGE_BRUTEFORCE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
+        .schedule();
+
+    if (this.purgeLoginContextsTask != null) {
+      this.purgeLoginContextsTask.cancel();
+    }
+
+    this.purgeLoginContextsTask = this.server.getScheduler()
+        .buildTask(this, () -> {
+          checkCache(this.loginContexts, Settings.IMP.MAIN.PURGE_LOGIN_CONTEXT_MILLIS);
+          // The players that didn't join or didn't log in within the auth time won't be counted anymore.
+          checkCache(this.joinTimes, Settings.IMP.MAIN.AUTH_TIME + Settings.IMP.MAIN.PURGE_LOGIN_CONTEXT_MILLIS);
+        })
+        .delay(Settings.IMP.MAIN.PURGE_LOGIN_CONTEXT_MILLIS, TimeUnit.MILLISECONDS)
+        .repeat(Settings.IMP.MAIN.PURGE_LOGIN_CONTEXT_MILLIS, TimeUnit.MILLISECONDS)
+        .schedule();
+
+    if (this.recountPlayersTask != null) {
+      this.recountPlayersTask.cancel();
+    }
+
+    this.recountPlayersTask = this.server.getScheduler()
+        .buildTask(this, this::recountRegisteredPlayers)
+        .repeat(Settings.IMP.DATABASE.RECOUNT_PLAYERS_MILLIS, TimeUnit.MILLISECONDS)
+        .schedule();
+
+    if (this.pollInvalidationsTask != null) {
+      this.pollInvalidationsTask.cancel();
+      this.pollInvalidationsTask = null;
+    }
+
+    if (clusterConfig.ENABLED) {
+      this.pollInvalidationsTask = this.server.getScheduler()
+          .buildTask(this, this.invalidationBus::poll)
+          .delay(clusterConfig.POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+          .repeat(clusterConfig.POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+          .schedule();
+    }
+
+    if (this.autoExportTask != null) {
+      this.autoExportTask.cancel();
+      this.autoExportTask = null;
+    }
+
+    int autoExportInterval = Settings.IMP.BACKUP.AUTO_EXPORT_INTERVAL_HOURS;
+    if (autoExportInterval > 0) {
+      this.autoExportTask = this.server.getScheduler()
+          .buildTask(this, this::autoExport)
+          .delay(autoExportInterval, TimeUnit.HOURS)
+          .repeat(autoExportInterval, TimeUnit.HOURS)
+          .schedule();
+    }
+
+    if (this.archiveTask != null) {
+      this.archiveTask.cancel();
+      this.archiveTask = null;
+    }
+
+    if (archiveConfig.ENABLED && archiveConfig.INTERVAL_HOURS > 0) {
+      this.archiveTask = this.server.getScheduler()
+          .buildTask(this, this::archiveInactivePlayers)
+          .delay(archiveConfig.INTERVAL_HOURS, TimeUnit.HOURS)
+          .repeat(archiveConfig.INTERVAL_HOURS, TimeUnit.HOURS)
+          .schedule();
+    }
+
+    eventManager.fireAndForget(new AuthPluginReloadEvent());
+  }
+
+  /**
+   * Keeps the running metrics server if its address isn't changed, the new server can't be bound to the same port before the previous one is stopped.
+   */
+  private void reloadMetricsServer() {
+    Settings.METRICS metricsConfig = Settings.IMP.METRICS;
+    List<Object> metricsServerSettings = Arrays.asList(metricsConfig.ENABLED, metricsConfig.BIND_ADDRESS, metricsConfig.PORT);
+    if (metricsServerSettings.equals(this.metricsServerSettings)) {
+      return;
+    }
+
+    if (this.metricsServer != null) {
+      this.metricsServer.stop();
+      this.metricsServer = null;
+    }
+
+    this.metricsServerSettings = metricsServerSettings;
+    if (metricsConfig.ENABLED) {
+      try {
+        this.metricsServer = new MetricsServer(METRICS, metricsConfig.BIND_ADDRESS, metricsConfig.PORT);
+        this.metricsServer.start();
+      } catch (IOException e) {
+        // The new generation is already in use, so the rest of the reload isn't interrupted.
+        this.metricsServerSettings = null;
+        LOGGER.error("Unable to start the metrics server on {}:{}", metricsConfig.BIND_ADDRESS, metricsConfig.PORT, e);
+      }
+    }
+  }
+
+  private ConnectionSource connectToDatabase(Settings.DATABASE dbConfig, String embeddedParameters) {
+    try {
+      return dbConfig.STORAGE_TYPE.connectToORM(
+          this.dataDirectoryFile.toPath().toAbsolutePath(),
+          dbConfig.HOSTNAME,
+          dbConfig.DATABASE + getConnectionParameters(dbConfig),
+          dbConfig.USER,
+          dbConfig.PASSWORD,
+          embeddedParameters
+      );
+    } catch (ReflectiveOperationException e) {
+      throw new ReflectionException(e);
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    } catch (IOException | URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private Dao<RegisteredPlayer, String> createPlayerDao(ConnectionSource connectionSource, Settings.DATABASE dbConfig, boolean convert)
+      throws SQLException {
+    DatabaseType databaseType = connectionSource.getDatabaseType();
+    DatabaseTableConfig<RegisteredPlayer> tableConfig = PlayerSchema.createTableConfig(dbConfig.STORAGE_TYPE, databaseType, dbConfig.BINARY_SCHEMA);
+    Dao<RegisteredPlayer, String> playerDao = PlayerSchema.createDao(connectionSource, tableConfig);
+    if (!playerDao.isTableExists()) {
+      TableUtils.createTable(playerDao);
+    }
+
+    // The DAO is created with the schema of the existing table, it is converted only on the proxy start.
+    boolean binarySchema = PlayerSchema.isBinary(connectionSource, tableConfig.getTableName());
+    if (binarySchema != dbConfig.BINARY_SCHEMA) {
+      tableConfig = PlayerSchema.createTableConfig(dbConfig.STORAGE_TYPE, databaseType, binarySchema);
+      playerDao = PlayerSchema.createDao(connectionSource, tableConfig);
+    }
+
+    playerDao = InstrumentedDao.wrap(playerDao);
+    this.migrateDb(playerDao);
+    if (binarySchema != dbConfig.BINARY_SCHEMA) {
+      if (!convert) {
+        LOGGER.warn("The {} table will be converted to the {} schema on the proxy start.", tableConfig.getTableName(), binarySchema ? "text" : "binary");
+        return playerDao;
+      }
+
+      // The players that can't be converted are logged, and the proxy starts with the unchanged table.
+      if (!PlayerSchema.convert(playerDao, dbConfig.STORAGE_TYPE, dbConfig.BINARY_SCHEMA)) {
+        return playerDao;
+      }
+
+      tableConfig = PlayerSchema.createTableConfig(dbConfig.STORAGE_TYPE, databaseType, dbConfig.BINARY_SCHEMA);
+      playerDao = InstrumentedDao.wrap(PlayerSchema.createDao(connectionSource, tableConfig));
+    }
+
+    return playerDao;
+  }
+
+  private static String getConnectionParameters(Settings.DATABASE dbConfig) {
+    if (!dbConfig.STATEMENT_CACHE) {
+      return dbConfig.CONNECTION_PARAMETERS;
+    }
+
+    String statementCacheParameters;
+    switch (dbConfig.STORAGE_TYPE) {
+      case MYSQL: {
+        statementCacheParameters = "cachePrepStmts=true&useServerPrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
+        break;
+      }
+      case MARIADB: {
+        statementCacheParameters = "useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250";
+        break;
+      }
+      case POSTGRESQL: {
+        // The server-side statement is created on the first execution instead of the fifth one.
+        statementCacheParameters = "prepareThreshold=1&preparedStatementCacheQueries=256";
+        break;
+      }
+      default: {
+        return dbConfig.CONNECTION_PARAMETERS;
+      }
+    }
+
+    return dbConfig.CONNECTION_PARAMETERS + (dbConfig.CONNECTION_PARAMETERS.contains("?") ? "&" : "?") + statementCacheParameters;
+  }
+
+  private static String getEmbeddedParameters(Settings.DATABASE dbConfig) {
+    Settings.DATABASE.EMBEDDED embedded = dbConfig.EMBEDDED;
+    if (!embedded.ENABLED) {
+      return "";
+    }
+
+    switch (dbConfig.STORAGE_TYPE) {
+      case SQLITE: {
+        // The SQLite driver applies the pragmas from the URL to every connection of the pool.
+        return "?journal_mode=" + (embedded.SQLITE_WAL ? "WAL" : "DELETE")
+            + "&synchronous=" + embedded.SQLITE_SYNCHRONOUS.toUpperCase(Locale.ROOT)
+            + "&busy_timeout=" + embedded.SQLITE_BUSY_TIMEOUT_MILLIS
+            + "&mmap_size=" + embedded.SQLITE_MMAP_SIZE
+            + "&cache_size=-" + embedded.CACHE_SIZE_KB;
+      }
+      case H2: {
+        return ";CACHE_SIZE=" + embedded.CACHE_SIZE_KB + (dbConfig.STATEMENT_CACHE ? ";QUERY_CACHE_SIZE=32" : "");
+      }
+      default: {
+        return "";
+      }
+    }
+  }
+
+  private VirtualWorld createAuthWorld() {
     Settings.MAIN.AUTH_COORDS authCoords = Settings.IMP.MAIN.AUTH_COORDS;
-    VirtualWorld authWorld = this.factory.createVirtualWorld(
+    return this.factory.createVirtualWorld(
         Settings.IMP.MAIN.DIMENSION,
         authCoords.X, authCoords.Y, authCoords.Z,
         (float) authCoords.YAW, (float) authCoords.PITCH
     );
+  }
+
+  private void loadWorldFile(VirtualWorld authWorld, Path path) throws IOException {
+    WorldFile file = this.factory.openWorldFile(Settings.IMP.MAIN.WORLD_FILE_TYPE, path);
+    Settings.MAIN.WORLD_COORDS coords = Settings.IMP.MAIN.WORLD_COORDS;
+    file.toWorld(this.factory, authWorld, coords.X, coords.Y, coords.Z, Settings.IMP.MAIN.WORLD_LIGHT_LEVEL);
+  }
+
+  private VirtualWorld loadWorldSnapshot(VirtualWorld authWorld, Path path) throws IOException {
+    // The block IDs are mapped by LimboAPI, so the snapshot is made again after its update.
+    String limboApiVersion = this.server.getPluginManager().getPlugin("limboapi")
+        .flatMap(plugin -> plugin.getDescription().getVersion()).orElse("");
+    Settings.MAIN.WORLD_COORDS coords = Settings.IMP.MAIN.WORLD_COORDS;
+    byte[] key = WorldSnapshot.createKey(path,
+        limboApiVersion, Settings.IMP.MAIN.WORLD_FILE_TYPE.name(), Settings.IMP.MAIN.DIMENSION.name(),
+        String.valueOf(coords.X), String.valueOf(coords.Y), String.valueOf(coords.Z), String.valueOf(Settings.IMP.MAIN.WORLD_LIGHT_LEVEL)
+    );
+
+    Path snapshotPath = path.resolveSibling(path.getFileName() + ".snapshot");
+    try {
+      if (WorldSnapshot.load(snapshotPath, key, this.factory, authWorld)) {
+        return authWorld;
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to load the world snapshot, loading the world file", e);
+      // The snapshot could be applied partially.
+      authWorld = this.createAuthWorld();
+    }
 
+    WorldSnapshot.Recorder recorder = WorldSnapshot.record(authWorld);
+    this.loadWorldFile(recorder.getWorld(), path);
+    if (recorder.getUnsupportedMethod() == null) {
+      try {
+        recorder.save(snapshotPath, key);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to save the world snapshot", e);
+      }
+    } else {
+      LOGGER.info("The world snapshot isn't saved, as the world file is loaded with {}, which changes can't be saved.", recorder.getUnsupportedMethod());
+    }
+
+    return authWorld;
+  }
+
+  private Limbo createAuthServer() {
+    VirtualWorld authWorld = this.createAuthWorld();
     if (Settings.IMP.MAIN.LOAD_WORLD) {
       try {
         Path path = this.dataDirectory.resolve(Settings.IMP.MAIN.WORLD_FILE_PATH);
-        WorldFile file = this.factory.openWorldFile(Settings.IMP.MAIN.WORLD_FILE_TYPE, path);
-
-        Settings.MAIN.WORLD_COORDS coords = Settings.IMP.MAIN.WORLD_COORDS;
-        file.toWorld(this.factory, authWorld, coords.X, coords.Y, coords.Z, Settings.IMP.MAIN.WORLD_LIGHT_LEVEL);
+        if (Settings.IMP.MAIN.WORLD_SNAPSHOT) {
+          authWorld = this.loadWorldSnapshot(authWorld, path);
+        } else {
+          this.loadWorldFile(authWorld, path);
+        }
       } catch (IOException e) {
         throw new IllegalArgumentException(e);
       }
     }
 
-    if (this.authServer != null) {
-      this.authServer.dispose();
-    }
-
-    this.authServer = this.factory
+    Limbo authServer = this.factory
         .createLimbo(authWorld)
         .setName("LimboAuth")
         .setWorldTime(Settings.IMP.MAIN.WORLD_TICKS)
@@ -383,51 +909,104 @@ public class LimboAuth {
         .registerCommand(new LimboCommandMeta(this.filterCommands(Settings.IMP.MAIN.LOGIN_COMMAND)));
 
     if (Settings.IMP.MAIN.ENABLE_TOTP) {
-      this.authServer.registerCommand(new LimboCommandMeta(this.filterCommands(Settings.IMP.MAIN.TOTP_COMMAND)));
+      authServer.registerCommand(new LimboCommandMeta(this.filterCommands(Settings.IMP.MAIN.TOTP_COMMAND)));
     }
 
-    EventManager eventManager = this.server.getEventManager();
-    eventManager.unregisterListeners(this);
-    eventManager.register(this, new AuthListener(this, this.playerDao, this.floodgateApi));
+    return authServer;
+  }
 
-    if (this.purgeCacheTask != null) {
-      this.purgeCacheTask.cancel();
+  /**
+   * Returns the current generation, that won't be closed until {@link AuthGeneration#release()} is called.
+   */
+  private AuthGeneration acquireGeneration() {
+    while (true) {
+      AuthGeneration generation = this.generation;
+      if (generation.tryAcquire()) {
+        return generation;
+      }
+
+      // The generation was closed after the reload, the next read returns the new one.
     }
+  }
 
-    this.purgeCacheTask = this.server.getScheduler()
-        .buildTask(this, () -> this.checkCache(this.cachedAuthChecks, Settings.IMP.MAIN.PURGE_CACHE_MILLIS))
-        .delay(Settings.IMP.MAIN.PURGE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
-        .repeat(Settings.IMP.MAIN.PURGE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
+  /**
+   * The retired generation is closed after the last player leaves its limbo, and the import, export or restore using it finishes.
+   * The players, that are still in the limbo after the auth time (e.g. waiting for a PostAuthorizationEvent listener), are disconnected,
+   * so the generation isn't kept open by them.
+   */
+  private void retireGeneration(AuthGeneration generation) {
+    generation.release();
+    this.server.getScheduler()
+        .buildTask(this, () -> generation.disconnectPlayers(getSerializer().deserialize(Settings.IMP.MAIN.STRINGS.TIMES_UP)))
+        .delay(Settings.IMP.MAIN.AUTH_TIME * 2L, TimeUnit.MILLISECONDS)
         .schedule();
+  }
 
-    if (this.purgePremiumCacheTask != null) {
-      this.purgePremiumCacheTask.cancel();
+  private void autoExport() {
+    if (!this.startDatabaseTask()) {
+      LOGGER.warn("Skipping the automatic export, another import, export or restore is running.");
+      return;
     }
 
-    this.purgePremiumCacheTask = this.server.getScheduler()
-        .buildTask(this, () -> this.checkCache(this.premiumCache, Settings.IMP.MAIN.PURGE_PREMIUM_CACHE_MILLIS))
-        .delay(Settings.IMP.MAIN.PURGE_PREMIUM_CACHE_MILLIS, TimeUnit.MILLISECONDS)
-        .repeat(Settings.IMP.MAIN.PURGE_PREMIUM_CACHE_MILLIS, TimeUnit.MILLISECONDS)
-        .schedule();
-
-    if (this.purgeBruteforceCacheTask != null) {
-      this.purgeBruteforceCacheTask.cancel();
+    try {
+      Path directory = this.getBackupDirectory();
+      BackupFormat format = Settings.IMP.BACKUP.FORMAT;
+      Path file = PlayerBackup.getBackupFile(directory, AUTO_EXPORT_PREFIX, format);
+      long exported = new PlayerBackup(this.playerDao).exportPlayers(file, format, ProgressListener.NONE);
+      LOGGER.info("Exported {} players to {}", exported, file.getFileName());
+
+      int keep = Settings.IMP.BACKUP.AUTO_EXPORT_KEEP;
+      if (keep > 0) {
+        PlayerBackup.deleteOldBackups(directory, AUTO_EXPORT_PREFIX, keep);
+      }
+    } catch (Throwable e) {
+      LOGGER.error("Unable to export players", e);
+    } finally {
+      this.finishDatabaseTask();
     }
+  }
 
-    this.purgeBruteforceCacheTask = this.server.getScheduler()
-        .buildTask(this, () -> this.checkCache(this.bruteforceCache, Settings.IMP.MAIN.PURGE_BRUTEFORCE_CACHE_MILLIS))
-        .delay(Settings.IMP.MAIN.PURGE_BRUTEFORCE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
-        .repeat(Settings.IMP.MAIN.PURGE_BRUTEFORCE_CACHE_MILLIS, TimeUnit.MILLISECONDS)
-        .schedule();
+  private void archiveInactivePlayers() {
+    if (!this.startDatabaseTask()) {
+      LOGGER.warn("Skipping the inactive players archival, another import, export or restore is running.");
+      return;
+    }
 
-    eventManager.fireAndForget(new AuthPluginReloadEvent());
+    try {
+      Settings.ARCHIVE archiveConfig = Settings.IMP.ARCHIVE;
+      long inactiveBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(archiveConfig.INACTIVE_DAYS);
+      long archived = this.playerArchive.archive(inactiveBefore, archiveConfig.DELETE, archiveConfig.BATCH_SIZE, archiveConfig.BATCH_DELAY_MILLIS);
+      LOGGER.info("{} {} inactive players", archiveConfig.DELETE ? "Deleted" : "Archived", archived);
+      if (archived != 0) {
+        this.registeredPlayerCount.recount();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      LOGGER.error("Unable to archive inactive players", e);
+    } finally {
+      this.finishDatabaseTask();
+    }
   }
 
   private List<String> filterCommands(List<String> commands) {
     return commands.stream().filter(command -> command.startsWith("/")).map(command -> command.substring(1)).collect(Collectors.toList());
   }
 
-  private void checkCache(Map<?, ? extends CachedUser> userMap, long time) {
+  private static List<Object> getPremiumSettings() {
+    Settings.MAIN main = Settings.IMP.MAIN;
+    return Arrays.asList(
+        main.FORCE_OFFLINE_MODE, main.CHECK_PREMIUM_PRIORITY_INTERNAL, main.ISPREMIUM_AUTH_URL,
+        main.STATUS_CODE_USER_EXISTS, main.STATUS_CODE_USER_NOT_EXISTS, main.STATUS_CODE_RATE_LIMIT,
+        main.USER_EXISTS_JSON_VALIDATOR_FIELDS, main.JSON_UUID_FIELD, main.USER_NOT_EXISTS_JSON_VALIDATOR_FIELDS
+    );
+  }
+
+  private static List<Object> getSessionSettings() {
+    return Arrays.asList(Settings.IMP.SESSIONS.STORAGE_TYPE, Settings.IMP.SESSIONS.NEAR_CACHE_MILLIS);
+  }
+
+  static void checkCache(Map<?, ? extends CachedUser> userMap, long time) {
     userMap.entrySet().stream()
         .filter(userEntry -> userEntry.getValue().getCheckTime() + time <= System.currentTimeMillis())
         .map(Map.Entry::getKey)
@@ -504,25 +1083,114 @@ public class LimboAuth {
   }
 
   public void cacheAuthUser(Player player) {
-    String username = player.getUsername();
-    String lowercaseUsername = username.toLowerCase(Locale.ROOT);
-    this.cachedAuthChecks.put(lowercaseUsername, new CachedSessionUser(System.currentTimeMillis(), player.getRemoteAddress().getAddress(), username));
+    String ip = player.getRemoteAddress().getAddress().getHostAddress();
+    this.sessionStore.save(new AuthSession(player.getUsername(), ip, System.currentTimeMillis()).sign(Settings.IMP.SESSIONS.SIGNING_KEY));
   }
 
   public void removePlayerFromCache(String username) {
-    this.cachedAuthChecks.remove(username.toLowerCase(Locale.ROOT));
-    this.premiumCache.remove(username.toLowerCase(Locale.ROOT));
+    String lowercaseUsername = username.toLowerCase(Locale.ROOT);
+    this.sessionStore.remove(lowercaseUsername);
+    this.premiumCache.remove(lowercaseUsername);
+    this.loginContexts.remove(lowercaseUsername);
+    this.invalidationBus.publish(lowercaseUsername);
+  }
+
+  /**
+   * Drops the cached data of the account that was changed on another proxy.
+   */
+  private void invalidateLocalCaches(String lowercaseUsername) {
+    this.sessionStore.invalidate(lowercaseUsername);
+    this.premiumCache.remove(lowercaseUsername);
+    this.loginContexts.remove(lowercaseUsername);
+  }
+
+  /**
+   * Starts fetching the account on the pre-login stage, so the query runs while the client authenticates with Mojang.
+   * The result is reused by {@link #isPremiumInternal(String)}, the game profile request and {@link #authPlayer(Player)}.
+   */
+  public void prefetchPlayerInfo(String nickname) {
+    String lowercaseNickname = nickname.toLowerCase(Locale.ROOT);
+    CompletableFuture<RegisteredPlayer> future = CompletableFuture.supplyAsync(
+        () -> AuthSessionHandler.fetchInfo(this.playerRepository, lowercaseNickname),
+        this.blockingExecutor
+    );
+    this.loginContexts.put(lowercaseNickname, new LoginContext(System.currentTimeMillis(), future));
+  }
+
+  /**
+   * Returns the account fetched on the pre-login stage, the returned future completes with null if the player is not registered.
+   *
+   * @return null if the account wasn't prefetched or the prefetched account is no longer up to date
+   */
+  @Nullable
+  public CompletableFuture<RegisteredPlayer> getPrefetchedPlayerInfo(String nickname) {
+    LoginContext context = this.loginContexts.get(nickname.toLowerCase(Locale.ROOT));
+    return context == null ? null : context.getPlayerInfo();
+  }
+
+  public void removePrefetchedPlayerInfo(String nickname) {
+    this.loginContexts.remove(nickname.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Starts measuring the join on the pre-login stage, the join is finished with {@link #stopJoinTimer(String, String)}.
+   */
+  public void startJoinTimer(String nickname) {
+    this.joinTimes.put(nickname.toLowerCase(Locale.ROOT), new CachedUser(System.currentTimeMillis()));
+  }
+
+  /**
+   * Records the time from the pre-login stage until the player is sent to the server.
+   *
+   * @param path "limbo" if the player was logged in the auth limbo, "bypass" if the auth was skipped and "session" if the session was reused
+   */
+  public void stopJoinTimer(String nickname, String path) {
+    CachedUser joinTime = this.joinTimes.remove(nickname.toLowerCase(Locale.ROOT));
+    if (joinTime != null) {
+      METRICS.histogram("limboauth_join_seconds", "Time from the pre-login stage until the player is sent to the server.", Map.of("path", path))
+          .observe((System.currentTimeMillis() - joinTime.getCheckTime()) / 1000.0);
+    }
+  }
+
+  public void removeJoinTimer(String nickname) {
+    this.joinTimes.remove(nickname.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Takes the account fetched on the pre-login stage, or fetches it if there is no such account.
+   * The context is removed, as the session handler modifies the returned object.
+   */
+  private RegisteredPlayer takePlayerInfo(String nickname) {
+    LoginContext context = this.loginContexts.remove(nickname.toLowerCase(Locale.ROOT));
+    if (context != null) {
+      try {
+        RegisteredPlayer registeredPlayer = context.getPlayerInfo().join();
+        PREFETCH_HITS.increment();
+        return registeredPlayer;
+      } catch (CompletionException e) {
+        // The query will be retried below, and will throw the exception if the database is still unavailable.
+        LOGGER.warn("Unable to prefetch the account of {}.", nickname, e.getCause());
+      }
+    }
+
+    PREFETCH_MISSES.increment();
+    return AuthSessionHandler.fetchInfo(this.playerRepository, nickname);
   }
 
   public boolean needAuth(Player player) {
     String username = player.getUsername();
-    String lowercaseUsername = username.toLowerCase(Locale.ROOT);
-    if (!this.cachedAuthChecks.containsKey(lowercaseUsername)) {
-      return true;
+    AuthSession session = this.sessionStore.find(username.toLowerCase(Locale.ROOT));
+    boolean needAuth;
+    if (session == null || session.isExpired(Settings.IMP.MAIN.PURGE_CACHE_MILLIS)) {
+      needAuth = true;
     } else {
-      CachedSessionUser sessionUser = this.cachedAuthChecks.get(lowercaseUsername);
-      return !sessionUser.getInetAddress().equals(player.getRemoteAddress().getAddress()) || !sessionUser.getUsername().equals(username);
+      needAuth = !session.getIP().equals(player.getRemoteAddress().getAddress().getHostAddress())
+          || !session.getNickname().equals(username)
+          || !session.verify(Settings.IMP.SESSIONS.SIGNING_KEY);
     }
+
+    (needAuth ? SESSION_CACHE_MISSES : SESSION_CACHE_HITS).increment();
+    return needAuth;
   }
 
   public void authPlayer(Player player) {
@@ -533,6 +1201,7 @@ public class LimboAuth {
     }
 
     if (this.getBruteforceAttempts(player.getRemoteAddress().getAddress()) >= Settings.IMP.MAIN.BRUTEFORCE_MAX_ATTEMPTS) {
+      BRUTEFORCE_KICKS.increment();
       player.disconnect(this.bruteforceAttemptKick);
       return;
     }
@@ -543,7 +1212,7 @@ public class LimboAuth {
       return;
     }
 
-    RegisteredPlayer registeredPlayer = AuthSessionHandler.fetchInfo(this.playerDao, nickname);
+    RegisteredPlayer registeredPlayer = this.takePlayerInfo(nickname);
 
     boolean onlineMode = player.isOnlineMode();
     TaskEvent.Result result = TaskEvent.Result.NORMAL;
@@ -551,11 +1220,11 @@ public class LimboAuth {
     if (onlineMode || isFloodgate) {
       if (registeredPlayer == null || registeredPlayer.getHash().isEmpty()) {
         RegisteredPlayer nicknameRegisteredPlayer = registeredPlayer;
-        registeredPlayer = AuthSessionHandler.fetchInfo(this.playerDao, player.getUniqueId());
+        registeredPlayer = AuthSessionHandler.fetchInfo(this.playerRepository, player.getUniqueId());
 
         if (nicknameRegisteredPlayer != null && registeredPlayer == null && nicknameRegisteredPlayer.getHash().isEmpty()) {
           registeredPlayer = nicknameRegisteredPlayer;
-          registeredPlayer.setPremiumUuid(player.getUniqueId().toString());
+          registeredPlayer.setPremiumUuid(player.getUniqueId());
           try {
             this.playerDao.update(registeredPlayer);
           } catch (SQLException e) {
@@ -568,6 +1237,7 @@ public class LimboAuth {
 
           try {
             this.playerDao.create(registeredPlayer);
+            this.registeredPlayerCount.increment();
           } catch (SQLException e) {
             throw new SQLRuntimeException(e);
           }
@@ -607,10 +1277,10 @@ public class LimboAuth {
       }
 
       Consumer<TaskEvent> eventConsumer = (event) -> this.sendPlayer(event, null);
-      eventManager.fire(new PreRegisterEvent(eventConsumer, result, player)).thenAcceptAsync(eventConsumer);
+      eventManager.fire(new PreRegisterEvent(eventConsumer, result, player)).thenAcceptAsync(TaskEvent::dispatched);
     } else {
       Consumer<TaskEvent> eventConsumer = (event) -> this.sendPlayer(event, ((PreAuthorizationEvent) event).getPlayerInfo());
-      eventManager.fire(new PreAuthorizationEvent(eventConsumer, result, player, registeredPlayer)).thenAcceptAsync(eventConsumer);
+      eventManager.fire(new PreAuthorizationEvent(eventConsumer, result, player, registeredPlayer)).thenAcceptAsync(TaskEvent::dispatched);
     }
   }
 
@@ -621,6 +1291,7 @@ public class LimboAuth {
       case BYPASS: {
         this.factory.passLoginLimbo(player);
         this.cacheAuthUser(player);
+        this.stopJoinTimer(player.getUsername(), "bypass");
         try {
           this.updateLoginData(player);
         } catch (SQLException e) {
@@ -637,7 +1308,10 @@ public class LimboAuth {
       }
       case NORMAL:
       default: {
-        this.authServer.spawnPlayer(player, new AuthSessionHandler(this.playerDao, player, this, registeredPlayer));
+        AuthGeneration generation = this.acquireGeneration();
+        generation.addPlayer(player);
+        AuthSessionHandler handler = new AuthSessionHandler(generation.getPlayerDao(), player, this, registeredPlayer, () -> generation.release(player));
+        generation.getAuthServer().spawnPlayer(player, handler);
         break;
       }
     }
@@ -645,20 +1319,11 @@ public class LimboAuth {
 
   public void updateLoginData(Player player) throws SQLException {
     String lowercaseNickname = player.getUsername().toLowerCase(Locale.ROOT);
-    UpdateBuilder<RegisteredPlayer, String> updateBuilder = this.playerDao.updateBuilder();
-    updateBuilder.where().eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, lowercaseNickname);
-    updateBuilder.updateColumnValue(RegisteredPlayer.LOGIN_IP_FIELD, player.getRemoteAddress().getAddress().getHostAddress());
-    updateBuilder.updateColumnValue(RegisteredPlayer.LOGIN_DATE_FIELD, System.currentTimeMillis());
-    updateBuilder.update();
+    this.playerRepository.updateLoginData(lowercaseNickname, player.getRemoteAddress().getAddress().getHostAddress(), System.currentTimeMillis());
 
     if (Settings.IMP.MAIN.MOD.ENABLED) {
-      byte[] lowercaseNicknameSerialized = lowercaseNickname.getBytes(StandardCharsets.UTF_8);
       long issueTime = System.currentTimeMillis();
-      long hash = SipHasher.init(Settings.IMP.MAIN.MOD.VERIFY_KEY)
-          .update(lowercaseNicknameSerialized)
-          .update(Longs.toByteArray(issueTime))
-          .digest();
-
+      long hash = AuthSessionHandler.getModTokenHash(lowercaseNickname, issueTime);
       player.sendPluginMessage(this.getChannelIdentifier(player), Bytes.concat(Longs.toByteArray(issueTime), Longs.toByteArray(hash)));
     }
   }
@@ -696,6 +1361,7 @@ public class LimboAuth {
       int statusCode = response.statusCode();
 
       if (Settings.IMP.MAIN.STATUS_CODE_RATE_LIMIT.contains(statusCode)) {
+        PREMIUM_API_RATE_LIMITED.increment();
         return new PremiumResponse(PremiumState.RATE_LIMIT);
       }
 
@@ -719,30 +1385,30 @@ public class LimboAuth {
   }
 
   public PremiumResponse isPremiumInternal(String nickname) {
-    try {
-      QueryBuilder<RegisteredPlayer, String> crackedCountQuery = this.playerDao.queryBuilder();
-      crackedCountQuery.where()
-          .eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, nickname)
-          .and()
-          .ne(RegisteredPlayer.HASH_FIELD, "");
-      crackedCountQuery.setCountOf(true);
-
-      QueryBuilder<RegisteredPlayer, String> premiumCountQuery = this.playerDao.queryBuilder();
-      premiumCountQuery.where()
-          .eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, nickname)
-          .and()
-          .eq(RegisteredPlayer.HASH_FIELD, "");
-      premiumCountQuery.setCountOf(true);
-
-      if (this.playerDao.countOf(crackedCountQuery.prepare()) != 0) {
-        return new PremiumResponse(PremiumState.CRACKED);
+    CompletableFuture<RegisteredPlayer> prefetched = this.getPrefetchedPlayerInfo(nickname);
+    // The pre-login check starts after the prefetch is done, the other callers don't wait for it on a pool thread and query the database instead.
+    if (prefetched != null && prefetched.isDone()) {
+      try {
+        RegisteredPlayer registeredPlayer = prefetched.join();
+        if (registeredPlayer == null) {
+          return new PremiumResponse(PremiumState.UNKNOWN);
+        }
+
+        return new PremiumResponse(registeredPlayer.getHash().isEmpty() ? PremiumState.PREMIUM : PremiumState.CRACKED);
+      } catch (CompletionException e) {
+        LOGGER.error("Unable to check if account is premium.", e.getCause());
+        return new PremiumResponse(PremiumState.ERROR);
       }
+    }
 
-      if (this.playerDao.countOf(premiumCountQuery.prepare()) != 0) {
-        return new PremiumResponse(PremiumState.PREMIUM);
+    try {
+      // One query for the hash instead of counting the cracked and the premium accounts separately.
+      String hash = this.playerRepository.findHash(nickname);
+      if (hash == null) {
+        return new PremiumResponse(PremiumState.UNKNOWN);
       }
 
-      return new PremiumResponse(PremiumState.UNKNOWN);
+      return new PremiumResponse(hash.isEmpty() ? PremiumState.PREMIUM : PremiumState.CRACKED);
     } catch (SQLException e) {
       LOGGER.error("Unable to check if account is premium.", e);
       return new PremiumResponse(PremiumState.ERROR);
@@ -751,14 +1417,7 @@ public class LimboAuth {
 
   public boolean isPremiumUuid(UUID uuid) {
     try {
-      QueryBuilder<RegisteredPlayer, String> premiumCountQuery = this.playerDao.queryBuilder();
-      premiumCountQuery.where()
-          .eq(RegisteredPlayer.PREMIUM_UUID_FIELD, uuid.toString())
-          .and()
-          .eq(RegisteredPlayer.HASH_FIELD, "");
-      premiumCountQuery.setCountOf(true);
-
-      return this.playerDao.countOf(premiumCountQuery.prepare()) != 0;
+      return this.playerRepository.isPremiumUuid(uuid);
     } catch (SQLException e) {
       LOGGER.error("Unable to check if account is premium.", e);
       return false;
@@ -768,10 +1427,14 @@ public class LimboAuth {
   @SafeVarargs
   private boolean checkIsPremiumAndCache(String nickname, Function<String, PremiumResponse>... functions) {
     String lowercaseNickname = nickname.toLowerCase(Locale.ROOT);
-    if (this.premiumCache.containsKey(lowercaseNickname)) {
-      return this.premiumCache.get(lowercaseNickname).isPremium();
+    CachedPremiumUser cachedUser = this.premiumCache.get(lowercaseNickname);
+    if (cachedUser != null) {
+      PREMIUM_CACHE_HITS.increment();
+      return cachedUser.isPremium();
     }
 
+    PREMIUM_CACHE_MISSES.increment();
+
     boolean premium = false;
     boolean unknown = false;
     boolean wasRateLimited = false;
@@ -841,13 +1504,35 @@ public class LimboAuth {
       return false;
     } else {
       if (Settings.IMP.MAIN.CHECK_PREMIUM_PRIORITY_INTERNAL) {
-        return checkIsPremiumAndCache(nickname, this::isPremiumInternal, this::isPremiumExternal);
+        return checkIsPremiumAndCache(nickname, this::timedIsPremiumInternal, this::timedIsPremiumExternal);
       } else {
-        return checkIsPremiumAndCache(nickname, this::isPremiumExternal, this::isPremiumInternal);
+        return checkIsPremiumAndCache(nickname, this::timedIsPremiumExternal, this::timedIsPremiumInternal);
       }
     }
   }
 
+  private PremiumResponse timedIsPremiumInternal(String nickname) {
+    return timePremiumCheck(nickname, "internal", INTERNAL_PREMIUM_CHECK_TIME, this::isPremiumInternal);
+  }
+
+  private PremiumResponse timedIsPremiumExternal(String nickname) {
+    return timePremiumCheck(nickname, "external", EXTERNAL_PREMIUM_CHECK_TIME, this::isPremiumExternal);
+  }
+
+  private static PremiumResponse timePremiumCheck(String nickname, String source, Histogram histogram, Function<String, PremiumResponse> check) {
+    PremiumCheckEvent event = new PremiumCheckEvent();
+    event.begin();
+    long startTime = System.nanoTime();
+    PremiumResponse response = null;
+    try {
+      response = check.apply(nickname);
+      return response;
+    } finally {
+      histogram.observeNanos(System.nanoTime() - startTime);
+      event.finish(nickname, source, response == null ? "EXCEPTION" : response.getState().name());
+    }
+  }
+
   public void incrementBruteforceAttempts(InetAddress address) {
     this.getBruteforceUser(address).incrementAttempts();
   }
@@ -894,6 +1579,38 @@ public class LimboAuth {
     return this.server;
   }
 
+  public Path getDataDirectory() {
+    return this.dataDirectory;
+  }
+
+  public Path getBackupDirectory() throws IOException {
+    Path directory = this.dataDirectory.resolve(Settings.IMP.BACKUP.DIRECTORY);
+    Files.createDirectories(directory);
+    return directory;
+  }
+
+  /**
+   * Only one import, export or restore can be run at the same time.
+   *
+   * @return false if another task is running
+   */
+  public boolean startDatabaseTask() {
+    AuthGeneration generation = this.acquireGeneration();
+    if (this.databaseTaskGeneration.compareAndSet(null, generation)) {
+      return true;
+    }
+
+    generation.release();
+    return false;
+  }
+
+  public void finishDatabaseTask() {
+    AuthGeneration generation = this.databaseTaskGeneration.getAndSet(null);
+    if (generation != null) {
+      generation.release();
+    }
+  }
+
   public ConnectionSource getConnectionSource() {
     return this.connectionSource;
   }
@@ -902,6 +1619,31 @@ public class LimboAuth {
     return this.playerDao;
   }
 
+  /**
+   * @return the SQLite single writer of the current database, or null if it is disabled
+   */
+  @Nullable
+  public SingleWriter getSingleWriter() {
+    AuthGeneration generation = this.generation;
+    return generation == null ? null : generation.getSingleWriter();
+  }
+
+  public PlayerRepository getPlayerRepository() {
+    return this.playerRepository;
+  }
+
+  public RegisteredPlayerCount getRegisteredPlayerCount() {
+    return this.registeredPlayerCount;
+  }
+
+  public void recountRegisteredPlayers() {
+    try {
+      this.registeredPlayerCount.recount();
+    } catch (SQLRuntimeException e) {
+      LOGGER.error("Unable to count the registered players.", e);
+    }
+  }
+
   private static void setLogger(Logger logger) {
     LOGGER = logger;
   }
@@ -914,6 +1656,14 @@ public class LimboAuth {
     return SERIALIZER;
   }
 
+  public static Logger getLogger() {
+    return LOGGER;
+  }
+
+  public static MetricsRegistry getMetrics() {
+    return METRICS;
+  }
+
   public Limbo getAuthServer() {
     return this.authServer;
   }
@@ -922,7 +1672,18 @@ public class LimboAuth {
     return this.nicknameValidationPattern;
   }
 
-  private static class CachedUser {
+  public HashVerificationQueue getHashVerificationQueue() {
+    return this.hashVerificationQueue;
+  }
+
+  /**
+   * Runs the blocking database queries and premium checks, on virtual threads if they are supported and enabled.
+   */
+  public ExecutorService getBlockingExecutor() {
+    return this.blockingExecutor;
+  }
+
+  static class CachedUser {
 
     private final long checkTime;
 
@@ -935,39 +1696,140 @@ public class LimboAuth {
     }
   }
 
-  private static class CachedSessionUser extends CachedUser {
+  static class CachedPremiumUser extends CachedUser {
 
-    private final InetAddress inetAddress;
-    private final String username;
+    private final boolean premium;
 
-    public CachedSessionUser(long checkTime, InetAddress inetAddress, String username) {
+    public CachedPremiumUser(long checkTime, boolean premium) {
       super(checkTime);
 
-      this.inetAddress = inetAddress;
-      this.username = username;
+      this.premium = premium;
+    }
+
+    public boolean isPremium() {
+      return this.premium;
     }
+  }
+
+  private static class LoginContext extends CachedUser {
+
+    private final CompletableFuture<RegisteredPlayer> playerInfo;
 
-    public InetAddress getInetAddress() {
-      return this.inetAddress;
+    public LoginContext(long checkTime, CompletableFuture<RegisteredPlayer> playerInfo) {
+      super(checkTime);
+
+      this.playerInfo = playerInfo;
     }
 
-    public String getUsername() {
-      return this.username;
+    public CompletableFuture<RegisteredPlayer> getPlayerInfo() {
+      return this.playerInfo;
     }
   }
 
-  private static class CachedPremiumUser extends CachedUser {
+  /**
+   * The database connection and the auth limbo of one reload.
+   * The players in the limbo keep using the generation they were spawned with, so it is closed only after they leave.
+   */
+  private static class AuthGeneration {
+
+    private final String databaseKey;
+    private final ConnectionSource connectionSource;
+    private final Dao<RegisteredPlayer, String> playerDao;
+    private final SingleWriter singleWriter;
+    private final Limbo authServer;
+    // The plugin holds one reference until the generation is retired.
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Set<Player> players = ConcurrentHashMap.newKeySet();
+    private volatile boolean ownsConnectionSource = true;
+
+    public AuthGeneration(String databaseKey, ConnectionSource connectionSource, Dao<RegisteredPlayer, String> playerDao,
+        SingleWriter singleWriter, Limbo authServer) {
+      this.databaseKey = databaseKey;
+      this.connectionSource = connectionSource;
+      this.playerDao = playerDao;
+      this.singleWriter = singleWriter;
+      this.authServer = authServer;
+    }
 
-    private final boolean premium;
+    public boolean tryAcquire() {
+      int current;
+      do {
+        current = this.references.get();
+        if (current == 0) {
+          return false;
+        }
+      } while (!this.references.compareAndSet(current, current + 1));
 
-    public CachedPremiumUser(long checkTime, boolean premium) {
-      super(checkTime);
+      return true;
+    }
 
-      this.premium = premium;
+    public void release() {
+      if (this.references.decrementAndGet() == 0) {
+        this.close();
+      }
     }
 
-    public boolean isPremium() {
-      return this.premium;
+    /**
+     * Releases the reference of the player, that has left the limbo.
+     */
+    public void release(Player player) {
+      this.players.remove(player);
+      this.release();
+    }
+
+    /**
+     * Tracks the player, that holds a reference, so they can be disconnected after the generation is retired.
+     */
+    public void addPlayer(Player player) {
+      this.players.add(player);
+    }
+
+    /**
+     * The generation is closed after the disconnected players leave the limbo and release it.
+     */
+    public void disconnectPlayers(Component reason) {
+      this.players.forEach(player -> player.disconnect(reason));
+    }
+
+    /**
+     * Leaves the connection source open on close, as the next generation uses the same connection source.
+     */
+    public void transferConnectionSource() {
+      this.ownsConnectionSource = false;
+    }
+
+    private void close() {
+      if (this.closed.compareAndSet(false, true)) {
+        this.authServer.dispose();
+        if (this.ownsConnectionSource) {
+          if (this.singleWriter != null) {
+            this.singleWriter.shutdown();
+          }
+
+          this.connectionSource.closeQuietly();
+        }
+      }
+    }
+
+    public String getDatabaseKey() {
+      return this.databaseKey;
+    }
+
+    public ConnectionSource getConnectionSource() {
+      return this.connectionSource;
+    }
+
+    public Dao<RegisteredPlayer, String> getPlayerDao() {
+      return this.playerDao;
+    }
+
+    public SingleWriter getSingleWriter() {
+      return this.singleWriter;
+    }
+
+    public Limbo getAuthServer() {
+      return this.authServer;
     }
   }
 
@@ -31,7 +31,10 @@ import net.elytrium.limboapi.api.file.BuiltInWorldFileType;
 import net.elytrium.limboapi.api.player.GameMode;
 import net.elytrium.limboauth.command.CommandPermissionState;
 import net.elytrium.limboauth.dependencies.DatabaseLibrary;
+import net.elytrium.limboauth.event.TaskEvent;
 import net.elytrium.limboauth.migration.MigrationHash;
+import net.elytrium.limboauth.session.SessionStorageType;
+import net.elytrium.limboauth.storage.BackupFormat;
 import net.kyori.adventure.bossbar.BossBar;
 import net.kyori.adventure.title.Title;
 import net.kyori.adventure.util.Ticks;
@@ -127,6 +130,8 @@ public class Settings extends YamlConfig {
         "SHA512_NLOGIN - SHA512(SHA512(password) + salt) that looks like $SHA$hash$salt (nLogin)",
         "CRC32C - Basic CRC32C hash",
         "PLAINTEXT - Plain text",
+        "AUTO - Detects the format of every hash and checks it only with the matching algorithms above (except PLAINTEXT),",
+        "       use it if your database contains hashes from several plugins",
     })
     public MigrationHash MIGRATION_HASH = MigrationHash.AUTHME;
     @Comment("Available dimensions: OVERWORLD, NETHER, THE_END")
@@ -134,12 +139,28 @@ public class Settings extends YamlConfig {
     public long PURGE_CACHE_MILLIS = 3600000;
     public long PURGE_PREMIUM_CACHE_MILLIS = 28800000;
     public long PURGE_BRUTEFORCE_CACHE_MILLIS = 28800000;
+    @Comment("How long the account fetched on the pre-login stage is kept if the player doesn't finish logging in")
+    public long PURGE_LOGIN_CONTEXT_MILLIS = 60000;
     @Comment("Used to ban IPs when a possible attacker incorrectly enters the password")
     public int BRUTEFORCE_MAX_ATTEMPTS = 10;
     @Comment("QR Generator URL, set {data} placeholder")
     public String QR_GENERATOR_URL = "https://api.qrserver.com/v1/create-qr-code/?data={data}&size=200x200&ecc=M&margin=30";
     public String TOTP_ISSUER = "LimboAuth by Elytrium";
     public int BCRYPT_COST = 10;
+    @Comment({
+        "How many passwords can be verified at the same time, set to 0 to use the amount of available processors.",
+        "Other login attempts are queued fairly per IP address, the time spent in the queue is added to the auth-time.",
+        "Login attempts that would wait in the queue longer than the auth time the player has left are rejected with the login-queue-overloaded message."
+    })
+    public int MAX_CONCURRENT_HASH_VERIFICATIONS = 0;
+    @Comment({
+        "Run the database queries, the premium checks and the password verifications on virtual threads, if the proxy runs on Java 21 or newer.",
+        "A virtual thread waiting for the database or the premium API doesn't occupy a platform thread, so there is no pool size to tune.",
+        "On the older Java versions, or if disabled, they are run by a pool of blocking-threads platform threads."
+    })
+    public boolean VIRTUAL_THREADS = true;
+    @Comment("Size of the platform thread pool, set to 0 to use 4 threads per available processor.")
+    public int BLOCKING_THREADS = 0;
     public int LOGIN_ATTEMPTS = 3;
     public int IP_LIMIT_REGISTRATIONS = 3;
     public int TOTP_RECOVERY_CODES_AMOUNT = 16;
@@ -162,6 +183,11 @@ public class Settings extends YamlConfig {
     })
     public BuiltInWorldFileType WORLD_FILE_TYPE = BuiltInWorldFileType.STRUCTURE;
     public String WORLD_FILE_PATH = "world.nbt";
+    @Comment({
+        "Saves the loaded world next to the world file (world file path + .snapshot),",
+        "so the unchanged world file isn't parsed again on the startup and the reload"
+    })
+    public boolean WORLD_SNAPSHOT = true;
     public boolean DISABLE_FALLING = true;
 
     @Comment("World time in ticks (24000 ticks == 1 in-game day)")
@@ -328,6 +354,14 @@ public class Settings extends YamlConfig {
       public CommandPermissionState FORCE_UNREGISTER = CommandPermissionState.PERMISSION;
       @Comment("Permission: limboauth.admin.reload")
       public CommandPermissionState RELOAD = CommandPermissionState.PERMISSION;
+      @Comment("Permission: limboauth.admin.import")
+      public CommandPermissionState IMPORT = CommandPermissionState.PERMISSION;
+      @Comment("Permission: limboauth.admin.export")
+      public CommandPermissionState EXPORT = CommandPermissionState.PERMISSION;
+      @Comment("Permission: limboauth.admin.restore")
+      public CommandPermissionState RESTORE = CommandPermissionState.PERMISSION;
+      @Comment("Permission: limboauth.admin.stats")
+      public CommandPermissionState STATS = CommandPermissionState.PERMISSION;
       @Comment("Permission: limboauth.admin.help")
       public CommandPermissionState HELP = CommandPermissionState.TRUE;
     }
@@ -351,6 +385,25 @@ public class Settings extends YamlConfig {
     public static class STRINGS {
 
       public String RELOAD = "{PRFX} &aReloaded successfully!";
+      public String IMPORT_USAGE = "{PRFX} Usage: &6/limboauth import <authme|nlogin|jpremium> [offset]";
+      public String DATABASE_TASK_RUNNING = "{PRFX} &cAnother import, export or restore is already running.";
+      public String IMPORT_STARTED = "{PRFX} &eImporting players from &6{0}&e...";
+      public String IMPORT_PROGRESS = "{PRFX} &e{0} rows processed, {1} imported, {2} skipped. Resume offset: &6{3}";
+      public String IMPORT_FINISHED = "{PRFX} &aImport finished: {0} rows processed, {1} imported, {2} skipped.";
+      public String IMPORT_FAILED = "{PRFX} &cImport failed, check the console for details. Resume offset: &6{0}";
+      public String EXPORT_USAGE = "{PRFX} Usage: &6/limboauth export [binary|csv]";
+      public String EXPORT_STARTED = "{PRFX} &eExporting players to &6{0}&e...";
+      public String EXPORT_PROGRESS = "{PRFX} &e{0} players exported.";
+      public String EXPORT_FINISHED = "{PRFX} &aExported {0} players to &6{1}&a.";
+      public String EXPORT_FAILED = "{PRFX} &cExport failed, check the console for details.";
+      public String RESTORE_USAGE = "{PRFX} Usage: &6/limboauth restore <file name from the backups directory>";
+      public String RESTORE_FILE_NOT_FOUND = "{PRFX} &cBackup file &6{0}&c doesn''t exist.";
+      public String RESTORE_STARTED = "{PRFX} &eRestoring players from &6{0}&e...";
+      public String RESTORE_PROGRESS = "{PRFX} &e{0} players processed, {1} restored, {2} skipped.";
+      public String RESTORE_FINISHED = "{PRFX} &aRestore finished: {0} players processed, {1} restored, {2} skipped.";
+      public String RESTORE_FAILED = "{PRFX} &cRestore failed, check the console for details.";
+      public String STATS = "{PRFX}{NL}&eRegistered players: &6{0} &e(recounted {1} minutes ago){NL}&ePasswords being verified: &6{2}&e, queued: &6{3}";
+      public String STATS_NOT_COUNTED = "{PRFX} &eThe registered players are not counted yet, please try again later.";
       public String ERROR_OCCURRED = "{PRFX} &cAn internal error has occurred!";
       public String RATELIMITED = "{PRFX} &cPlease wait before next usage!";
       public String DATABASE_ERROR_KICK = "{PRFX} &cA database error has occurred!";
@@ -387,6 +440,7 @@ public class Settings extends YamlConfig {
       public String LOGIN_WRONG_PASSWORD = "{PRFX} &cYou''ve entered the wrong password, you have &6{0} &cattempts left.";
       public String LOGIN_WRONG_PASSWORD_KICK = "{PRFX}{NL}&cYou've entered the wrong password numerous times!";
       public String LOGIN_SUCCESSFUL = "{PRFX} &aSuccessfully logged in!";
+      public String LOGIN_QUEUE_OVERLOADED = "{PRFX} &cToo many players are logging in right now, please try again in a few seconds.";
       @Comment(value = "Can be empty.", at = Comment.At.SAME_LINE)
       public String LOGIN_TITLE = "&fPlease, login using &6/login <password>&a.";
       @Comment(value = "Can be empty.", at = Comment.At.SAME_LINE)
@@ -421,6 +475,7 @@ public class Settings extends YamlConfig {
       public String PREMIUM_USAGE = "{PRFX} Usage: &6/premium <current password> confirm";
 
       public String EVENT_CANCELLED = "{PRFX} Authorization event was cancelled";
+      public String EVENT_TIMED_OUT = "{PRFX} Authorization took too long, please try again";
 
       public String FORCE_UNREGISTER_SUCCESSFUL = "{PRFX} &6{0} &asuccessfully unregistered!";
       public String FORCE_UNREGISTER_KICK = "{PRFX}{NL}&aYou have been unregistered by administrator!";
@@ -481,6 +536,221 @@ public class Settings extends YamlConfig {
     public String PASSWORD = "password";
     public String DATABASE = "limboauth";
     public String CONNECTION_PARAMETERS = "?autoReconnect=true&initialTimeout=1&useSSL=false";
+
+    @Comment({
+        "Directory to copy the database drivers from, instead of downloading them from Maven Central, for the hosts without internet access.",
+        "The jars are looked up by the maven path (e.g. com/h2database/h2/2.1.214/h2-2.1.214.jar) and by the file name.",
+        "Leave empty to download the drivers."
+    })
+    public String LIBRARIES_MIRROR = "";
+
+    @Comment({
+        "Let the driver keep the prepared statements of the player lookups and updates, instead of parsing them on every login.",
+        "Adds the statement cache parameters to the connection parameters of mysql, mariadb and postgresql, and to the h2 embedded settings."
+    })
+    public boolean STATEMENT_CACHE = true;
+
+    @Comment({
+        "Store the UUIDs and the IP addresses in binary columns instead of the text ones, that makes the table and the lookups by them smaller.",
+        "The existing table is converted on the proxy start, in batches, the interrupted conversion continues on the next start.",
+        "The other programs, that read the AUTH table (e.g. the websites), should support the binary columns before enabling it."
+    })
+    public boolean BINARY_SCHEMA = false;
+
+    @Create
+    public Settings.DATABASE.EMBEDDED EMBEDDED;
+
+    @Comment("Performance settings of the embedded databases (sqlite and h2)")
+    public static class EMBEDDED {
+
+      @Comment("Connect with the settings below, disable to use the driver defaults")
+      public boolean ENABLED = true;
+
+      @Comment({
+          "SQLite write-ahead log, lets the players log in while the other players are being saved.",
+          "The database is stored in 3 files (limboauth.db, limboauth.db-wal and limboauth.db-shm) while the proxy is running."
+      })
+      public boolean SQLITE_WAL = true;
+
+      @Comment({
+          "SQLite synchronous mode: OFF, NORMAL or FULL.",
+          "With the write-ahead log, NORMAL may lose the last commits only on the power loss, but it doesn't sync the file on every commit."
+      })
+      public String SQLITE_SYNCHRONOUS = "NORMAL";
+
+      @Comment("How long SQLite waits for the database lock, before failing with \"database is locked\", in milliseconds")
+      public int SQLITE_BUSY_TIMEOUT_MILLIS = 10000;
+
+      @Comment("SQLite memory-mapped I/O size in bytes, 0 to disable")
+      public long SQLITE_MMAP_SIZE = 268435456;
+
+      @Comment("Page cache size in kilobytes, per connection for sqlite and per database for h2")
+      public int CACHE_SIZE_KB = 16384;
+
+      @Comment({
+          "Run the SQLite writes on one thread, which commits the writes made at the same time in one transaction,",
+          "instead of making them wait for the database lock."
+      })
+      public boolean SQLITE_SINGLE_WRITER = true;
+      public int SQLITE_SINGLE_WRITER_MAX_BATCH = 256;
+    }
+
+    @Comment({
+        "How often the registered players are recounted for /limboauth stats and bStats, in milliseconds.",
+        "Between the recounts, the count is updated on register and unregister, without querying the database."
+    })
+    public long RECOUNT_PLAYERS_MILLIS = 3600000;
+  }
+
+  @Create
+  public IMPORT IMPORT;
+
+  @Comment("Database of another auth plugin to import the players from, using the /limboauth import command")
+  public static class IMPORT {
+
+    @Comment("Database type: mariadb, mysql, postgresql, sqlite or h2.")
+    public DatabaseLibrary STORAGE_TYPE = DatabaseLibrary.MYSQL;
+
+    @Comment({
+        "JDBC URL of the database, e.g. jdbc:sqlite:plugins/AuthMe/authme.db for the file-based databases.",
+        "Leave empty to build it from the settings below."
+    })
+    public String JDBC_URL = "";
+    public String HOSTNAME = "127.0.0.1:3306";
+    public String USER = "user";
+    public String PASSWORD = "password";
+    public String DATABASE = "authme";
+    public String CONNECTION_PARAMETERS = "?useSSL=false";
+
+    @Comment({
+        "Leave empty to use the default query for the plugin.",
+        "Columns should be named as in the LimboAuth table: NICKNAME, LOWERCASENICKNAME, HASH, IP, LOGINIP, TOTPTOKEN, REGDATE, LOGINDATE, UUID, PREMIUMUUID",
+        "(only NICKNAME and HASH are required), and rows should be ordered, so the import can be resumed from an offset."
+    })
+    public String QUERY = "";
+
+    @Comment({
+        "How many players are sent to the LimboAuth database in one batch, also used by /limboauth restore.",
+        "Add rewriteBatchedStatements=true to the connection parameters of the LimboAuth MySQL database to speed up the import."
+    })
+    public int BATCH_SIZE = 1000;
+    @Comment("How many players are committed in one transaction, the progress is reported after each transaction.")
+    public int TRANSACTION_SIZE = 50000;
+  }
+
+  @Create
+  public BACKUP BACKUP;
+
+  @Comment("Backups made with the /limboauth export command")
+  public static class BACKUP {
+
+    @Comment("Directory for the backups, relative to the plugin directory.")
+    public String DIRECTORY = "backups";
+    @Comment({
+        "Default backup format:",
+        "BINARY - compressed binary format",
+        "CSV - plain text table, can be opened in spreadsheet editors"
+    })
+    public BackupFormat FORMAT = BackupFormat.BINARY;
+    @Comment("Export the players automatically every N hours, 0 to disable.")
+    public int AUTO_EXPORT_INTERVAL_HOURS = 0;
+    @Comment("How many automatic backups to keep, 0 to keep all of them.")
+    public int AUTO_EXPORT_KEEP = 7;
+  }
+
+  @Create
+  public ARCHIVE ARCHIVE;
+
+  @Comment({
+      "Moves the players, that haven't logged in for a long time, from the AUTH table to the AUTH_ARCHIVE table,",
+      "so the table, that is read on every login, and the backups stay small. The archived players are moved back on their next join."
+  })
+  public static class ARCHIVE {
+
+    public boolean ENABLED = false;
+    @Comment("Players, that haven't logged in for this count of days, are archived")
+    public int INACTIVE_DAYS = 730;
+    @Comment("Delete the inactive players instead of archiving them, they will need to register again")
+    public boolean DELETE = false;
+    @Comment("Look for the inactive players every N hours")
+    public int INTERVAL_HOURS = 24;
+    @Comment("How many players are moved in one transaction")
+    public int BATCH_SIZE = 500;
+    @Comment("Pause between the transactions, in milliseconds, so the logins don't wait for the database")
+    public long BATCH_DELAY_MILLIS = 200;
+  }
+
+  @Create
+  public SESSIONS SESSIONS;
+
+  @Comment("Sessions allow players to join again from the same IP address without entering the password for purge-cache-millis")
+  public static class SESSIONS {
+
+    @Comment({
+        "MEMORY - sessions are kept in the proxy memory and are lost on restart",
+        "DATABASE - sessions are saved to the AUTH_SESSIONS table, so they survive restarts and are shared by the proxies that use the same database"
+    })
+    public SessionStorageType STORAGE_TYPE = SessionStorageType.MEMORY;
+    @Comment("The key must be the same on all the proxies that share the sessions")
+    @CustomSerializer(serializerClass = MD5KeySerializer.class)
+    public byte[] SIGNING_KEY = null;
+    @Comment("How long the proxy caches the sessions loaded from the database, 0 to query the database on every join")
+    public long NEAR_CACHE_MILLIS = 5000;
+  }
+
+  @Create
+  public EVENTS EVENTS;
+
+  @Comment({
+      "Limits for the plugins that make the authorization wait for them, using the WAIT result of the LimboAuth events.",
+      "The timeout is set in milliseconds, 0 to wait forever. When the time is up, the timeout result is applied: NORMAL, BYPASS or CANCEL."
+  })
+  public static class EVENTS {
+
+    public long PRE_AUTHORIZATION_TIMEOUT_MILLIS = 300000;
+    public TaskEvent.Result PRE_AUTHORIZATION_TIMEOUT_RESULT = TaskEvent.Result.CANCEL;
+    public long PRE_REGISTER_TIMEOUT_MILLIS = 300000;
+    public TaskEvent.Result PRE_REGISTER_TIMEOUT_RESULT = TaskEvent.Result.CANCEL;
+    public long POST_AUTHORIZATION_TIMEOUT_MILLIS = 300000;
+    public TaskEvent.Result POST_AUTHORIZATION_TIMEOUT_RESULT = TaskEvent.Result.CANCEL;
+    public long POST_REGISTER_TIMEOUT_MILLIS = 300000;
+    public TaskEvent.Result POST_REGISTER_TIMEOUT_RESULT = TaskEvent.Result.CANCEL;
+  }
+
+  @Create
+  public CLUSTER CLUSTER;
+
+  @Comment("Synchronization of the caches between several proxies that use the same database")
+  public static class CLUSTER {
+
+    @Comment({
+        "Enable if the database is shared by several proxies.",
+        "The accounts changed on one proxy will be removed from the session and premium caches on the others, using the AUTH_INVALIDATIONS table."
+    })
+    public boolean ENABLED = false;
+    @Comment("How often the proxy checks for the changes made by the other proxies")
+    public long POLL_INTERVAL_MILLIS = 1000;
+    @Comment("How many changes are read by one query")
+    public int POLL_BATCH_SIZE = 500;
+    @Comment({
+        "How long the recent changes are read again, as a change can be committed after a newer one was already read.",
+        "Should be longer than the slowest write transaction plus the clock difference between the proxies"
+    })
+    public long LOOKBACK_MILLIS = 10000;
+    @Comment("How long the changes are kept in the database, should be much longer than the poll interval")
+    public long RETENTION_MILLIS = 600000;
+  }
+
+  @Create
+  public METRICS METRICS;
+
+  @Comment("Login metrics in the Prometheus text format, served on http://<bind-address>:<port>/metrics")
+  public static class METRICS {
+
+    public boolean ENABLED = false;
+    @Comment("Keep the local address, unless the port is protected by a firewall, the metrics contain no authentication")
+    public String BIND_ADDRESS = "127.0.0.1";
+    public int PORT = 9464;
   }
 
   public static class MD5KeySerializer extends ConfigSerializer<byte[], String> {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.cluster;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import net.elytrium.limboauth.LimboAuth;
+import net.elytrium.limboauth.model.CacheInvalidation;
+import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.storage.SingleWriter;
+
+/**
+ * Passes the notifications through the AUTH_INVALIDATIONS table.
+ * Every proxy remembers the last read row ID and reads the newer rows, the old rows are deleted after the retention time.
+ * The rows created within the lookback time are read again, as concurrent transactions can commit a lower ID after a higher one was read.
+ */
+public class DatabaseInvalidationBus implements InvalidationBus {
+
+  private final String origin = UUID.randomUUID().toString();
+  private final Dao<CacheInvalidation, Long> invalidationDao;
+  // IDs of the read rows within the lookback time, to skip them when they are read again.
+  private final Map<Long, Long> readIds = new HashMap<>();
+  private final int batchSize;
+  private final long lookbackMillis;
+  private final long retentionMillis;
+  private final Consumer<String> listener;
+
+  private long lastReadId;
+  private long lastPruneTime;
+
+  /**
+   * The single writer is null if the writes shouldn't be queued.
+   */
+  public DatabaseInvalidationBus(ConnectionSource connectionSource, SingleWriter singleWriter, int batchSize, long lookbackMillis, long retentionMillis,
+      Consumer<String> listener) {
+    this.batchSize = batchSize;
+    this.lookbackMillis = lookbackMillis;
+    this.retentionMillis = retentionMillis;
+    this.listener = listener;
+
+    try {
+      TableUtils.createTableIfNotExists(connectionSource, CacheInvalidation.class);
+      Dao<CacheInvalidation, Long> invalidationDao = DaoManager.createDao(connectionSource, CacheInvalidation.class);
+      this.invalidationDao = singleWriter == null ? invalidationDao : singleWriter.wrap(invalidationDao);
+
+      // The changes made before the start don't matter, as the caches are empty.
+      CacheInvalidation last = this.invalidationDao.queryBuilder().orderBy(CacheInvalidation.ID_FIELD, false).queryForFirst();
+      this.lastReadId = last == null ? 0 : last.getId();
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+  }
+
+  @Override
+  public void publish(String lowercaseNickname) {
+    try {
+      this.invalidationDao.create(new CacheInvalidation(lowercaseNickname, this.origin));
+    } catch (SQLException e) {
+      // The change itself is already saved, the other proxies will drop the stale data when their cache entries expire.
+      LimboAuth.getLogger().error("Unable to notify the other proxies about the changed account {}.", lowercaseNickname, e);
+    }
+  }
+
+  @Override
+  public synchronized void poll() {
+    try {
+      long since = System.currentTimeMillis() - this.lookbackMillis;
+      this.readIds.values().removeIf(createdAt -> createdAt < since);
+
+      long highestReadId = this.lastReadId;
+      long lastId = 0;
+      List<CacheInvalidation> invalidations;
+      do {
+        QueryBuilder<CacheInvalidation, Long> queryBuilder = this.invalidationDao.queryBuilder()
+            .orderBy(CacheInvalidation.ID_FIELD, true)
+            .limit((long) this.batchSize);
+        Where<CacheInvalidation, Long> where = queryBuilder.where();
+        where.and(
+            where.gt(CacheInvalidation.ID_FIELD, lastId),
+            where.or(where.gt(CacheInvalidation.ID_FIELD, this.lastReadId), where.ge(CacheInvalidation.CREATED_AT_FIELD, since))
+        );
+        invalidations = queryBuilder.query();
+
+        for (CacheInvalidation invalidation : invalidations) {
+          lastId = invalidation.getId();
+          highestReadId = Math.max(highestReadId, lastId);
+          if (this.readIds.put(lastId, invalidation.getCreatedAt()) == null && !this.origin.equals(invalidation.getOrigin())) {
+            this.listener.accept(invalidation.getLowercaseNickname());
+          }
+        }
+      } while (invalidations.size() == this.batchSize);
+
+      this.lastReadId = highestReadId;
+
+      long currentTime = System.currentTimeMillis();
+      if (this.lastPruneTime + this.retentionMillis / 2 <= currentTime) {
+        DeleteBuilder<CacheInvalidation, Long> deleteBuilder = this.invalidationDao.deleteBuilder();
+        deleteBuilder.where().lt(CacheInvalidation.CREATED_AT_FIELD, currentTime - this.retentionMillis);
+        // Deleted through the DAO, DeleteBuilder#delete would bypass the single writer.
+        this.invalidationDao.delete(deleteBuilder.prepare());
+        this.lastPruneTime = currentTime;
+      }
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+  }
+
+  public String getOrigin() {
+    return this.origin;
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.cluster;
+
+/**
+ * Notifies the other proxies that use the same database about the changed accounts, so they can drop the cached data of them.
+ */
+public interface InvalidationBus {
+
+  /**
+   * Notifies the other proxies, the local caches should be cleared by the caller.
+   */
+  void publish(String lowercaseNickname);
+
+  /**
+   * Receives the notifications from the other proxies and passes them to the listener.
+   */
+  void poll();
+}
@@ -17,8 +17,6 @@
 
 package net.elytrium.limboauth.command;
 
-import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.stmt.UpdateBuilder;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.Player;
@@ -30,12 +28,13 @@ import net.elytrium.limboauth.event.ChangePasswordEvent;
 import net.elytrium.limboauth.handler.AuthSessionHandler;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.storage.PlayerRepository;
 import net.kyori.adventure.text.Component;
 
 public class ChangePasswordCommand extends RatelimitedCommand {
 
   private final LimboAuth plugin;
-  private final Dao<RegisteredPlayer, String> playerDao;
+  private final PlayerRepository playerRepository;
 
   private final boolean needOldPass;
   private final Component notRegistered;
@@ -45,9 +44,9 @@ public class ChangePasswordCommand extends RatelimitedCommand {
   private final Component usage;
   private final Component notPlayer;
 
-  public ChangePasswordCommand(LimboAuth plugin, Dao<RegisteredPlayer, String> playerDao) {
+  public ChangePasswordCommand(LimboAuth plugin, PlayerRepository playerRepository) {
     this.plugin = plugin;
-    this.playerDao = playerDao;
+    this.playerRepository = playerRepository;
 
     Serializer serializer = LimboAuth.getSerializer();
     this.needOldPass = Settings.IMP.MAIN.CHANGE_PASSWORD_NEED_OLD_PASSWORD;
@@ -63,7 +62,7 @@ public class ChangePasswordCommand extends RatelimitedCommand {
   public void execute(CommandSource source, String[] args) {
     if (source instanceof Player) {
       String username = ((Player) source).getUsername();
-      RegisteredPlayer player = AuthSessionHandler.fetchInfo(this.playerDao, username);
+      RegisteredPlayer player = AuthSessionHandler.fetchInfo(this.playerRepository, username);
 
       if (player == null) {
         source.sendMessage(this.notRegistered);
@@ -78,7 +77,7 @@ public class ChangePasswordCommand extends RatelimitedCommand {
           return;
         }
 
-        if (!AuthSessionHandler.checkPassword(args[0], player, this.playerDao)) {
+        if (!AuthSessionHandler.checkPassword(args[0], player, this.playerRepository.getDao())) {
           source.sendMessage(this.wrongPassword);
           return;
         }
@@ -92,10 +91,7 @@ public class ChangePasswordCommand extends RatelimitedCommand {
         final String newPassword = needOldPass ? args[1] : args[0];
         final String newHash = RegisteredPlayer.genHash(newPassword);
 
-        UpdateBuilder<RegisteredPlayer, String> updateBuilder = this.playerDao.updateBuilder();
-        updateBuilder.where().eq(RegisteredPlayer.NICKNAME_FIELD, username);
-        updateBuilder.updateColumnValue(RegisteredPlayer.HASH_FIELD, newHash);
-        updateBuilder.update();
+        this.playerRepository.updateHashByExactNickname(username, newHash);
 
         this.plugin.removePlayerFromCache(username);
 
@@ -17,15 +17,12 @@
 
 package net.elytrium.limboauth.command;
 
-import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.stmt.UpdateBuilder;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.ProxyServer;
 import java.sql.SQLException;
 import java.text.MessageFormat;
 import java.util.List;
-import java.util.Locale;
 import net.elytrium.commons.kyori.serialization.Serializer;
 import net.elytrium.commons.velocity.commands.SuggestUtils;
 import net.elytrium.limboauth.LimboAuth;
@@ -34,13 +31,14 @@ import net.elytrium.limboauth.event.ChangePasswordEvent;
 import net.elytrium.limboauth.handler.AuthSessionHandler;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.storage.PlayerRepository;
 import net.kyori.adventure.text.Component;
 
 public class ForceChangePasswordCommand extends RatelimitedCommand {
 
   private final LimboAuth plugin;
   private final ProxyServer server;
-  private final Dao<RegisteredPlayer, String> playerDao;
+  private final PlayerRepository playerRepository;
 
   private final String message;
   private final String successful;
@@ -48,10 +46,10 @@ public class ForceChangePasswordCommand extends RatelimitedCommand {
   private final String notRegistered;
   private final Component usage;
 
-  public ForceChangePasswordCommand(LimboAuth plugin, ProxyServer server, Dao<RegisteredPlayer, String> playerDao) {
+  public ForceChangePasswordCommand(LimboAuth plugin, ProxyServer server, PlayerRepository playerRepository) {
     this.plugin = plugin;
     this.server = server;
-    this.playerDao = playerDao;
+    this.playerRepository = playerRepository;
 
     this.message = Settings.IMP.MAIN.STRINGS.FORCE_CHANGE_PASSWORD_MESSAGE;
     this.successful = Settings.IMP.MAIN.STRINGS.FORCE_CHANGE_PASSWORD_SUCCESSFUL;
@@ -73,7 +71,7 @@ public class ForceChangePasswordCommand extends RatelimitedCommand {
 
       Serializer serializer = LimboAuth.getSerializer();
       try {
-        RegisteredPlayer registeredPlayer = AuthSessionHandler.fetchInfo(this.playerDao, nickname);
+        RegisteredPlayer registeredPlayer = AuthSessionHandler.fetchInfo(this.playerRepository, nickname);
 
         if (registeredPlayer == null) {
           source.sendMessage(serializer.deserialize(MessageFormat.format(this.notRegistered, nickname)));
@@ -83,10 +81,7 @@ public class ForceChangePasswordCommand extends RatelimitedCommand {
         final String oldHash = registeredPlayer.getHash();
         final String newHash = RegisteredPlayer.genHash(newPassword);
 
-        UpdateBuilder<RegisteredPlayer, String> updateBuilder = this.playerDao.updateBuilder();
-        updateBuilder.where().eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, nickname.toLowerCase(Locale.ROOT));
-        updateBuilder.updateColumnValue(RegisteredPlayer.HASH_FIELD, newHash);
-        updateBuilder.update();
+        this.playerRepository.updateHash(nickname, newHash);
 
         this.plugin.removePlayerFromCache(nickname);
         this.server.getPlayer(nickname)
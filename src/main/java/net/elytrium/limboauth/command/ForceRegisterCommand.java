@@ -73,6 +73,7 @@ public class ForceRegisterCommand extends RatelimitedCommand {
 
         RegisteredPlayer player = new RegisteredPlayer(nickname, "", "").setPassword(password);
         this.playerDao.create(player);
+        this.plugin.getRegisteredPlayerCount().increment();
 
         source.sendMessage(serializer.deserialize(MessageFormat.format(this.successful, nickname)));
       } catch (SQLException e) {
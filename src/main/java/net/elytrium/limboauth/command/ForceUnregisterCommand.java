@@ -70,7 +70,10 @@ public class ForceUnregisterCommand extends RatelimitedCommand {
       Serializer serializer = LimboAuth.getSerializer();
       try {
         this.plugin.getServer().getEventManager().fireAndForget(new AuthUnregisterEvent(playerNick));
-        this.playerDao.deleteById(playerNick.toLowerCase(Locale.ROOT));
+        if (this.playerDao.deleteById(playerNick.toLowerCase(Locale.ROOT)) != 0) {
+          this.plugin.getRegisteredPlayerCount().decrement();
+        }
+
         this.plugin.removePlayerFromCache(playerNick);
         this.server.getPlayer(playerNick).ifPresent(player -> player.disconnect(this.kick));
         source.sendMessage(serializer.deserialize(MessageFormat.format(this.successful, playerNick)));
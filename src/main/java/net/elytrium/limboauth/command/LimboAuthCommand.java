@@ -20,12 +20,26 @@ package net.elytrium.limboauth.command;
 import com.google.common.collect.ImmutableList;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import net.elytrium.commons.kyori.serialization.Serializer;
 import net.elytrium.limboauth.LimboAuth;
 import net.elytrium.limboauth.Settings;
+import net.elytrium.limboauth.concurrent.HashVerificationQueue;
+import net.elytrium.limboauth.storage.BackupFormat;
+import net.elytrium.limboauth.storage.ImportSource;
+import net.elytrium.limboauth.storage.PlayerBackup;
+import net.elytrium.limboauth.storage.PlayerImporter;
+import net.elytrium.limboauth.storage.ProgressListener;
+import net.elytrium.limboauth.storage.RegisteredPlayerCount;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 
@@ -110,12 +124,194 @@ public class LimboAuthCommand extends RatelimitedCommand {
     }
   }
 
+  private void importPlayers(CommandSource source, String[] args) {
+    Serializer serializer = LimboAuth.getSerializer();
+    ImportSource importSource = null;
+    long offset = 0;
+    if (args.length == 2 || args.length == 3) {
+      importSource = Arrays.stream(ImportSource.values()).filter(value -> value.getName().equalsIgnoreCase(args[1])).findAny().orElse(null);
+      if (args.length == 3) {
+        try {
+          offset = Long.parseLong(args[2]);
+        } catch (NumberFormatException e) {
+          importSource = null;
+        }
+      }
+    }
+
+    if (importSource == null || offset < 0) {
+      source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.IMPORT_USAGE));
+      return;
+    }
+
+    if (!this.plugin.startDatabaseTask()) {
+      source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.DATABASE_TASK_RUNNING));
+      return;
+    }
+
+    source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.IMPORT_STARTED, importSource.getName())));
+
+    ImportSource finalImportSource = importSource;
+    long finalOffset = offset;
+    this.plugin.getServer().getScheduler().buildTask(this.plugin, () -> {
+      AtomicLong committed = new AtomicLong(finalOffset);
+      PlayerImporter importer = new PlayerImporter(this.plugin.getPlayerDao(), this.plugin.getSingleWriter(), this.plugin.getDataDirectory(),
+          finalImportSource, new ProgressListener() {
+            @Override
+            public void onProgress(long processed, long imported, long skipped) {
+              committed.set(processed);
+              String message = MessageFormat.format(Settings.IMP.MAIN.STRINGS.IMPORT_PROGRESS, processed, imported, skipped, String.valueOf(processed));
+              source.sendMessage(serializer.deserialize(message));
+            }
+
+            @Override
+            public void onFinish(long processed, long imported, long skipped) {
+              source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.IMPORT_FINISHED, processed, imported, skipped)));
+            }
+          });
+
+      try {
+        importer.importPlayers(finalOffset);
+      } catch (Throwable e) {
+        LimboAuth.getLogger().error("Unable to import players from {}", finalImportSource.getName(), e);
+        source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.IMPORT_FAILED, String.valueOf(committed.get()))));
+      } finally {
+        this.plugin.finishDatabaseTask();
+        this.plugin.recountRegisteredPlayers();
+      }
+    }).schedule();
+  }
+
+  private void exportPlayers(CommandSource source, String[] args) {
+    Serializer serializer = LimboAuth.getSerializer();
+    BackupFormat format = Settings.IMP.BACKUP.FORMAT;
+    if (args.length == 2) {
+      format = Arrays.stream(BackupFormat.values()).filter(value -> value.getName().equalsIgnoreCase(args[1])).findAny().orElse(null);
+    }
+
+    if (format == null || args.length > 2) {
+      source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.EXPORT_USAGE));
+      return;
+    }
+
+    if (!this.plugin.startDatabaseTask()) {
+      source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.DATABASE_TASK_RUNNING));
+      return;
+    }
+
+    BackupFormat finalFormat = format;
+    this.plugin.getServer().getScheduler().buildTask(this.plugin, () -> {
+      try {
+        Path file = PlayerBackup.getBackupFile(this.plugin.getBackupDirectory(), "export", finalFormat);
+        String fileName = file.getFileName().toString();
+        source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.EXPORT_STARTED, fileName)));
+        new PlayerBackup(this.plugin.getPlayerDao()).exportPlayers(file, finalFormat, new ProgressListener() {
+          @Override
+          public void onProgress(long processed, long written, long skipped) {
+            source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.EXPORT_PROGRESS, processed)));
+          }
+
+          @Override
+          public void onFinish(long processed, long written, long skipped) {
+            source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.EXPORT_FINISHED, processed, fileName)));
+          }
+        });
+      } catch (Throwable e) {
+        LimboAuth.getLogger().error("Unable to export players", e);
+        source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.EXPORT_FAILED));
+      } finally {
+        this.plugin.finishDatabaseTask();
+      }
+    }).schedule();
+  }
+
+  private void restorePlayers(CommandSource source, String[] args) {
+    Serializer serializer = LimboAuth.getSerializer();
+    if (args.length != 2) {
+      source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.RESTORE_USAGE));
+      return;
+    }
+
+    Path file;
+    try {
+      Path directory = this.plugin.getBackupDirectory().toAbsolutePath().normalize();
+      file = directory.resolve(args[1]).normalize();
+      // Only the files from the backups directory can be restored.
+      if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+        file = null;
+      }
+    } catch (IOException | RuntimeException e) {
+      file = null;
+    }
+
+    if (file == null) {
+      source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.RESTORE_FILE_NOT_FOUND, args[1])));
+      return;
+    }
+
+    if (!this.plugin.startDatabaseTask()) {
+      source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.DATABASE_TASK_RUNNING));
+      return;
+    }
+
+    source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.RESTORE_STARTED, args[1])));
+
+    Path finalFile = file;
+    this.plugin.getServer().getScheduler().buildTask(this.plugin, () -> {
+      try {
+        new PlayerBackup(this.plugin.getPlayerDao(), this.plugin.getSingleWriter()).restorePlayers(finalFile, new ProgressListener() {
+          @Override
+          public void onProgress(long processed, long written, long skipped) {
+            source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.RESTORE_PROGRESS, processed, written, skipped)));
+          }
+
+          @Override
+          public void onFinish(long processed, long written, long skipped) {
+            source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.RESTORE_FINISHED, processed, written, skipped)));
+          }
+        });
+      } catch (Throwable e) {
+        LimboAuth.getLogger().error("Unable to restore players from {}", finalFile.getFileName(), e);
+        source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.RESTORE_FAILED));
+      } finally {
+        this.plugin.finishDatabaseTask();
+        this.plugin.recountRegisteredPlayers();
+      }
+    }).schedule();
+  }
+
+  private void showStats(CommandSource source) {
+    Serializer serializer = LimboAuth.getSerializer();
+    RegisteredPlayerCount registeredPlayers = this.plugin.getRegisteredPlayerCount();
+    long count = registeredPlayers.get();
+    if (count == -1) {
+      source.sendMessage(serializer.deserialize(Settings.IMP.MAIN.STRINGS.STATS_NOT_COUNTED));
+      return;
+    }
+
+    HashVerificationQueue hashVerificationQueue = this.plugin.getHashVerificationQueue();
+    source.sendMessage(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.STATS,
+        count,
+        TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - registeredPlayers.getCountTime()),
+        hashVerificationQueue.getRunning(),
+        hashVerificationQueue.getQueued()
+    )));
+  }
+
   private enum Subcommand {
     RELOAD("Reload config.", Settings.IMP.MAIN.COMMAND_PERMISSION_STATE.RELOAD,
         (LimboAuthCommand parent, CommandSource source, String[] args) -> {
           parent.plugin.reload();
           source.sendMessage(LimboAuth.getSerializer().deserialize(Settings.IMP.MAIN.STRINGS.RELOAD));
-        });
+        }),
+    IMPORT("Import players from another auth plugin.", Settings.IMP.MAIN.COMMAND_PERMISSION_STATE.IMPORT,
+        (LimboAuthCommand parent, CommandSource source, String[] args) -> parent.importPlayers(source, args)),
+    EXPORT("Export players to a backup file.", Settings.IMP.MAIN.COMMAND_PERMISSION_STATE.EXPORT,
+        (LimboAuthCommand parent, CommandSource source, String[] args) -> parent.exportPlayers(source, args)),
+    RESTORE("Restore players from a backup file.", Settings.IMP.MAIN.COMMAND_PERMISSION_STATE.RESTORE,
+        (LimboAuthCommand parent, CommandSource source, String[] args) -> parent.restorePlayers(source, args)),
+    STATS("Show the registered players count and the login queue.", Settings.IMP.MAIN.COMMAND_PERMISSION_STATE.STATS,
+        (LimboAuthCommand parent, CommandSource source, String[] args) -> parent.showStats(source));
 
     private final String command;
     private final String description;
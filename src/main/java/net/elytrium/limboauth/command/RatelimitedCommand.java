@@ -20,12 +20,17 @@ package net.elytrium.limboauth.command;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.Player;
+import java.util.Map;
 import net.elytrium.limboauth.LimboAuth;
 import net.elytrium.limboauth.Settings;
+import net.elytrium.limboauth.metrics.Counter;
 import net.kyori.adventure.text.Component;
 
 public abstract class RatelimitedCommand implements SimpleCommand {
 
+  private static final Counter RATELIMITED = LimboAuth.getMetrics().counter("limboauth_ratelimited_total",
+      "Commands ignored by the IP address ratelimiter.", Map.of("source", "command"));
+
   private final Component ratelimited;
 
   public RatelimitedCommand() {
@@ -37,6 +42,7 @@ public abstract class RatelimitedCommand implements SimpleCommand {
     CommandSource source = invocation.source();
     if (source instanceof Player) {
       if (!LimboAuth.RATELIMITER.attempt(((Player) source).getRemoteAddress().getAddress())) {
+        RATELIMITED.increment();
         source.sendMessage(this.ratelimited);
         return;
       }
@@ -17,8 +17,6 @@
 
 package net.elytrium.limboauth.command;
 
-import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.stmt.UpdateBuilder;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.Player;
@@ -36,6 +34,7 @@ import net.elytrium.limboauth.Settings;
 import net.elytrium.limboauth.handler.AuthSessionHandler;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.storage.PlayerRepository;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.ClickEvent;
 
@@ -43,7 +42,7 @@ public class TotpCommand extends RatelimitedCommand {
 
   private final SecretGenerator secretGenerator = new DefaultSecretGenerator();
   private final RecoveryCodeGenerator codesGenerator = new RecoveryCodeGenerator();
-  private final Dao<RegisteredPlayer, String> playerDao;
+  private final PlayerRepository playerRepository;
 
   private final Component notPlayer;
   private final Component usage;
@@ -63,8 +62,8 @@ public class TotpCommand extends RatelimitedCommand {
   private final Component wrong;
   private final Component crackedCommand;
 
-  public TotpCommand(Dao<RegisteredPlayer, String> playerDao) {
-    this.playerDao = playerDao;
+  public TotpCommand(PlayerRepository playerRepository) {
+    this.playerRepository = playerRepository;
 
     Serializer serializer = LimboAuth.getSerializer();
     this.notPlayer = serializer.deserialize(Settings.IMP.MAIN.STRINGS.NOT_PLAYER);
@@ -96,17 +95,16 @@ public class TotpCommand extends RatelimitedCommand {
         String username = ((Player) source).getUsername();
 
         RegisteredPlayer playerInfo;
-        UpdateBuilder<RegisteredPlayer, String> updateBuilder;
         if (args[0].equalsIgnoreCase("enable")) {
           if (this.needPassword ? args.length == 2 : args.length == 1) {
-            playerInfo = AuthSessionHandler.fetchInfo(this.playerDao, username);
+            playerInfo = AuthSessionHandler.fetchInfo(this.playerRepository, username);
             if (playerInfo == null) {
               source.sendMessage(this.notRegistered);
               return;
             } else if (playerInfo.getHash().isEmpty()) {
               source.sendMessage(this.crackedCommand);
               return;
-            } else if (this.needPassword && !AuthSessionHandler.checkPassword(args[1], playerInfo, this.playerDao)) {
+            } else if (this.needPassword && !AuthSessionHandler.checkPassword(args[1], playerInfo, this.playerRepository.getDao())) {
               source.sendMessage(this.wrongPassword);
               return;
             }
@@ -118,10 +116,7 @@ public class TotpCommand extends RatelimitedCommand {
 
             String secret = this.secretGenerator.generate();
             try {
-              updateBuilder = this.playerDao.updateBuilder();
-              updateBuilder.where().eq(RegisteredPlayer.NICKNAME_FIELD, username);
-              updateBuilder.updateColumnValue(RegisteredPlayer.TOTP_TOKEN_FIELD, secret);
-              updateBuilder.update();
+              this.playerRepository.updateTotpTokenByExactNickname(username, secret);
             } catch (SQLException e) {
               source.sendMessage(this.errorOccurred);
               throw new SQLRuntimeException(e);
@@ -147,7 +142,7 @@ public class TotpCommand extends RatelimitedCommand {
           }
         } else if (args[0].equalsIgnoreCase("disable")) {
           if (args.length == 2) {
-            playerInfo = AuthSessionHandler.fetchInfo(this.playerDao, username);
+            playerInfo = AuthSessionHandler.fetchInfo(this.playerRepository, username);
 
             if (playerInfo == null) {
               source.sendMessage(this.notRegistered);
@@ -156,10 +151,7 @@ public class TotpCommand extends RatelimitedCommand {
 
             if (AuthSessionHandler.getTotpCodeVerifier().isValidCode(playerInfo.getTotpToken(), args[1])) {
               try {
-                updateBuilder = this.playerDao.updateBuilder();
-                updateBuilder.where().eq(RegisteredPlayer.NICKNAME_FIELD, username);
-                updateBuilder.updateColumnValue(RegisteredPlayer.TOTP_TOKEN_FIELD, "");
-                updateBuilder.update();
+                this.playerRepository.updateTotpTokenByExactNickname(username, "");
 
                 source.sendMessage(this.disabled);
               } catch (SQLException e) {
@@ -75,7 +75,10 @@ public class UnregisterCommand extends RatelimitedCommand {
           } else if (AuthSessionHandler.checkPassword(args[0], player, this.playerDao)) {
             try {
               this.plugin.getServer().getEventManager().fireAndForget(new AuthUnregisterEvent(username));
-              this.playerDao.deleteById(username.toLowerCase(Locale.ROOT));
+              if (this.playerDao.deleteById(username.toLowerCase(Locale.ROOT)) != 0) {
+                this.plugin.getRegisteredPlayerCount().decrement();
+              }
+
               this.plugin.removePlayerFromCache(username);
               ((Player) source).disconnect(this.successful);
             } catch (SQLException e) {
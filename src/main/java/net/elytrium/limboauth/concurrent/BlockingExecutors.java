@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the executors for the blocking work (JDBC queries, premium API requests and password verifications).
+ * The plugin is built for Java 11, so the virtual threads of Java 21+ are created with reflection.
+ */
+public final class BlockingExecutors {
+
+  // null if the JVM doesn't support the virtual threads.
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_FACTORY;
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newThreadPerTaskExecutor = null;
+    try {
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      // Java 19 and 20 have the virtual threads only as a preview feature, the builder can't be created without --enable-preview.
+      ofVirtual.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      ofVirtual = null;
+    }
+
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+  }
+
+  private BlockingExecutors() {
+
+  }
+
+  public static boolean isVirtualThreadsSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Creates an executor, that starts a virtual thread per task, if they are supported and enabled,
+   * or a pool of the platform threads, that queues the tasks if all the threads are busy.
+   *
+   * @param name            thread name prefix, the thread number is appended to it
+   * @param platformThreads thread count of the platform thread pool
+   */
+  public static ExecutorService create(String name, int platformThreads, boolean virtualThreads) {
+    if (virtualThreads && OF_VIRTUAL != null) {
+      try {
+        Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name, 0L);
+        return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, BUILDER_FACTORY.invoke(builder));
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Unable to create the virtual thread executor", e);
+      }
+    }
+
+    return Executors.newFixedThreadPool(platformThreads, new ThreadFactoryBuilder()
+        .setNameFormat(name + "%d")
+        .setDaemon(true)
+        .build());
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.concurrent;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import net.elytrium.limboauth.metrics.Counter;
+import net.elytrium.limboauth.metrics.Histogram;
+import net.elytrium.limboauth.metrics.MetricsRegistry;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Limits the amount of password hashes verified at the same time.
+ * Pending verifications are served in FIFO order per IP address, and IP addresses are served round-robin,
+ * so a single address can't occupy the whole queue during a join storm.
+ */
+public class HashVerificationQueue {
+
+  // Initial guess of a BCrypt verification time with the default cost, it will be replaced by the measured value.
+  private static final long INITIAL_VERIFY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final Map<InetAddress, ArrayDeque<Task>> pending = new HashMap<>();
+  private final ArrayDeque<InetAddress> turns = new ArrayDeque<>();
+  private final ExecutorService executor;
+  private final int maxConcurrent;
+  private final Histogram waitTime;
+  private final Histogram verifyTime;
+  private final Counter shed;
+
+  private int running;
+  private int queued;
+  private long averageVerifyNanos = INITIAL_VERIFY_NANOS;
+
+  public HashVerificationQueue(int maxConcurrent, MetricsRegistry metrics) {
+    this(maxConcurrent, false, metrics);
+  }
+
+  /**
+   * @param virtualThreads run the verifications on virtual threads if they are supported, the concurrency is still limited by maxConcurrent
+   */
+  public HashVerificationQueue(int maxConcurrent, boolean virtualThreads, MetricsRegistry metrics) {
+    this.maxConcurrent = maxConcurrent;
+    this.executor = BlockingExecutors.create("LimboAuth Hashing #", maxConcurrent, virtualThreads);
+
+    this.waitTime = metrics.histogram("limboauth_hash_queue_wait_seconds", "Time spent by password verifications in the queue.");
+    this.verifyTime = metrics.histogram("limboauth_hash_verify_seconds", "Time spent verifying password hashes.");
+    this.shed = metrics.counter("limboauth_hash_queue_shed_total", "Password verifications rejected because the queue was too long.");
+  }
+
+  /**
+   * Schedules the password verification.
+   * Cancelling the returned future removes the verification from the queue if it hasn't started yet.
+   *
+   * @param maxWaitMillis the time the player has left, the verification is shed if it would wait longer
+   * @return the verification result, or {@code null} if the verification would wait longer than allowed and was shed
+   */
+  @Nullable
+  public CompletableFuture<Boolean> submit(InetAddress address, long maxWaitMillis, BooleanSupplier verifier) {
+    Task task = new Task(verifier);
+    synchronized (this) {
+      if (this.running < this.maxConcurrent) {
+        ++this.running;
+      } else if (this.estimateWaitMillis() > maxWaitMillis) {
+        this.shed.increment();
+        return null;
+      } else {
+        ArrayDeque<Task> addressTasks = this.pending.get(address);
+        if (addressTasks == null) {
+          addressTasks = new ArrayDeque<>();
+          this.pending.put(address, addressTasks);
+          this.turns.addLast(address);
+        }
+
+        addressTasks.addLast(task);
+        task.queued = true;
+        ++this.queued;
+      }
+    }
+
+    if (task.queued) {
+      // Registered outside the lock, the callback runs immediately if the future is already cancelled.
+      task.future.whenComplete((verified, throwable) -> {
+        if (task.future.isCancelled()) {
+          this.remove(address, task);
+        }
+      });
+
+      return task.future;
+    }
+
+    try {
+      this.executor.execute(() -> this.run(task));
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        --this.running;
+      }
+
+      task.future.completeExceptionally(e);
+    }
+
+    return task.future;
+  }
+
+  private long estimateWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis((this.queued / this.maxConcurrent + 1) * this.averageVerifyNanos);
+  }
+
+  private void run(Task first) {
+    Task task = first;
+    while (task != null) {
+      this.waitTime.observeNanos(System.nanoTime() - task.submitTime);
+
+      long verifyNanos = -1;
+      // The player could have left while waiting in the queue.
+      if (!task.future.isDone()) {
+        long startTime = System.nanoTime();
+        try {
+          boolean verified = task.verifier.getAsBoolean();
+          verifyNanos = System.nanoTime() - startTime;
+          task.future.complete(verified);
+        } catch (Throwable e) {
+          task.future.completeExceptionally(e);
+        }
+      }
+
+      if (verifyNanos != -1) {
+        this.verifyTime.observeNanos(verifyNanos);
+      }
+
+      task = this.next(verifyNanos);
+    }
+  }
+
+  private synchronized void remove(InetAddress address, Task task) {
+    ArrayDeque<Task> addressTasks = this.pending.get(address);
+    // The task could have been already taken by a worker.
+    if (addressTasks != null && addressTasks.remove(task)) {
+      --this.queued;
+      if (addressTasks.isEmpty()) {
+        this.pending.remove(address);
+        this.turns.remove(address);
+      }
+    }
+  }
+
+  @Nullable
+  private synchronized Task next(long lastVerifyNanos) {
+    if (lastVerifyNanos != -1) {
+      // Exponential moving average, used to predict the time the new verifications will wait.
+      this.averageVerifyNanos += (lastVerifyNanos - this.averageVerifyNanos) / 8;
+    }
+
+    InetAddress address = this.turns.pollFirst();
+    if (address == null) {
+      --this.running;
+      return null;
+    }
+
+    ArrayDeque<Task> addressTasks = this.pending.get(address);
+    Task task = addressTasks.pollFirst();
+    if (addressTasks.isEmpty()) {
+      this.pending.remove(address);
+    } else {
+      this.turns.addLast(address);
+    }
+
+    --this.queued;
+    return task;
+  }
+
+  public synchronized int getQueued() {
+    return this.queued;
+  }
+
+  public synchronized int getRunning() {
+    return this.running;
+  }
+
+  public void shutdown() {
+    // Already queued verifications will be finished by the running workers.
+    this.executor.shutdown();
+  }
+
+  private static class Task {
+
+    private final BooleanSupplier verifier;
+    private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+    private final long submitTime = System.nanoTime();
+    private boolean queued;
+
+    Task(BooleanSupplier verifier) {
+      this.verifier = verifier;
+    }
+  }
+}
@@ -22,47 +22,75 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public enum BaseLibrary {
   H2_V1(
       "com.h2database",
       "h2",
-      "1.4.200"
+      "1.4.200",
+      "3ad9ac4b6aae9cd9d3ac1c447465e1ed06019b851b893dd6a8d76ddb6d85bca6"
   ),
   H2_V2(
       "com.h2database",
       "h2",
-      "2.1.214"
+      "2.1.214",
+      "d623cdc0f61d218cf549a8d09f1c391ff91096116b22e2475475fce4fbe72bd0"
   ),
   MYSQL(
       "com.mysql",
       "mysql-connector-j",
-      "8.0.33"
+      "8.0.33",
+      "e2a3b2fc726a1ac64e998585db86b30fa8bf3f706195b78bb77c5f99bf877bd9"
   ),
   MARIADB(
       "org.mariadb.jdbc",
       "mariadb-java-client",
-      "3.1.4"
+      "3.1.4",
+      "eb88b5d727d82e25117e2b6fabcec1daf734633b0a576456c73215884c189ad4"
   ),
   POSTGRESQL(
       "org.postgresql",
       "postgresql",
-      "42.5.1"
+      "42.5.1",
+      "89e8bffa8b37b9487946012c690cf04f3103953051c1c193d88ee36b68d365ae"
   ),
   SQLITE(
       "org.xerial",
       "sqlite-jdbc",
-      "3.40.0.0"
+      "3.40.0.0",
+      "e3a1b909787b33bb37e04f252f37e4ab47a489e1c1d45a809a0982c379445c10"
   );
 
+  private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+  private static final int READ_TIMEOUT_MILLIS = 30000;
+
+  // The threads are stopped after a minute without the downloads, so they don't keep the proxy from stopping.
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "LimboAuth Library Resolver");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static volatile Path mirrorDirectory;
+
+  private final String mavenPath;
   private final Path filenamePath;
   private final URL mavenRepoURL;
+  private final String sha256;
+  private CompletableFuture<Resolution> resolution;
 
-  BaseLibrary(String groupId, String artifactId, String version) {
-    String mavenPath = String.format("%s/%s/%s/%s-%s.jar",
+  BaseLibrary(String groupId, String artifactId, String version, String sha256) {
+    this.mavenPath = String.format("%s/%s/%s/%s-%s.jar",
         groupId.replace(".", "/"),
         artifactId,
         version,
@@ -70,28 +98,173 @@ public enum BaseLibrary {
         version
     );
 
-    this.filenamePath = Path.of("libraries/" + mavenPath);
+    this.filenamePath = Path.of("libraries/" + this.mavenPath);
+    this.sha256 = sha256;
 
     try {
-      this.mavenRepoURL = new URL("https://repo1.maven.org/maven2/" + mavenPath);
+      this.mavenRepoURL = new URL("https://repo1.maven.org/maven2/" + this.mavenPath);
     } catch (MalformedURLException e) {
       throw new IllegalArgumentException(e);
     }
   }
 
-  @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+  /**
+   * Sets the directory, that the jars are copied from instead of downloading them, for the hosts without the internet access.
+   * The jars are looked up by the maven path (e.g. com/h2database/h2/2.1.214/h2-2.1.214.jar) and by the file name.
+   */
+  public static void setMirrorDirectory(Path mirrorDirectory) {
+    BaseLibrary.mirrorDirectory = mirrorDirectory;
+  }
+
+  /**
+   * Starts resolving the jar in the background, so the plugin doesn't wait for the download when it connects to the database.
+   * The failed resolution is retried on the next call.
+   */
+  public synchronized CompletableFuture<Resolution> prefetch() {
+    if (this.resolution == null || this.resolution.isCompletedExceptionally()) {
+      this.resolution = CompletableFuture.supplyAsync(this::resolve, EXECUTOR);
+    }
+
+    return this.resolution;
+  }
+
   public URL getClassLoaderURL() throws MalformedURLException {
-    if (!Files.exists(this.filenamePath)) {
-      try {
-        try (InputStream in = this.mavenRepoURL.openStream()) {
-          Files.createDirectories(this.filenamePath.getParent());
-          Files.copy(in, Files.createFile(this.filenamePath), StandardCopyOption.REPLACE_EXISTING);
+    try {
+      return this.prefetch().join().getPath().toUri().toURL();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+
+      throw e;
+    }
+  }
+
+  private Resolution resolve() {
+    long startTime = System.nanoTime();
+    try {
+      if (Files.exists(this.filenamePath)) {
+        if (this.isValid(this.filenamePath)) {
+          return new Resolution(this, this.filenamePath, ResolutionSource.CACHE, System.nanoTime() - startTime);
+        }
+
+        // Left by an interrupted download of the previous versions, which didn't verify the jars.
+        Files.delete(this.filenamePath);
+      }
+
+      Files.createDirectories(this.getParentDirectory());
+      Path partPath = this.filenamePath.resolveSibling(this.filenamePath.getFileName() + ".part");
+      ResolutionSource source;
+      Path mirrorPath = this.findInMirror();
+      if (mirrorPath != null) {
+        Files.copy(mirrorPath, partPath, StandardCopyOption.REPLACE_EXISTING);
+        source = ResolutionSource.MIRROR;
+      } else {
+        URLConnection connection = this.mavenRepoURL.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        try (InputStream in = connection.getInputStream()) {
+          Files.copy(in, partPath, StandardCopyOption.REPLACE_EXISTING);
         }
-      } catch (IOException e) {
-        throw new IllegalArgumentException(e);
+
+        source = ResolutionSource.DOWNLOAD;
+      }
+
+      if (!this.isValid(partPath)) {
+        Files.delete(partPath);
+        throw new IllegalStateException("SHA-256 of " + (mirrorPath == null ? this.mavenRepoURL : mirrorPath) + " doesn't match " + this.sha256);
+      }
+
+      // The jar appears at its path only after it was verified, so an interrupted download is never loaded.
+      Files.move(partPath, this.filenamePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return new Resolution(this, this.filenamePath, source, System.nanoTime() - startTime);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to resolve " + this.mavenPath, e);
+    }
+  }
+
+  private Path findInMirror() {
+    Path mirrorDirectory = BaseLibrary.mirrorDirectory;
+    if (mirrorDirectory == null) {
+      return null;
+    }
+
+    Path mirrorPath = mirrorDirectory.resolve(this.mavenPath);
+    if (Files.isRegularFile(mirrorPath)) {
+      return mirrorPath;
+    }
+
+    mirrorPath = mirrorDirectory.resolve(this.filenamePath.getFileName());
+    return Files.isRegularFile(mirrorPath) ? mirrorPath : null;
+  }
+
+  private boolean isValid(Path path) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(path)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
       }
     }
 
-    return this.filenamePath.toUri().toURL();
+    StringBuilder hash = new StringBuilder(64);
+    for (byte b : digest.digest()) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+
+    return hash.toString().equals(this.sha256);
+  }
+
+  @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+  private Path getParentDirectory() {
+    return this.filenamePath.getParent();
+  }
+
+  public String getMavenPath() {
+    return this.mavenPath;
+  }
+
+  public enum ResolutionSource {
+    CACHE,
+    MIRROR,
+    DOWNLOAD
+  }
+
+  public static class Resolution {
+
+    private final BaseLibrary library;
+    private final Path path;
+    private final ResolutionSource source;
+    private final long nanos;
+
+    Resolution(BaseLibrary library, Path path, ResolutionSource source, long nanos) {
+      this.library = library;
+      this.path = path;
+      this.source = source;
+      this.nanos = nanos;
+    }
+
+    public BaseLibrary getLibrary() {
+      return this.library;
+    }
+
+    public Path getPath() {
+      return this.path;
+    }
+
+    public ResolutionSource getSource() {
+      return this.source;
+    }
+
+    public long getNanos() {
+      return this.nanos;
+    }
   }
 }
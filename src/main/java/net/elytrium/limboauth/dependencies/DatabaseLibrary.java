@@ -31,7 +31,7 @@ import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.List;
 import java.util.Properties;
 
 public enum DatabaseLibrary {
@@ -47,18 +47,12 @@ public enum DatabaseLibrary {
 
             Path legacyDatabase = dir.resolve("limboauth.mv.db");
             if (Files.exists(legacyDatabase)) {
-              Path dumpFile = dir.resolve("limboauth.dump.sql");
               try (Connection legacyConnection = H2_LEGACY_V1.connect(dir, null, null, user, password)) {
-                try (Statement migrateStatement = legacyConnection.createStatement()) {
-                  migrateStatement.execute("SCRIPT TO '" + dumpFile + "'");
-                }
+                new H2LegacyMigrator(legacyConnection, modernConnection).migrate();
               }
 
-              try (Statement migrateStatement = modernConnection.createStatement()) {
-                migrateStatement.execute("RUNSCRIPT FROM '" + dumpFile + "'");
-              }
-
-              Files.delete(dumpFile);
+              // Left by the previous versions, which migrated the database through an SQL dump.
+              Files.deleteIfExists(dir.resolve("limboauth.dump.sql"));
               Files.move(legacyDatabase, dir.resolve("limboauth-v1-backup.mv.db"));
             }
 
@@ -101,6 +95,18 @@ public enum DatabaseLibrary {
     this.stringGetter = stringGetter;
   }
 
+  /**
+   * Returns the libraries, that are needed to connect to the database in the directory.
+   * The legacy H2 driver is needed only if there is the database to migrate.
+   */
+  public List<BaseLibrary> getRequiredLibraries(Path dir) {
+    if (this == H2 && Files.exists(dir.resolve("limboauth.mv.db"))) {
+      return List.of(this.baseLibrary, BaseLibrary.H2_V1);
+    }
+
+    return List.of(this.baseLibrary);
+  }
+
   public Connection connect(ClassLoader classLoader, Path dir, String hostname, String database, String user, String password)
       throws ReflectiveOperationException, SQLException, IOException {
     return this.connect(classLoader, dir, this.stringGetter.getJdbcString(dir, hostname, database), user, password);
@@ -122,7 +128,16 @@ public enum DatabaseLibrary {
 
   public ConnectionSource connectToORM(Path dir, String hostname, String database, String user, String password)
       throws ReflectiveOperationException, IOException, SQLException, URISyntaxException {
-    String jdbc = this.stringGetter.getJdbcString(dir, hostname, database);
+    return this.connectToORM(dir, hostname, database, user, password, "");
+  }
+
+  /**
+   * Connects with the embedded database parameters appended to the JDBC URL, they are ignored for the network databases,
+   * which take the parameters with the database name.
+   */
+  public ConnectionSource connectToORM(Path dir, String hostname, String database, String user, String password, String embeddedParameters)
+      throws ReflectiveOperationException, IOException, SQLException, URISyntaxException {
+    String jdbc = this.stringGetter.getJdbcString(dir, hostname, database) + (this.isEmbedded() ? embeddedParameters : "");
     URL baseLibraryURL = this.baseLibrary.getClassLoaderURL();
     ClassLoader currentClassLoader = DatabaseLibrary.class.getClassLoader();
     Method addPath = currentClassLoader.getClass().getDeclaredMethod("addPath", Path.class);
@@ -134,6 +149,10 @@ public enum DatabaseLibrary {
     return new JdbcPooledConnectionSource(jdbc, h2 ? null : user, h2 ? null : password, DatabaseTypeUtils.createDatabaseType(jdbc));
   }
 
+  public boolean isEmbedded() {
+    return this == H2_LEGACY_V1 || this == H2 || this == SQLITE;
+  }
+
   private static Connection fromDriver(Class<?> connectionClass, String jdbc, String user, String password, boolean register)
       throws ReflectiveOperationException, SQLException {
     Constructor<?> legacyConstructor = connectionClass.getConstructor();
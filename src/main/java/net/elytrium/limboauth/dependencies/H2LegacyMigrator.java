@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.dependencies;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.elytrium.limboauth.LimboAuth;
+
+/**
+ * Copies the legacy H2 v1 database to the H2 v2 one in batched transactions, instead of dumping it to an SQL file.
+ * The copied rows are tracked in the v2 database, so the interrupted migration continues from the last committed batch.
+ */
+class H2LegacyMigrator {
+
+  private static final String PROGRESS_TABLE = "LIMBOAUTH_H2_MIGRATION";
+  // The schema progress is the count of the executed DDL statements.
+  private static final String SCHEMA_PROGRESS = "";
+  private static final int BATCH_SIZE = 1000;
+  private static final long LOG_INTERVAL_MILLIS = 10000;
+  // H2 v2 error codes of the objects, that were created by the DDL statement before the interruption.
+  private static final Set<Integer> ALREADY_EXISTS_ERROR_CODES = Set.of(
+      42101, 42111, 90017, 90033, 90035, 90038, 90041, 90045, 90069, 90076, 90078, 90114, 90119
+  );
+
+  private final Connection legacyConnection;
+  private final Connection modernConnection;
+
+  H2LegacyMigrator(Connection legacyConnection, Connection modernConnection) {
+    this.legacyConnection = legacyConnection;
+    this.modernConnection = modernConnection;
+  }
+
+  /**
+   * Copies the schema and the rows, and verifies the row counts.
+   * The legacy database should be renamed only after this method returns.
+   */
+  void migrate() throws SQLException {
+    boolean autoCommit = this.modernConnection.getAutoCommit();
+    this.modernConnection.setAutoCommit(true);
+    try {
+      Map<String, Long> progress = this.loadProgress();
+      this.copySchema(progress.getOrDefault(SCHEMA_PROGRESS, 0L));
+
+      this.modernConnection.setAutoCommit(false);
+      List<String> tables = this.getLegacyTables();
+      for (String table : tables) {
+        this.copyRows(table, progress.get(table));
+      }
+
+      for (String table : tables) {
+        long legacyRows = count(this.legacyConnection, table);
+        long modernRows = count(this.modernConnection, table);
+        if (legacyRows != modernRows) {
+          throw new SQLException("H2 migration of " + table + " copied " + modernRows + " rows of " + legacyRows);
+        }
+      }
+
+      this.modernConnection.setAutoCommit(true);
+      try (Statement statement = this.modernConnection.createStatement()) {
+        statement.execute("DROP TABLE " + PROGRESS_TABLE);
+      }
+
+      LimboAuth.getLogger().info("H2 migration is finished, {} tables were copied.", tables.size());
+    } finally {
+      this.modernConnection.setAutoCommit(autoCommit);
+    }
+  }
+
+  private Map<String, Long> loadProgress() throws SQLException {
+    Map<String, Long> progress = new HashMap<>();
+    try (Statement statement = this.modernConnection.createStatement()) {
+      try (ResultSet resultSet = statement.executeQuery(
+          "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA <> 'INFORMATION_SCHEMA'")) {
+        boolean started = false;
+        boolean hasTables = false;
+        while (resultSet.next()) {
+          if (resultSet.getString(1).equals(PROGRESS_TABLE)) {
+            started = true;
+          } else {
+            hasTables = true;
+          }
+        }
+
+        if (!started) {
+          if (hasTables) {
+            throw new SQLException("The H2 v2 database already has tables, so the legacy limboauth.mv.db can't be migrated into it."
+                + " Move one of the databases away to continue.");
+          }
+
+          statement.execute("CREATE TABLE " + PROGRESS_TABLE + " (TABLE_NAME VARCHAR PRIMARY KEY, PROGRESS BIGINT NOT NULL)");
+          LimboAuth.getLogger().info("Migrating the legacy H2 database, the progress is saved, so it can be interrupted.");
+          return progress;
+        }
+      }
+
+      try (ResultSet resultSet = statement.executeQuery("SELECT TABLE_NAME, PROGRESS FROM " + PROGRESS_TABLE)) {
+        while (resultSet.next()) {
+          progress.put(resultSet.getString(1), resultSet.getLong(2));
+        }
+      }
+    }
+
+    LimboAuth.getLogger().info("Continuing the interrupted migration of the legacy H2 database.");
+    return progress;
+  }
+
+  private void copySchema(long executedStatements) throws SQLException {
+    List<String> statements = new ArrayList<>();
+    try (Statement statement = this.legacyConnection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SCRIPT NODATA")) {
+      while (resultSet.next()) {
+        String sql = resultSet.getString(1);
+        if (!sql.startsWith("--")) {
+          statements.add(sql);
+        }
+      }
+    }
+
+    try (Statement statement = this.modernConnection.createStatement()) {
+      for (int i = (int) executedStatements; i < statements.size(); ++i) {
+        try {
+          statement.execute(statements.get(i));
+        } catch (SQLException e) {
+          // The first statement after the interruption could be executed without saving the progress.
+          if (i != executedStatements || !ALREADY_EXISTS_ERROR_CODES.contains(e.getErrorCode())) {
+            throw e;
+          }
+        }
+
+        this.saveProgress(SCHEMA_PROGRESS, i + 1);
+      }
+    }
+  }
+
+  private List<String> getLegacyTables() throws SQLException {
+    List<String> tables = new ArrayList<>();
+    try (Statement statement = this.legacyConnection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT TABLE_SCHEMA, TABLE_NAME FROM INFORMATION_SCHEMA.TABLES"
+            + " WHERE TABLE_TYPE = 'TABLE' AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA' ORDER BY TABLE_SCHEMA, TABLE_NAME")) {
+      while (resultSet.next()) {
+        tables.add(quote(resultSet.getString(1)) + "." + quote(resultSet.getString(2)));
+      }
+    }
+
+    return tables;
+  }
+
+  /**
+   * Copies the rows in the _ROWID_ order, the last copied _ROWID_ is saved in the same transaction as the rows.
+   */
+  private void copyRows(String table, Long lastRowId) throws SQLException {
+    long totalRows = count(this.legacyConnection, table);
+    long copiedRows = lastRowId == null ? 0 : count(this.modernConnection, table);
+    long lastLogTime = System.currentTimeMillis();
+    long rowId = lastRowId == null ? Long.MIN_VALUE : lastRowId;
+
+    try (PreparedStatement select = this.legacyConnection.prepareStatement(
+        "SELECT _ROWID_, * FROM " + table + " WHERE _ROWID_ > ? ORDER BY _ROWID_ LIMIT " + BATCH_SIZE)) {
+      PreparedStatement insert = null;
+      try {
+        while (true) {
+          select.setLong(1, rowId);
+          int batchRows = 0;
+          try (ResultSet resultSet = select.executeQuery()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columns = metaData.getColumnCount();
+            if (insert == null) {
+              insert = this.modernConnection.prepareStatement(createInsert(table, metaData));
+            }
+
+            while (resultSet.next()) {
+              rowId = resultSet.getLong(1);
+              for (int i = 2; i <= columns; ++i) {
+                insert.setObject(i - 1, resultSet.getObject(i));
+              }
+
+              insert.addBatch();
+              ++batchRows;
+            }
+          }
+
+          if (batchRows == 0) {
+            break;
+          }
+
+          insert.executeBatch();
+          this.saveProgress(table, rowId);
+          this.modernConnection.commit();
+
+          copiedRows += batchRows;
+          if (System.currentTimeMillis() - lastLogTime >= LOG_INTERVAL_MILLIS) {
+            lastLogTime = System.currentTimeMillis();
+            LimboAuth.getLogger().info("H2 migration of {}: {}/{} rows copied.", table, copiedRows, totalRows);
+          }
+        }
+      } catch (SQLException e) {
+        this.modernConnection.rollback();
+        throw e;
+      } finally {
+        if (insert != null) {
+          insert.close();
+        }
+      }
+    }
+
+    // Saved for the empty tables too, so they aren't counted again after the interruption.
+    this.saveProgress(table, rowId);
+    this.modernConnection.commit();
+    LimboAuth.getLogger().info("H2 migration of {}: {} rows copied.", table, copiedRows);
+  }
+
+  private void saveProgress(String name, long progress) throws SQLException {
+    try (PreparedStatement statement = this.modernConnection.prepareStatement(
+        "MERGE INTO " + PROGRESS_TABLE + " (TABLE_NAME, PROGRESS) KEY (TABLE_NAME) VALUES (?, ?)")) {
+      statement.setString(1, name);
+      statement.setLong(2, progress);
+      statement.executeUpdate();
+    }
+  }
+
+  private static String createInsert(String table, ResultSetMetaData metaData) throws SQLException {
+    StringBuilder columns = new StringBuilder();
+    StringBuilder values = new StringBuilder();
+    // The first column is _ROWID_.
+    for (int i = 2; i <= metaData.getColumnCount(); ++i) {
+      if (i != 2) {
+        columns.append(", ");
+        values.append(", ");
+      }
+
+      columns.append(quote(metaData.getColumnName(i)));
+      values.append('?');
+    }
+
+    return "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ")";
+  }
+
+  private static long count(Connection connection, String table) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static String quote(String identifier) {
+    return '"' + identifier.replace("\"", "\"\"") + '"';
+  }
+}
@@ -19,6 +19,7 @@ package net.elytrium.limboauth.event;
 
 import java.util.function.Consumer;
 import net.elytrium.limboapi.api.player.LimboPlayer;
+import net.elytrium.limboauth.Settings;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 
 public class PostAuthorizationEvent extends PostEvent {
@@ -26,4 +27,14 @@ public class PostAuthorizationEvent extends PostEvent {
   public PostAuthorizationEvent(Consumer<TaskEvent> onComplete, LimboPlayer player, RegisteredPlayer playerInfo, String password) {
     super(onComplete, player, playerInfo, password);
   }
+
+  @Override
+  protected long getWaitTimeout() {
+    return Settings.IMP.EVENTS.POST_AUTHORIZATION_TIMEOUT_MILLIS;
+  }
+
+  @Override
+  protected Result getTimeoutResult() {
+    return Settings.IMP.EVENTS.POST_AUTHORIZATION_TIMEOUT_RESULT;
+  }
 }
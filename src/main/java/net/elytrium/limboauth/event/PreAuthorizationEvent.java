@@ -19,6 +19,7 @@ package net.elytrium.limboauth.event;
 
 import com.velocitypowered.api.proxy.Player;
 import java.util.function.Consumer;
+import net.elytrium.limboauth.Settings;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 
 public class PreAuthorizationEvent extends PreEvent {
@@ -34,4 +35,14 @@ public class PreAuthorizationEvent extends PreEvent {
   public RegisteredPlayer getPlayerInfo() {
     return this.playerInfo;
   }
+
+  @Override
+  protected long getWaitTimeout() {
+    return Settings.IMP.EVENTS.PRE_AUTHORIZATION_TIMEOUT_MILLIS;
+  }
+
+  @Override
+  protected Result getTimeoutResult() {
+    return Settings.IMP.EVENTS.PRE_AUTHORIZATION_TIMEOUT_RESULT;
+  }
 }
@@ -19,10 +19,21 @@ package net.elytrium.limboauth.event;
 
 import com.velocitypowered.api.proxy.Player;
 import java.util.function.Consumer;
+import net.elytrium.limboauth.Settings;
 
 public class PreRegisterEvent extends PreEvent {
 
   public PreRegisterEvent(Consumer<TaskEvent> onComplete, Result result, Player player) {
     super(onComplete, result, player);
   }
+
+  @Override
+  protected long getWaitTimeout() {
+    return Settings.IMP.EVENTS.PRE_REGISTER_TIMEOUT_MILLIS;
+  }
+
+  @Override
+  protected Result getTimeoutResult() {
+    return Settings.IMP.EVENTS.PRE_REGISTER_TIMEOUT_RESULT;
+  }
 }
@@ -17,6 +17,13 @@
 
 package net.elytrium.limboauth.event;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import net.elytrium.limboauth.LimboAuth;
 import net.elytrium.limboauth.Settings;
@@ -25,59 +32,148 @@ import org.jetbrains.annotations.NotNull;
 
 public abstract class TaskEvent {
 
+  private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+  private static final ScheduledThreadPoolExecutor DEADLINES;
+
   private static Component DEFAULT_REASON;
+  private static Component TIMEOUT_REASON;
 
   private final Consumer<TaskEvent> onComplete;
+  private final AtomicReference<Result> result;
+  private final AtomicBoolean finished = new AtomicBoolean();
 
-  private Result result = Result.NORMAL;
-  private Component reason = DEFAULT_REASON;
+  private volatile Component reason = DEFAULT_REASON;
+  private volatile String waitingListener;
+  private volatile long waitStartNanos;
+  private volatile ScheduledFuture<?> deadline;
 
   public TaskEvent(Consumer<TaskEvent> onComplete) {
-    this.onComplete = onComplete;
+    this(onComplete, Result.NORMAL);
   }
 
   public TaskEvent(Consumer<TaskEvent> onComplete, Result result) {
     this.onComplete = onComplete;
-    this.result = result;
+    this.result = new AtomicReference<>(result);
   }
 
+  /**
+   * Completes the waiting event, only the first completion is applied if several threads complete the event at the same time.
+   */
   public void complete(@NotNull Result result) {
-    if (this.result != Result.WAIT) {
-      return;
+    if (this.result.compareAndSet(Result.WAIT, result)) {
+      this.finish();
     }
-
-    this.result = result;
-    this.onComplete.accept(this);
   }
 
   public void completeAndCancel(@NotNull Component reason) {
-    if (this.result != Result.WAIT) {
-      return;
+    if (this.result.compareAndSet(Result.WAIT, Result.CANCEL)) {
+      this.reason = reason;
+      this.finish();
     }
-
-    this.cancel(reason);
-    this.onComplete.accept(this);
   }
 
   public void cancel(@NotNull Component reason) {
-    this.result = Result.CANCEL;
     this.reason = reason;
+    this.result.set(Result.CANCEL);
   }
 
   public void setResult(@NotNull Result result) {
-    this.result = result;
+    if (result == Result.WAIT && this.result.getAndSet(result) != Result.WAIT) {
+      this.waitingListener = STACK_WALKER.getCallerClass().getName();
+      this.waitStartNanos = System.nanoTime();
+    } else {
+      this.result.set(result);
+    }
   }
 
   public Result getResult() {
-    return this.result;
+    return this.result.get();
   }
 
   public Component getReason() {
     return this.reason;
   }
 
+  /**
+   * Called by LimboAuth when all the listeners have handled the event.
+   * Completes the event, or starts the deadline if a listener has asked to wait.
+   */
+  public void dispatched() {
+    if (this.getResult() != Result.WAIT) {
+      this.finish();
+      return;
+    }
+
+    long timeout = this.getWaitTimeout();
+    if (timeout > 0) {
+      this.deadline = DEADLINES.schedule(this::expire, timeout, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Returns how long the listeners can keep the event in the {@link Result#WAIT} state, 0 to wait forever.
+   */
+  protected long getWaitTimeout() {
+    return 0;
+  }
+
+  /**
+   * Returns the result applied when the listeners haven't completed the event in time.
+   */
+  protected Result getTimeoutResult() {
+    return Result.CANCEL;
+  }
+
+  private void expire() {
+    Result timeoutResult = this.getTimeoutResult();
+    if (timeoutResult == Result.WAIT) {
+      timeoutResult = Result.CANCEL;
+    }
+
+    if (this.result.compareAndSet(Result.WAIT, timeoutResult)) {
+      LimboAuth.getLogger().warn("{} was not completed by {} in {} ms, applying {}.",
+          this.getClass().getSimpleName(), this.waitingListener, this.getWaitTimeout(), timeoutResult);
+      LimboAuth.getMetrics().counter("limboauth_event_wait_timeouts_total", "Events that were not completed by the listeners in time.",
+          Map.of("event", this.getClass().getSimpleName(), "listener", this.getWaitingListener())).increment();
+      this.reason = TIMEOUT_REASON;
+      this.finish();
+    }
+  }
+
+  private void finish() {
+    if (!this.finished.compareAndSet(false, true)) {
+      return;
+    }
+
+    ScheduledFuture<?> deadline = this.deadline;
+    if (deadline != null) {
+      deadline.cancel(false);
+    }
+
+    if (this.waitStartNanos != 0) {
+      LimboAuth.getMetrics().histogram("limboauth_event_wait_seconds", "Time spent by events in the WAIT state.",
+          Map.of("event", this.getClass().getSimpleName(), "listener", this.getWaitingListener())).observeNanos(System.nanoTime() - this.waitStartNanos);
+    }
+
+    this.onComplete.accept(this);
+  }
+
+  private String getWaitingListener() {
+    return this.waitingListener == null ? "unknown" : this.waitingListener;
+  }
+
   public static void reload() {
     DEFAULT_REASON = LimboAuth.getSerializer().deserialize(Settings.IMP.MAIN.STRINGS.EVENT_CANCELLED);
+    TIMEOUT_REASON = LimboAuth.getSerializer().deserialize(Settings.IMP.MAIN.STRINGS.EVENT_TIMED_OUT);
+  }
+
+  static {
+    DEADLINES = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+        .setNameFormat("LimboAuth Event Deadlines")
+        .setDaemon(true)
+        .build());
+    // Most of the deadlines are cancelled, they shouldn't stay in the queue until the timeout.
+    DEADLINES.setRemoveOnCancelPolicy(true);
   }
 
   public enum Result {
@@ -33,7 +33,9 @@ import java.sql.SQLException;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -46,9 +48,16 @@ import net.elytrium.limboauth.Settings;
 import net.elytrium.limboauth.event.PostAuthorizationEvent;
 import net.elytrium.limboauth.event.PostRegisterEvent;
 import net.elytrium.limboauth.event.TaskEvent;
+import net.elytrium.limboauth.jfr.AuthFinishedEvent;
+import net.elytrium.limboauth.jfr.LimboSpawnEvent;
+import net.elytrium.limboauth.jfr.PasswordVerifyEvent;
+import net.elytrium.limboauth.metrics.Counter;
+import net.elytrium.limboauth.metrics.Histogram;
+import net.elytrium.limboauth.migration.HashFormat;
 import net.elytrium.limboauth.migration.MigrationHash;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.storage.PlayerRepository;
 import net.kyori.adventure.bossbar.BossBar;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.title.Title;
@@ -59,6 +68,16 @@ public class AuthSessionHandler implements LimboSessionHandler {
   private static final CodeVerifier TOTP_CODE_VERIFIER = new DefaultCodeVerifier(new DefaultCodeGenerator(), new SystemTimeProvider());
   private static final BCrypt.Verifyer HASH_VERIFIER = BCrypt.verifyer();
   private static final BCrypt.Hasher HASHER = BCrypt.withDefaults();
+  private static final Histogram FETCH_BY_NICKNAME_TIME = LimboAuth.getMetrics().histogram("limboauth_db_fetch_seconds",
+      "Time spent fetching the accounts from the database.", Map.of("by", "nickname"));
+  private static final Histogram FETCH_BY_PREMIUM_UUID_TIME = LimboAuth.getMetrics().histogram("limboauth_db_fetch_seconds",
+      "Time spent fetching the accounts from the database.", Map.of("by", "premium_uuid"));
+  private static final Histogram TOTP_VERIFY_TIME = LimboAuth.getMetrics().histogram("limboauth_totp_verify_seconds", "Time spent verifying TOTP codes.");
+  private static final Histogram LIMBO_TIME = LimboAuth.getMetrics().histogram("limboauth_limbo_seconds", "Time spent by players in the auth limbo.");
+  private static final Counter BRUTEFORCE_KICKS = LimboAuth.getMetrics().counter("limboauth_bruteforce_kicks_total",
+      "Players kicked because of too many wrong passwords from their IP address.");
+  private static final Counter CHAT_RATELIMITED = LimboAuth.getMetrics().counter("limboauth_ratelimited_total",
+      "Commands ignored by the IP address ratelimiter.", Map.of("source", "chat"));
 
   private static Component ratelimited;
   private static BossBar.Color bossbarColor;
@@ -86,6 +105,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
   private static Component registerPasswordTooShort;
   private static Component registerPasswordUnsafe;
   private static Component loginSuccessful;
+  private static Component loginQueueOverloaded;
   private static Component sessionExpired;
   @Nullable
   private static Title loginSuccessfulTitle;
@@ -95,6 +115,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
   private final Dao<RegisteredPlayer, String> playerDao;
   private final Player proxyPlayer;
   private final LimboAuth plugin;
+  private final Runnable onLeave;
 
   private final long joinTime = System.currentTimeMillis();
   private final BossBar bossBar = BossBar.bossBar(
@@ -104,6 +125,8 @@ public class AuthSessionHandler implements LimboSessionHandler {
       bossbarOverlay
   );
   private final boolean loginOnlyByMod = Settings.IMP.MAIN.MOD.ENABLED && Settings.IMP.MAIN.MOD.LOGIN_ONLY_BY_MOD;
+  private final LimboSpawnEvent spawnEvent = new LimboSpawnEvent();
+  private final AuthFinishedEvent authFinishedEvent = new AuthFinishedEvent();
 
   @Nullable
   private RegisteredPlayer playerInfo;
@@ -115,17 +138,32 @@ public class AuthSessionHandler implements LimboSessionHandler {
   private boolean totpState;
   private String tempPassword;
   private boolean tokenReceived;
+  private boolean registered;
+  private long extraTime;
+  @Nullable
+  private CompletableFuture<Boolean> verification;
 
-  public AuthSessionHandler(Dao<RegisteredPlayer, String> playerDao, Player proxyPlayer, LimboAuth plugin, @Nullable RegisteredPlayer playerInfo) {
+  /**
+   * Creates the handler.
+   *
+   * @param onLeave called once the player leaves the auth limbo
+   */
+  public AuthSessionHandler(Dao<RegisteredPlayer, String> playerDao, Player proxyPlayer, LimboAuth plugin, @Nullable RegisteredPlayer playerInfo,
+      Runnable onLeave) {
     this.playerDao = playerDao;
     this.proxyPlayer = proxyPlayer;
     this.plugin = plugin;
     this.playerInfo = playerInfo;
+    this.onLeave = onLeave;
+
+    this.spawnEvent.begin();
   }
 
   @Override
   public void onSpawn(Limbo server, LimboPlayer player) {
     this.player = player;
+    this.spawnEvent.finish(this.proxyPlayer.getUsername());
+    this.authFinishedEvent.begin();
 
     if (Settings.IMP.MAIN.DISABLE_FALLING) {
       this.player.disableFalling();
@@ -173,11 +211,12 @@ public class AuthSessionHandler implements LimboSessionHandler {
     int authTime = Settings.IMP.MAIN.AUTH_TIME;
     float multiplier = 1000.0F / authTime;
     this.authMainTask = this.player.getScheduledExecutor().scheduleWithFixedDelay(() -> {
-      if (System.currentTimeMillis() - this.joinTime > authTime) {
+      long timeLeft = this.getTimeLeft();
+      if (timeLeft < 0 && this.verification == null) {
         this.proxyPlayer.disconnect(timesUp);
       } else {
         if (bossBarEnabled) {
-          float secondsLeft = (authTime - (System.currentTimeMillis() - this.joinTime)) / 1000.0F;
+          float secondsLeft = Math.max(0, timeLeft) / 1000.0F;
           this.bossBar.name(serializer.deserialize(MessageFormat.format(Settings.IMP.MAIN.STRINGS.BOSSBAR, (int) secondsLeft)));
           // It's possible, that the progress value can overcome 1, e.g. 1.0000001.
           this.bossBar.progress(Math.min(1.0F, secondsLeft * multiplier));
@@ -201,6 +240,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
     }
 
     if (!LimboAuth.RATELIMITER.attempt(this.proxyPlayer.getRemoteAddress().getAddress())) {
+      CHAT_RATELIMITED.increment();
       this.proxyPlayer.sendMessage(AuthSessionHandler.ratelimited);
       return;
     }
@@ -216,7 +256,9 @@ public class AuthSessionHandler implements LimboSessionHandler {
 
           try {
             this.playerDao.create(registeredPlayer);
+            this.plugin.getRegisteredPlayerCount().increment();
             this.playerInfo = registeredPlayer;
+            this.registered = true;
           } catch (SQLException e) {
             this.proxyPlayer.disconnect(databaseErrorKick);
             throw new SQLRuntimeException(e);
@@ -229,7 +271,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
 
           this.plugin.getServer().getEventManager()
               .fire(new PostRegisterEvent(this::finishAuth, this.player, this.playerInfo, this.tempPassword))
-              .thenAcceptAsync(this::finishAuth);
+              .thenAcceptAsync(TaskEvent::dispatched);
         }
 
         // {@code return} placed here (not above), because
@@ -238,26 +280,56 @@ public class AuthSessionHandler implements LimboSessionHandler {
         // If we don't place {@code return} here, an another message (AuthSessionHandler#sendMessage) will be sent.
         return;
       } else if (command == Command.LOGIN && !this.totpState && this.playerInfo != null) {
+        if (this.verification != null) {
+          return;
+        }
+
         String password = args[1];
         this.saveTempPassword(password);
 
-        if (password.length() > 0 && checkPassword(password, this.playerInfo, this.playerDao)) {
-          if (this.playerInfo.getTotpToken().isEmpty()) {
-            this.finishLogin();
+        if (password.length() == 0) {
+          this.onWrongPassword();
+          return;
+        }
+
+        RegisteredPlayer playerInfo = this.playerInfo;
+        CompletableFuture<Boolean> verification = this.plugin.getHashVerificationQueue()
+            .submit(this.proxyPlayer.getRemoteAddress().getAddress(), this.getTimeLeft(), () -> checkPassword(password, playerInfo, this.playerDao));
+        if (verification == null) {
+          this.proxyPlayer.sendMessage(loginQueueOverloaded);
+          return;
+        }
+
+        long submitTime = System.currentTimeMillis();
+        this.verification = verification;
+        verification.whenCompleteAsync((isCorrect, throwable) -> {
+          this.verification = null;
+          this.extraTime += System.currentTimeMillis() - submitTime;
+          if (!this.proxyPlayer.isActive()) {
+            return;
+          }
+
+          if (throwable != null) {
+            this.proxyPlayer.disconnect(databaseErrorKick);
+            LimboAuth.getLogger().error("Unable to verify the password of {}", this.proxyPlayer.getUsername(), throwable);
+          } else if (isCorrect) {
+            if (playerInfo.getTotpToken().isEmpty()) {
+              this.finishLogin();
+            } else {
+              this.totpState = true;
+              this.sendMessage(true);
+            }
           } else {
-            this.totpState = true;
-            this.sendMessage(true);
+            this.onWrongPassword();
           }
-        } else if (--this.attempts != 0) {
-          this.proxyPlayer.sendMessage(loginWrongPassword[this.attempts - 1]);
-          this.checkBruteforceAttempts();
-        } else {
-          this.proxyPlayer.disconnect(loginWrongPasswordKick);
-        }
+        }, this.player.getScheduledExecutor());
 
         return;
       } else if (command == Command.TOTP && this.totpState && this.playerInfo != null) {
-        if (TOTP_CODE_VERIFIER.isValidCode(this.playerInfo.getTotpToken(), args[1])) {
+        long verifyStartTime = System.nanoTime();
+        boolean validCode = TOTP_CODE_VERIFIER.isValidCode(this.playerInfo.getTotpToken(), args[1]);
+        TOTP_VERIFY_TIME.observeNanos(System.nanoTime() - verifyStartTime);
+        if (validCode) {
           this.finishLogin();
           return;
         } else {
@@ -310,13 +382,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
           return;
         }
 
-        byte[] lowercaseNicknameSerialized = this.playerInfo.getLowercaseNickname().getBytes(StandardCharsets.UTF_8);
-        long correctHash = SipHasher.init(Settings.IMP.MAIN.MOD.VERIFY_KEY)
-            .update(lowercaseNicknameSerialized)
-            .update(Longs.toByteArray(issueTime))
-            .digest();
-
-        if (hash != correctHash) {
+        if (hash != getModTokenHash(this.playerInfo.getLowercaseNickname(), issueTime)) {
           this.checkBruteforceAttempts();
           this.proxyPlayer.sendMessage(sessionExpired);
           return;
@@ -327,9 +393,19 @@ public class AuthSessionHandler implements LimboSessionHandler {
     }
   }
 
+  private void onWrongPassword() {
+    if (--this.attempts != 0) {
+      this.proxyPlayer.sendMessage(loginWrongPassword[this.attempts - 1]);
+      this.checkBruteforceAttempts();
+    } else {
+      this.proxyPlayer.disconnect(loginWrongPasswordKick);
+    }
+  }
+
   private void checkBruteforceAttempts() {
     this.plugin.incrementBruteforceAttempts(this.proxyPlayer.getRemoteAddress().getAddress());
     if (this.plugin.getBruteforceAttempts(this.proxyPlayer.getRemoteAddress().getAddress()) >= Settings.IMP.MAIN.BRUTEFORCE_MAX_ATTEMPTS) {
+      BRUTEFORCE_KICKS.increment();
       this.proxyPlayer.disconnect(loginWrongPasswordKick);
     }
   }
@@ -344,7 +420,19 @@ public class AuthSessionHandler implements LimboSessionHandler {
       this.authMainTask.cancel(true);
     }
 
+    if (this.verification != null) {
+      // Lets the queue skip the verification if it hasn't started yet.
+      this.verification.cancel(false);
+    }
+
     this.proxyPlayer.hideBossBar(this.bossBar);
+    LIMBO_TIME.observe((System.currentTimeMillis() - this.joinTime) / 1000.0);
+    this.onLeave.run();
+  }
+
+  private long getTimeLeft() {
+    // The time spent in the password verification queue is not counted.
+    return Settings.IMP.MAIN.AUTH_TIME + this.extraTime - (System.currentTimeMillis() - this.joinTime);
   }
 
   private void sendMessage(boolean sendTitle) {
@@ -415,7 +503,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
 
     this.plugin.getServer().getEventManager()
         .fire(new PostAuthorizationEvent(this::finishAuth, this.player, this.playerInfo, this.tempPassword))
-        .thenAcceptAsync(this::finishAuth);
+        .thenAcceptAsync(TaskEvent::dispatched);
   }
 
   private void finishAuth(TaskEvent event) {
@@ -443,6 +531,8 @@ public class AuthSessionHandler implements LimboSessionHandler {
     }
 
     this.plugin.cacheAuthUser(this.proxyPlayer);
+    this.plugin.stopJoinTimer(this.proxyPlayer.getUsername(), "limbo");
+    this.authFinishedEvent.finish(this.proxyPlayer.getUsername(), this.registered);
     this.player.disconnect();
   }
 
@@ -509,6 +599,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
     registerPasswordTooShort = serializer.deserialize(Settings.IMP.MAIN.STRINGS.REGISTER_PASSWORD_TOO_SHORT);
     registerPasswordUnsafe = serializer.deserialize(Settings.IMP.MAIN.STRINGS.REGISTER_PASSWORD_UNSAFE);
     loginSuccessful = serializer.deserialize(Settings.IMP.MAIN.STRINGS.LOGIN_SUCCESSFUL);
+    loginQueueOverloaded = serializer.deserialize(Settings.IMP.MAIN.STRINGS.LOGIN_QUEUE_OVERLOADED);
     sessionExpired = serializer.deserialize(Settings.IMP.MAIN.STRINGS.MOD_SESSION_EXPIRED);
     if (Settings.IMP.MAIN.STRINGS.LOGIN_SUCCESSFUL_TITLE.isEmpty() && Settings.IMP.MAIN.STRINGS.LOGIN_SUCCESSFUL_SUBTITLE.isEmpty()) {
       loginSuccessfulTitle = null;
@@ -524,8 +615,12 @@ public class AuthSessionHandler implements LimboSessionHandler {
   }
 
   public static boolean checkPassword(String password, RegisteredPlayer player, Dao<RegisteredPlayer, String> playerDao) {
+    PasswordVerifyEvent event = new PasswordVerifyEvent();
+    event.begin();
     String hash = player.getHash();
-    boolean isCorrect = HASH_VERIFIER.verify(
+    boolean bcrypt = HashFormat.isBcrypt(hash);
+    // Legacy hashes can't be BCrypt hashes, so there is no need to waste time on BCrypt verification.
+    boolean isCorrect = bcrypt && HASH_VERIFIER.verify(
         password.getBytes(StandardCharsets.UTF_8),
         hash.replace("BCRYPT$", "$2a$").getBytes(StandardCharsets.UTF_8)
     ).verified;
@@ -542,24 +637,63 @@ public class AuthSessionHandler implements LimboSessionHandler {
       }
     }
 
+    event.finish(player.getLowercaseNickname(), bcrypt, isCorrect);
     return isCorrect;
   }
 
+  /**
+   * Signs the token issued to the LimboAuth client mod, the same key should be used by the server hash issuer.
+   */
+  public static long getModTokenHash(String lowercaseNickname, long issueTime) {
+    return SipHasher.init(Settings.IMP.MAIN.MOD.VERIFY_KEY)
+        .update(lowercaseNickname.getBytes(StandardCharsets.UTF_8))
+        .update(Longs.toByteArray(issueTime))
+        .digest();
+  }
+
   public static RegisteredPlayer fetchInfo(Dao<RegisteredPlayer, String> playerDao, UUID uuid) {
+    long startTime = System.nanoTime();
     try {
-      List<RegisteredPlayer> playerList = playerDao.queryForEq(RegisteredPlayer.PREMIUM_UUID_FIELD, uuid.toString());
+      List<RegisteredPlayer> playerList = playerDao.queryForEq(RegisteredPlayer.PREMIUM_UUID_FIELD, uuid);
       return (playerList != null ? playerList.size() : 0) == 0 ? null : playerList.get(0);
     } catch (SQLException e) {
       throw new SQLRuntimeException(e);
+    } finally {
+      FETCH_BY_PREMIUM_UUID_TIME.observeNanos(System.nanoTime() - startTime);
     }
   }
 
   public static RegisteredPlayer fetchInfo(Dao<RegisteredPlayer, String> playerDao, String nickname) {
+    long startTime = System.nanoTime();
     try {
       List<RegisteredPlayer> playerList = playerDao.queryForEq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, nickname.toLowerCase(Locale.ROOT));
       return (playerList != null ? playerList.size() : 0) == 0 ? null : playerList.get(0);
     } catch (SQLException e) {
       throw new SQLRuntimeException(e);
+    } finally {
+      FETCH_BY_NICKNAME_TIME.observeNanos(System.nanoTime() - startTime);
+    }
+  }
+
+  public static RegisteredPlayer fetchInfo(PlayerRepository playerRepository, UUID uuid) {
+    long startTime = System.nanoTime();
+    try {
+      return playerRepository.findByPremiumUuid(uuid);
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    } finally {
+      FETCH_BY_PREMIUM_UUID_TIME.observeNanos(System.nanoTime() - startTime);
+    }
+  }
+
+  public static RegisteredPlayer fetchInfo(PlayerRepository playerRepository, String nickname) {
+    long startTime = System.nanoTime();
+    try {
+      return playerRepository.findByNickname(nickname);
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    } finally {
+      FETCH_BY_NICKNAME_TIME.observeNanos(System.nanoTime() - startTime);
     }
   }
 
@@ -575,7 +709,7 @@ public class AuthSessionHandler implements LimboSessionHandler {
     return TOTP_CODE_VERIFIER;
   }
 
-  private enum Command {
+  enum Command {
 
     INVALID,
     REGISTER,
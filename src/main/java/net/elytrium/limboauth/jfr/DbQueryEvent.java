@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("net.elytrium.limboauth.DbQuery")
+@Label("Database Query")
+@Category({"LimboAuth", "Database"})
+@StackTrace(false)
+public class DbQueryEvent extends jdk.jfr.Event {
+
+  @Label("Table")
+  String table;
+
+  @Label("Method")
+  String method;
+
+  @Label("SQL")
+  @Description("Statement with the literals replaced by ?, or the DAO method with the queried field if there is no statement")
+  String sql;
+
+  @Label("Rows")
+  @Description("Returned or changed rows, -1 if the call failed")
+  long rows;
+}
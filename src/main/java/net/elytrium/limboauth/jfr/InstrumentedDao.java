@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.jfr;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedStmt;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.regex.Pattern;
+import jdk.jfr.EventType;
+
+/**
+ * Records every DAO call as the {@link DbQueryEvent}.
+ * When the event is disabled, the call costs only the proxy dispatch, the event is not created and the statement is not inspected.
+ */
+public final class InstrumentedDao implements InvocationHandler {
+
+  private static final EventType EVENT_TYPE = EventType.getEventType(DbQueryEvent.class);
+  // ORMLite inlines the values into the statements, they are replaced so the events don't contain the player data.
+  private static final Pattern LITERAL_PATTERN = Pattern.compile("'(?:[^']|'')*'|\\b\\d+\\b");
+  // Methods that don't access the database.
+  private static final Set<String> LOCAL_METHODS = Set.of(
+      "objectToString", "objectsEqual", "extractId", "findForeignFieldType", "isUpdatable", "clearObjectCache", "mapSelectStarRow",
+      "assignEmptyForeignCollection", "closeLastIterator", "registerObserver", "unregisterObserver", "notifyChanges"
+  );
+
+  private final Dao<?, ?> delegate;
+  private final String table;
+
+  private InstrumentedDao(Dao<?, ?> delegate) {
+    this.delegate = delegate;
+    this.table = delegate.getTableName();
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T, K> Dao<T, K> wrap(Dao<T, K> dao) {
+    return (Dao<T, K>) Proxy.newProxyInstance(Dao.class.getClassLoader(), new Class<?>[] {Dao.class}, new InstrumentedDao(dao));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    // The type is enabled only while a recording that includes the event is running.
+    if (!EVENT_TYPE.isEnabled() || method.getDeclaringClass() == Object.class
+        || name.startsWith("get") || name.startsWith("set") || name.endsWith("Builder") || LOCAL_METHODS.contains(name)) {
+      try {
+        return method.invoke(this.delegate, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    DbQueryEvent event = new DbQueryEvent();
+    event.begin();
+    Object result = null;
+    boolean failed = true;
+    try {
+      result = method.invoke(this.delegate, args);
+      failed = false;
+      return result;
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.table = this.table;
+        event.method = name;
+        event.sql = getShape(method, args);
+        event.rows = failed ? -1 : getRows(result);
+        event.commit();
+      }
+    }
+  }
+
+  private static String getShape(Method method, Object[] args) {
+    if (args != null && args.length != 0) {
+      if (args[0] instanceof PreparedStmt) {
+        try {
+          return LITERAL_PATTERN.matcher(((PreparedStmt<?>) args[0]).getStatement()).replaceAll("?");
+        } catch (SQLException e) {
+          return method.getName() + "(?)";
+        }
+      } else if (args[0] instanceof String && (method.getName().startsWith("queryRaw") || method.getName().startsWith("executeRaw")
+          || method.getName().equals("updateRaw"))) {
+        return LITERAL_PATTERN.matcher((String) args[0]).replaceAll("?");
+      } else if (method.getName().equals("queryForEq")) {
+        return "queryForEq(" + args[0] + ")";
+      }
+    }
+
+    return method.getName() + "()";
+  }
+
+  private static long getRows(Object result) {
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    } else if (result instanceof Integer) {
+      // create, update and delete return the amount of the changed rows.
+      return (Integer) result;
+    } else {
+      return result == null ? 0 : 1;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("net.elytrium.limboauth.LimboSpawn")
+@Label("Limbo Spawn")
+@Category({"LimboAuth", "Login"})
+@Description("Time from the spawn request until the player is spawned in the auth limbo")
+@StackTrace(false)
+public class LimboSpawnEvent extends jdk.jfr.Event {
+
+  @Label("Player Hash")
+  private long playerHash;
+
+  public void finish(String nickname) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.playerHash = PlayerHash.of(nickname);
+      this.commit();
+    }
+  }
+}
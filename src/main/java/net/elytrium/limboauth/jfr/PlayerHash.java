@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.jfr;
+
+import io.whitfin.siphash.SipHasher;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Locale;
+
+/**
+ * Identifies the player in the recorded events without the nickname.
+ * The key is generated on every start, so the hashes can be correlated only within one recording.
+ */
+final class PlayerHash {
+
+  private static final byte[] KEY = new byte[16];
+
+  static {
+    new SecureRandom().nextBytes(KEY);
+  }
+
+  private PlayerHash() {
+  }
+
+  static long of(String nickname) {
+    return SipHasher.hash(KEY, nickname.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+  }
+}
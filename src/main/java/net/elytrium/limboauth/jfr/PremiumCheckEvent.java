@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("net.elytrium.limboauth.PremiumCheck")
+@Label("Premium Check")
+@Category({"LimboAuth", "Login"})
+@Description("Check if the nickname belongs to a premium account, with the database or with the premium API")
+@StackTrace(false)
+public class PremiumCheckEvent extends jdk.jfr.Event {
+
+  @Label("Player Hash")
+  private long playerHash;
+
+  @Label("Source")
+  @Description("internal for the database check, external for the premium API check")
+  private String source;
+
+  @Label("State")
+  private String state;
+
+  public void finish(String nickname, String source, String state) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.playerHash = PlayerHash.of(nickname);
+      this.source = source;
+      this.state = state;
+      this.commit();
+    }
+  }
+}
@@ -17,8 +17,7 @@
 
 package net.elytrium.limboauth.listener;
 
-import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.stmt.UpdateBuilder;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
@@ -35,16 +34,20 @@ import com.velocitypowered.proxy.protocol.packet.ServerLogin;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.sql.SQLException;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import net.elytrium.commons.utils.reflection.ReflectionException;
 import net.elytrium.limboapi.api.event.LoginLimboRegisterEvent;
 import net.elytrium.limboauth.LimboAuth;
 import net.elytrium.limboauth.Settings;
 import net.elytrium.limboauth.floodgate.FloodgateApiHolder;
-import net.elytrium.limboauth.handler.AuthSessionHandler;
 import net.elytrium.limboauth.model.RegisteredPlayer;
 import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.storage.PlayerRepository;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 // TODO: Customizable events priority
 public class AuthListener {
@@ -53,26 +56,34 @@ public class AuthListener {
   private static final MethodHandle LOGIN_FIELD;
 
   private final LimboAuth plugin;
-  private final Dao<RegisteredPlayer, String> playerDao;
   private final FloodgateApiHolder floodgateApi;
 
-  public AuthListener(LimboAuth plugin, Dao<RegisteredPlayer, String> playerDao, FloodgateApiHolder floodgateApi) {
+  public AuthListener(LimboAuth plugin, FloodgateApiHolder floodgateApi) {
     this.plugin = plugin;
-    this.playerDao = playerDao;
     this.floodgateApi = floodgateApi;
   }
 
   @Subscribe
-  public void onPreLoginEvent(PreLoginEvent event) {
-    if (!event.getResult().isForceOfflineMode()) {
+  public EventTask onPreLoginEvent(PreLoginEvent event) {
+    if (event.getResult().isAllowed()) {
+      this.plugin.startJoinTimer(event.getUsername());
+      this.plugin.prefetchPlayerInfo(event.getUsername());
+    }
+
+    if (event.getResult().isForceOfflineMode()) {
+      this.plugin.saveForceOfflineMode(event.getUsername());
+      return null;
+    }
+
+    // The premium check waits for the database and the premium API, so it doesn't hold the event thread.
+    // The internal check reuses the prefetched account, so the check starts once it is fetched instead of waiting for it on a pool thread.
+    return EventTask.resumeWhenComplete(this.afterPrefetch(event.getUsername(), prefetched -> {
       if (this.plugin.isPremium(event.getUsername())) {
         event.setResult(PreLoginEvent.PreLoginComponentResult.forceOnlineMode());
       } else {
         event.setResult(PreLoginEvent.PreLoginComponentResult.forceOfflineMode());
       }
-    } else {
-      this.plugin.saveForceOfflineMode(event.getUsername());
-    }
+    }));
   }
 
   // Temporarily disabled because some clients send UUID version 4 (random UUID) even if the player is cracked
@@ -98,6 +109,8 @@ public class AuthListener {
   @Subscribe
   public void onProxyDisconnect(DisconnectEvent event) {
     this.plugin.unsetForcedPreviously(event.getPlayer().getUsername());
+    this.plugin.removePrefetchedPlayerInfo(event.getPlayer().getUsername());
+    this.plugin.removeJoinTimer(event.getPlayer().getUsername());
   }
 
   @Subscribe
@@ -117,42 +130,85 @@ public class AuthListener {
   public void onLoginLimboRegister(LoginLimboRegisterEvent event) {
     if (this.plugin.needAuth(event.getPlayer())) {
       event.addOnJoinCallback(() -> this.plugin.authPlayer(event.getPlayer()));
+    } else {
+      this.plugin.removePrefetchedPlayerInfo(event.getPlayer().getUsername());
+      this.plugin.stopJoinTimer(event.getPlayer().getUsername(), "session");
     }
   }
 
   @Subscribe(order = PostOrder.FIRST)
-  public void onGameProfileRequest(GameProfileRequestEvent event) {
+  public EventTask onGameProfileRequest(GameProfileRequestEvent event) {
+    return EventTask.resumeWhenComplete(this.afterPrefetch(event.getUsername(), prefetched -> this.handleGameProfileRequest(event, prefetched)));
+  }
+
+  /**
+   * @param prefetched the completed account fetched on the pre-login stage, or null if it wasn't prefetched or the prefetch failed
+   */
+  private void handleGameProfileRequest(GameProfileRequestEvent event, @Nullable CompletableFuture<RegisteredPlayer> prefetched) {
+    PlayerRepository playerRepository = this.plugin.getPlayerRepository();
     if (Settings.IMP.MAIN.SAVE_UUID && (this.floodgateApi == null || !this.floodgateApi.isFloodgatePlayer(event.getOriginalProfile().getId()))) {
-      RegisteredPlayer registeredPlayer = AuthSessionHandler.fetchInfo(this.playerDao, event.getOriginalProfile().getId());
+      UUID premiumUuid = event.getOriginalProfile().getId();
+      String lowercaseNickname = event.getUsername().toLowerCase(Locale.ROOT);
+      RegisteredPlayer premiumPlayer = null;
+      RegisteredPlayer registeredPlayer = null;
+      try {
+        if (prefetched == null) {
+          // Both lookups are made with one query, the premium UUID match has the priority.
+          for (RegisteredPlayer player : playerRepository.findByPremiumUuidOrNickname(premiumUuid, lowercaseNickname)) {
+            if (premiumPlayer == null && premiumUuid.equals(player.getPremiumUuidValue())) {
+              premiumPlayer = player;
+            }
+
+            if (lowercaseNickname.equals(player.getLowercaseNickname())) {
+              registeredPlayer = player;
+            }
+          }
+        } else {
+          registeredPlayer = prefetched.join();
+          if (registeredPlayer != null && premiumUuid.equals(registeredPlayer.getPremiumUuidValue())) {
+            premiumPlayer = registeredPlayer;
+          } else if (event.isOnlineMode()) {
+            // Premium UUIDs are saved only for online mode and Floodgate players, so offline mode UUIDs can't match them.
+            premiumPlayer = playerRepository.findByPremiumUuid(premiumUuid);
+          }
+        }
+      } catch (SQLException e) {
+        throw new SQLRuntimeException(e);
+      }
 
-      if (registeredPlayer != null && !registeredPlayer.getUuid().isEmpty()) {
-        event.setGameProfile(event.getOriginalProfile().withId(UUID.fromString(registeredPlayer.getUuid())));
+      UUID premiumPlayerUuid = premiumPlayer == null ? null : premiumPlayer.getUuidValue();
+      if (premiumPlayerUuid != null) {
+        event.setGameProfile(event.getOriginalProfile().withId(premiumPlayerUuid));
         return;
       }
-      registeredPlayer = AuthSessionHandler.fetchInfo(this.playerDao, event.getUsername());
 
       if (registeredPlayer != null) {
-        String currentUuid = registeredPlayer.getUuid();
+        UUID currentUuid = registeredPlayer.getUuidValue();
 
-        if (currentUuid.isEmpty()) {
+        if (currentUuid == null) {
           try {
-            registeredPlayer.setUuid(event.getGameProfile().getId().toString());
-            this.playerDao.update(registeredPlayer);
+            playerRepository.setUuidIfEmpty(lowercaseNickname, event.getGameProfile().getId());
+            // Keeps the prefetched account up to date for the next login stages.
+            registeredPlayer.setUuid(event.getGameProfile().getId());
           } catch (SQLException e) {
             throw new SQLRuntimeException(e);
           }
         } else {
-          event.setGameProfile(event.getOriginalProfile().withId(UUID.fromString(currentUuid)));
+          event.setGameProfile(event.getOriginalProfile().withId(currentUuid));
         }
       }
     } else if (event.isOnlineMode()) {
-      try {
-        UpdateBuilder<RegisteredPlayer, String> updateBuilder = this.playerDao.updateBuilder();
-        updateBuilder.where().eq(RegisteredPlayer.NICKNAME_FIELD, event.getUsername());
-        updateBuilder.updateColumnValue(RegisteredPlayer.HASH_FIELD, "");
-        updateBuilder.update();
-      } catch (SQLException e) {
-        throw new SQLRuntimeException(e);
+      RegisteredPlayer prefetchedPlayer = prefetched == null ? null : prefetched.join();
+      // There is nothing to update if the prefetched account doesn't exist or has no password.
+      if (prefetched == null || prefetchedPlayer != null && !prefetchedPlayer.getHash().isEmpty()) {
+        try {
+          // Doesn't touch the row if the password is already removed.
+          if (playerRepository.removeHashByExactNickname(event.getUsername()) != 0) {
+            this.plugin.removePrefetchedPlayerInfo(event.getUsername());
+          }
+        } catch (SQLException e) {
+          throw new SQLRuntimeException(e);
+        }
       }
     }
 
@@ -169,6 +225,22 @@ public class AuthListener {
     }
   }
 
+  /**
+   * Runs the task on the blocking executor once the account fetched on the pre-login stage is ready, without blocking a pool thread on it.
+   * The task receives the completed future, or null if the account wasn't prefetched or the prefetch failed.
+   */
+  private CompletableFuture<?> afterPrefetch(String nickname, Consumer<CompletableFuture<RegisteredPlayer>> task) {
+    CompletableFuture<RegisteredPlayer> prefetched = this.plugin.getPrefetchedPlayerInfo(nickname);
+    if (prefetched == null) {
+      return CompletableFuture.runAsync(() -> task.accept(null), this.plugin.getBlockingExecutor());
+    }
+
+    return prefetched.handleAsync((registeredPlayer, throwable) -> {
+      task.accept(throwable == null ? prefetched : null);
+      return null;
+    }, this.plugin.getBlockingExecutor());
+  }
+
   static {
     try {
       DELEGATE_FIELD = MethodHandles.privateLookupIn(LoginInboundConnection.class, MethodHandles.lookup())
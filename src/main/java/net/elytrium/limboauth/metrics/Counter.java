@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+
+  private final String name;
+  private final String help;
+  private final Map<String, String> labels;
+  private final LongAdder value = new LongAdder();
+
+  Counter(String name, String help, Map<String, String> labels) {
+    this.name = name;
+    this.help = help;
+    this.labels = labels;
+  }
+
+  public void increment() {
+    this.value.increment();
+  }
+
+  public void add(long amount) {
+    this.value.add(amount);
+  }
+
+  public long get() {
+    return this.value.sum();
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public String getHelp() {
+    return this.help;
+  }
+
+  public Map<String, String> getLabels() {
+    return this.labels;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.metrics;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Value that is read at the moment the metrics are collected, e.g. the amount of free connections in the pool.
+ */
+public class Gauge {
+
+  private final String name;
+  private final String help;
+  private final Map<String, String> labels;
+  private final DoubleSupplier value;
+
+  Gauge(String name, String help, Map<String, String> labels, DoubleSupplier value) {
+    this.name = name;
+    this.help = help;
+    this.labels = labels;
+    this.value = value;
+  }
+
+  public double get() {
+    return this.value.getAsDouble();
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public String getHelp() {
+    return this.help;
+  }
+
+  public Map<String, String> getLabels() {
+    return this.labels;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative histogram with fixed upper bounds, values are stored in seconds.
+ */
+public class Histogram {
+
+  private static final double NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final String name;
+  private final String help;
+  private final Map<String, String> labels;
+  private final double[] buckets;
+  private final LongAdder[] bucketCounts;
+  private final LongAdder count = new LongAdder();
+  private final DoubleAdder sum = new DoubleAdder();
+
+  Histogram(String name, String help, Map<String, String> labels, double[] buckets) {
+    this.name = name;
+    this.help = help;
+    this.labels = labels;
+    this.buckets = buckets.clone();
+    this.bucketCounts = new LongAdder[buckets.length];
+    for (int i = 0; i < buckets.length; ++i) {
+      this.bucketCounts[i] = new LongAdder();
+    }
+  }
+
+  public void observeNanos(long nanos) {
+    this.observe(nanos / NANOS_IN_SECOND);
+  }
+
+  public void observe(double value) {
+    for (int i = 0; i < this.buckets.length; ++i) {
+      if (value <= this.buckets[i]) {
+        this.bucketCounts[i].increment();
+        break;
+      }
+    }
+
+    this.count.increment();
+    this.sum.add(value);
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public String getHelp() {
+    return this.help;
+  }
+
+  public Map<String, String> getLabels() {
+    return this.labels;
+  }
+
+  public double[] getBuckets() {
+    return this.buckets.clone();
+  }
+
+  /**
+   * Returns the amount of observations that are less than or equal to each bucket bound.
+   */
+  public long[] getCumulativeCounts() {
+    long[] counts = new long[this.buckets.length];
+    long total = 0;
+    for (int i = 0; i < this.buckets.length; ++i) {
+      total += this.bucketCounts[i].sum();
+      counts[i] = total;
+    }
+
+    return counts;
+  }
+
+  public long getCount() {
+    return this.count.sum();
+  }
+
+  public double getSum() {
+    return this.sum.sum();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+public class MetricsRegistry {
+
+  public static final double[] LATENCY_BUCKETS = {
+      0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0, 30.0, 60.0, Double.POSITIVE_INFINITY
+  };
+
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+  private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+  public Counter counter(String name, String help) {
+    return this.counter(name, help, Map.of());
+  }
+
+  /**
+   * Returns the counter with the given labels, counters with the same name and different labels are the series of one metric.
+   */
+  public Counter counter(String name, String help, Map<String, String> labels) {
+    return this.counters.computeIfAbsent(getKey(name, labels), key -> new Counter(name, help, Map.copyOf(labels)));
+  }
+
+  public Histogram histogram(String name, String help) {
+    return this.histogram(name, help, Map.of(), LATENCY_BUCKETS);
+  }
+
+  public Histogram histogram(String name, String help, double[] buckets) {
+    return this.histogram(name, help, Map.of(), buckets);
+  }
+
+  public Histogram histogram(String name, String help, Map<String, String> labels) {
+    return this.histogram(name, help, labels, LATENCY_BUCKETS);
+  }
+
+  public Histogram histogram(String name, String help, Map<String, String> labels, double[] buckets) {
+    return this.histograms.computeIfAbsent(getKey(name, labels), key -> new Histogram(name, help, Map.copyOf(labels), buckets));
+  }
+
+  public Gauge gauge(String name, String help, DoubleSupplier value) {
+    return this.gauge(name, help, Map.of(), value);
+  }
+
+  /**
+   * Registers the gauge, the gauge that is already registered with the same name and labels is kept.
+   */
+  public Gauge gauge(String name, String help, Map<String, String> labels, DoubleSupplier value) {
+    return this.gauges.computeIfAbsent(getKey(name, labels), key -> new Gauge(name, help, Map.copyOf(labels), value));
+  }
+
+  public Collection<Counter> getCounters() {
+    return Collections.unmodifiableCollection(this.counters.values());
+  }
+
+  public Collection<Histogram> getHistograms() {
+    return Collections.unmodifiableCollection(this.histograms.values());
+  }
+
+  public Collection<Gauge> getGauges() {
+    return Collections.unmodifiableCollection(this.gauges.values());
+  }
+
+  private static String getKey(String name, Map<String, String> labels) {
+    return labels.isEmpty() ? name : name + new TreeMap<>(labels);
+  }
+}
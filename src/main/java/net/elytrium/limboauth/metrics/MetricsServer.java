@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the registry on the /metrics path, for the Prometheus scrapes.
+ */
+public class MetricsServer {
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final MetricsRegistry registry;
+
+  public MetricsServer(MetricsRegistry registry, String bindAddress, int port) throws IOException {
+    this.registry = registry;
+    this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+    // The scrapes are rare, one thread is enough.
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("LimboAuth Metrics")
+        .setDaemon(true)
+        .build());
+    this.server.setExecutor(this.executor);
+    this.server.createContext("/metrics", this::handle);
+  }
+
+  public void start() {
+    this.server.start();
+  }
+
+  public void stop() {
+    this.server.stop(0);
+    this.executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      byte[] body = PrometheusTextFormat.write(this.registry).getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", PrometheusTextFormat.CONTENT_TYPE);
+      if (exchange.getRequestMethod().equals("HEAD")) {
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+}
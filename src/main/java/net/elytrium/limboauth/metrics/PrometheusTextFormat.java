@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Writes the metrics in the Prometheus text exposition format, version 0.0.4.
+ */
+public class PrometheusTextFormat {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  public static String write(MetricsRegistry registry) {
+    StringBuilder output = new StringBuilder();
+
+    for (List<Counter> family : groupByName(registry.getCounters(), Counter::getName).values()) {
+      writeHeader(output, family.get(0).getName(), family.get(0).getHelp(), "counter");
+      for (Counter counter : family) {
+        writeSample(output, counter.getName(), counter.getLabels(), null, counter.get());
+      }
+    }
+
+    for (List<Gauge> family : groupByName(registry.getGauges(), Gauge::getName).values()) {
+      writeHeader(output, family.get(0).getName(), family.get(0).getHelp(), "gauge");
+      for (Gauge gauge : family) {
+        writeSample(output, gauge.getName(), gauge.getLabels(), null, gauge.get());
+      }
+    }
+
+    for (List<Histogram> family : groupByName(registry.getHistograms(), Histogram::getName).values()) {
+      String name = family.get(0).getName();
+      writeHeader(output, name, family.get(0).getHelp(), "histogram");
+      for (Histogram histogram : family) {
+        double[] buckets = histogram.getBuckets();
+        long[] counts = histogram.getCumulativeCounts();
+        long count = histogram.getCount();
+        for (int i = 0; i < buckets.length; ++i) {
+          if (buckets[i] != Double.POSITIVE_INFINITY) {
+            writeSample(output, name + "_bucket", histogram.getLabels(), formatValue(buckets[i]), counts[i]);
+          }
+        }
+
+        // The +Inf bucket is required, and always equals to the total count.
+        writeSample(output, name + "_bucket", histogram.getLabels(), "+Inf", count);
+        writeSample(output, name + "_sum", histogram.getLabels(), null, histogram.getSum());
+        writeSample(output, name + "_count", histogram.getLabels(), null, count);
+      }
+    }
+
+    return output.toString();
+  }
+
+  private static <T> Map<String, List<T>> groupByName(Collection<T> metrics, Function<T, String> nameGetter) {
+    // Sorted, so the output is stable between the scrapes.
+    Map<String, List<T>> families = new TreeMap<>();
+    for (T metric : metrics) {
+      families.computeIfAbsent(nameGetter.apply(metric), name -> new ArrayList<>()).add(metric);
+    }
+
+    return families;
+  }
+
+  private static void writeHeader(StringBuilder output, String name, String help, String type) {
+    output.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+    output.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void writeSample(StringBuilder output, String name, Map<String, String> labels, String le, double value) {
+    output.append(name);
+    if (!labels.isEmpty() || le != null) {
+      output.append('{');
+      boolean first = true;
+      for (Map.Entry<String, String> label : new TreeMap<>(labels).entrySet()) {
+        if (!first) {
+          output.append(',');
+        }
+
+        output.append(label.getKey()).append("=\"").append(escapeLabelValue(label.getValue())).append('"');
+        first = false;
+      }
+
+      if (le != null) {
+        if (!first) {
+          output.append(',');
+        }
+
+        output.append("le=\"").append(le).append('"');
+      }
+
+      output.append('}');
+    }
+
+    output.append(' ').append(formatValue(value)).append('\n');
+  }
+
+  private static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String formatValue(double value) {
+    if (value == Double.POSITIVE_INFINITY) {
+      return "+Inf";
+    } else if (value == Double.NEGATIVE_INFINITY) {
+      return "-Inf";
+    } else if (value == Math.rint(value) && Math.abs(value) < 1.0E15) {
+      // Counters are written without the fractional part.
+      return Long.toString((long) value);
+    } else {
+      return Double.toString(value);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.migration;
+
+/**
+ * Stored hash formats, recognized by the prefix and the structure of the hash.
+ * Each format holds the migration hashes that can produce it, ordered by popularity.
+ */
+public enum HashFormat {
+
+  BCRYPT,
+  ARGON2(MigrationHash.ARGON2),
+  SHA256_SALT_PREFIXED(MigrationHash.AUTHME, MigrationHash.SHA256_P), // $SHA$salt$hash
+  SHA512_SALT_PREFIXED(MigrationHash.SHA512_P), // $SHA$salt$hash
+  SHA512_SALT_LAST(MigrationHash.SHA512_NLOGIN, MigrationHash.SHA512_P_REVERSED_HASH), // $SHA$hash$salt
+  SHA256_NO_SALT(MigrationHash.SHA256_NO_SALT, MigrationHash.MOON_SHA256), // $SHA$hash
+  SHA512_NO_SALT(MigrationHash.SHA512_NO_SALT), // $SHA$hash
+  SHA256_SALTED(MigrationHash.AUTHME_NP, MigrationHash.SHA256_NP), // SHA$salt$hash
+  SHA512_SALTED(MigrationHash.SHA512_DBA, MigrationHash.SHA512_NP), // SHA$salt$hash
+  MD5(MigrationHash.MD5),
+  CRC32C(MigrationHash.CRC32C),
+  UNKNOWN;
+
+  private static final int SHA256_HEX_LENGTH = 64;
+  private static final int SHA512_HEX_LENGTH = 128;
+  private static final int MD5_HEX_LENGTH = 32;
+  private static final int CRC32C_HEX_LENGTH = 8;
+
+  private final MigrationHash[] candidates;
+
+  HashFormat(MigrationHash... candidates) {
+    this.candidates = candidates;
+  }
+
+  MigrationHash[] getCandidates() {
+    return this.candidates;
+  }
+
+  public static HashFormat classify(String hash) {
+    if (isBcrypt(hash)) {
+      return BCRYPT;
+    } else if (hash.startsWith("$argon2")) {
+      return ARGON2;
+    } else if (hash.startsWith("$SHA$")) {
+      String[] args = MigrationHash.split(hash);
+      if (args.length == 3) {
+        return hexFormat(args[2], SHA256_NO_SALT, SHA512_NO_SALT);
+      } else if (args.length == 4) {
+        HashFormat format = hexFormat(args[3], SHA256_SALT_PREFIXED, SHA512_SALT_PREFIXED);
+        if (format == UNKNOWN && isHex(args[2], SHA512_HEX_LENGTH)) {
+          return SHA512_SALT_LAST;
+        }
+
+        return format;
+      }
+    } else if (hash.startsWith("SHA$")) {
+      String[] args = MigrationHash.split(hash);
+      if (args.length == 3) {
+        return hexFormat(args[2], SHA256_SALTED, SHA512_SALTED);
+      }
+    } else if (isHex(hash, MD5_HEX_LENGTH)) {
+      return MD5;
+    } else if (isHex(hash, CRC32C_HEX_LENGTH)) {
+      return CRC32C;
+    }
+
+    return UNKNOWN;
+  }
+
+  public static boolean isBcrypt(String hash) {
+    return hash.startsWith("$2a$") || hash.startsWith("$2b$") || hash.startsWith("$2y$") || hash.startsWith("BCRYPT$");
+  }
+
+  private static HashFormat hexFormat(String hex, HashFormat sha256, HashFormat sha512) {
+    if (isHex(hex, SHA256_HEX_LENGTH)) {
+      return sha256;
+    } else if (isHex(hex, SHA512_HEX_LENGTH)) {
+      return sha512;
+    } else {
+      return UNKNOWN;
+    }
+  }
+
+  private static boolean isHex(String string, int length) {
+    if (string.length() != length) {
+      return false;
+    }
+
+    for (int i = 0; i < length; ++i) {
+      if (MigrationHash.hexDigit(string.charAt(i)) == -1) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
@@ -23,65 +23,78 @@ import de.mkammerer.argon2.Argon2Factory;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import org.apache.commons.codec.binary.Hex;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 @SuppressWarnings("unused")
 public enum MigrationHash {
 
   AUTHME((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$salt$hash
-    return args.length == 4 && args[3].equals(getDigest(getDigest(password, "SHA-256") + args[2], "SHA-256"));
+    String[] args = split(hash); // $SHA$salt$hash
+    return args.length == 4 && hexEquals(args[3], digest(Digest.SHA256, hex(digest(Digest.SHA256, utf8(password))), utf8(args[2])));
   }),
   AUTHME_NP((hash, password) -> {
-    String[] args = hash.split("\\$"); // SHA$salt$hash
-    return args.length == 3 && args[2].equals(getDigest(getDigest(password, "SHA-256") + args[1], "SHA-256"));
+    String[] args = split(hash); // SHA$salt$hash
+    return args.length == 3 && hexEquals(args[2], digest(Digest.SHA256, hex(digest(Digest.SHA256, utf8(password))), utf8(args[1])));
   }),
   ARGON2(new Argon2Verifier()),
   SHA512_DBA((hash, password) -> {
-    String[] args = hash.split("\\$"); // SHA$salt$hash
-    return args.length == 3 && args[2].equals(getDigest(getDigest(password, "SHA-512") + args[1], "SHA-512"));
+    String[] args = split(hash); // SHA$salt$hash
+    return args.length == 3 && hexEquals(args[2], digest(Digest.SHA512, hex(digest(Digest.SHA512, utf8(password))), utf8(args[1])));
   }),
   SHA512_NP((hash, password) -> {
-    String[] args = hash.split("\\$"); // SHA$salt$hash
-    return args.length == 3 && args[2].equals(getDigest(password + args[1], "SHA-512"));
+    String[] args = split(hash); // SHA$salt$hash
+    return args.length == 3 && hexEquals(args[2], digest(Digest.SHA512, utf8(password), utf8(args[1])));
   }),
   SHA512_P((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$salt$hash
-    return args.length == 4 && args[3].equals(getDigest(password + args[2], "SHA-512"));
+    String[] args = split(hash); // $SHA$salt$hash
+    return args.length == 4 && hexEquals(args[3], digest(Digest.SHA512, utf8(password), utf8(args[2])));
   }),
   SHA256_NP((hash, password) -> {
-    String[] args = hash.split("\\$"); // SHA$salt$hash
-    return args.length == 3 && args[2].equals(getDigest(password + args[1], "SHA-256"));
+    String[] args = split(hash); // SHA$salt$hash
+    return args.length == 3 && hexEquals(args[2], digest(Digest.SHA256, utf8(password), utf8(args[1])));
   }),
   SHA256_P((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$salt$hash
-    return args.length == 4 && args[3].equals(getDigest(password + args[2], "SHA-256"));
+    String[] args = split(hash); // $SHA$salt$hash
+    return args.length == 4 && hexEquals(args[3], digest(Digest.SHA256, utf8(password), utf8(args[2])));
   }),
-  MD5((hash, password) -> hash.equals(getDigest(password, "MD5"))),
+  MD5((hash, password) -> hexEquals(hash, digest(Digest.MD5, utf8(password)))),
   MOON_SHA256((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$hash
-    return args.length == 3 && args[2].equals(getDigest(getDigest(password, "SHA-256"), "SHA-256"));
+    String[] args = split(hash); // $SHA$hash
+    return args.length == 3 && hexEquals(args[2], digest(Digest.SHA256, hex(digest(Digest.SHA256, utf8(password)))));
   }),
   SHA256_NO_SALT((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$hash
-    return args.length == 3 && args[2].equals(getDigest(password, "SHA-256"));
+    String[] args = split(hash); // $SHA$hash
+    return args.length == 3 && hexEquals(args[2], digest(Digest.SHA256, utf8(password)));
   }),
   SHA512_NO_SALT((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$hash
-    return args.length == 3 && args[2].equals(getDigest(password, "SHA-512"));
+    String[] args = split(hash); // $SHA$hash
+    return args.length == 3 && hexEquals(args[2], digest(Digest.SHA512, utf8(password)));
   }),
   SHA512_P_REVERSED_HASH((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$hash$salt
-    return args.length == 4 && args[2].equals(getDigest(password + args[3], "SHA-512"));
+    String[] args = split(hash); // $SHA$hash$salt
+    return args.length == 4 && hexEquals(args[2], digest(Digest.SHA512, utf8(password), utf8(args[3])));
   }),
   SHA512_NLOGIN((hash, password) -> {
-    String[] args = hash.split("\\$"); // $SHA$hash$salt
-    return args.length == 4 && args[2].equals(getDigest(getDigest(password, "SHA-512") + args[3], "SHA-512"));
+    String[] args = split(hash); // $SHA$hash$salt
+    return args.length == 4 && hexEquals(args[2], digest(Digest.SHA512, hex(digest(Digest.SHA512, utf8(password))), utf8(args[3])));
   }),
   @SuppressWarnings("UnstableApiUsage")
-  CRC32C((hash, password) -> hash.equals(Hashing.crc32c().hashString(password, StandardCharsets.UTF_8).toString())),
-  PLAINTEXT(String::equals);
+  CRC32C((hash, password) -> hexEquals(hash, Hashing.crc32c().hashBytes(utf8(password)).asBytes())),
+  PLAINTEXT((hash, password) -> MessageDigest.isEqual(utf8(hash), utf8(password))),
+  AUTO((hash, password) -> {
+    // Only the verifiers that could have produced the hash are called, plain text passwords are not detected.
+    for (MigrationHash candidate : HashFormat.classify(hash).getCandidates()) {
+      if (candidate.checkPassword(hash, password)) {
+        return true;
+      }
+    }
+
+    return false;
+  });
+
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+  private static final String[] EMPTY_ARGS = new String[0];
 
   private final MigrationHashVerifier verifier;
 
@@ -93,14 +106,143 @@ public enum MigrationHash {
     return this.verifier.checkPassword(hash, password);
   }
 
-  private static String getDigest(String string, String algorithm) {
-    try {
-      MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
-      messageDigest.update(string.getBytes(StandardCharsets.UTF_8));
-      byte[] array = messageDigest.digest();
-      return Hex.encodeHexString(array);
-    } catch (NoSuchAlgorithmException e) {
-      throw new IllegalArgumentException(e);
+  /**
+   * Splits the hash by the '$' character, works the same way as {@code hash.split("\\$")}, but without the regex engine.
+   */
+  static String[] split(String hash) {
+    int length = hash.length();
+    int parts = 1;
+    for (int i = 0; i < length; ++i) {
+      if (hash.charAt(i) == '$') {
+        ++parts;
+      }
+    }
+
+    if (parts == 1) {
+      return new String[] {
+          hash
+      };
+    }
+
+    // Trailing empty strings are not included, as in String#split.
+    int end = length;
+    while (end > 0 && hash.charAt(end - 1) == '$') {
+      --end;
+      --parts;
+    }
+
+    if (end == 0) {
+      return EMPTY_ARGS;
+    }
+
+    String[] args = new String[parts];
+    int start = 0;
+    int part = 0;
+    for (int i = 0; i < end; ++i) {
+      if (hash.charAt(i) == '$') {
+        args[part++] = hash.substring(start, i);
+        start = i + 1;
+      }
+    }
+
+    args[part] = hash.substring(start, end);
+    return args;
+  }
+
+  private static byte[] utf8(String string) {
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] digest(ThreadLocal<MessageDigest> algorithm, byte[] input) {
+    MessageDigest messageDigest = algorithm.get();
+    messageDigest.reset();
+    return messageDigest.digest(input);
+  }
+
+  private static byte[] digest(ThreadLocal<MessageDigest> algorithm, byte[] input, byte[] salt) {
+    MessageDigest messageDigest = algorithm.get();
+    messageDigest.reset();
+    messageDigest.update(input);
+    return messageDigest.digest(salt);
+  }
+
+  /**
+   * Encodes the digest to the lowercase hex string bytes, as the legacy plugins hash the hex string in the double-hash schemes.
+   */
+  private static byte[] hex(byte[] digest) {
+    byte[] hex = new byte[digest.length << 1];
+    for (int i = 0; i < digest.length; ++i) {
+      hex[i << 1] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+      hex[(i << 1) + 1] = HEX_DIGITS[digest[i] & 0xF];
+    }
+
+    return hex;
+  }
+
+  private static boolean hexEquals(String expectedHex, byte[] digest) {
+    byte[] expected = unhex(expectedHex, digest.length);
+    // MessageDigest#isEqual doesn't depend on the position of the first mismatch.
+    return expected != null && MessageDigest.isEqual(expected, digest);
+  }
+
+  @Nullable
+  private static byte[] unhex(String hex, int expectedLength) {
+    if (hex.length() != expectedLength << 1) {
+      return null;
+    }
+
+    byte[] bytes = new byte[expectedLength];
+    for (int i = 0; i < expectedLength; ++i) {
+      int high = hexDigit(hex.charAt(i << 1));
+      int low = hexDigit(hex.charAt((i << 1) + 1));
+      if (high == -1 || low == -1) {
+        return null;
+      }
+
+      bytes[i] = (byte) ((high << 4) | low);
+    }
+
+    return bytes;
+  }
+
+  // Only lowercase hex digits, the hashes were compared as lowercase hex strings before.
+  // HashFormat uses it too, so the hex hashes, that can't be verified, aren't detected as SHA or MD5.
+  static int hexDigit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    } else if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    } else {
+      return -1;
+    }
+  }
+
+  private static class Digest {
+
+    private static final ThreadLocal<MessageDigest> MD5 = create("MD5");
+    private static final ThreadLocal<MessageDigest> SHA256 = create("SHA-256");
+    private static final ThreadLocal<MessageDigest> SHA512 = create("SHA-512");
+
+    private static ThreadLocal<MessageDigest> create(String algorithm) {
+      MessageDigest prototype;
+      try {
+        prototype = MessageDigest.getInstance(algorithm);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalArgumentException(e);
+      }
+
+      // Cloning skips the provider lookup, that MessageDigest#getInstance does on every call.
+      return ThreadLocal.withInitial(() -> {
+        try {
+          return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+          try {
+            return MessageDigest.getInstance(algorithm);
+          } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException(ex);
+          }
+        }
+      });
     }
   }
 
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.model;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Locale;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+@DatabaseTable(tableName = "AUTH_SESSIONS")
+public class AuthSession {
+
+  public static final String NICKNAME_FIELD = "NICKNAME";
+  public static final String LOWERCASE_NICKNAME_FIELD = "LOWERCASENICKNAME";
+  public static final String IP_FIELD = "IP";
+  public static final String ISSUED_AT_FIELD = "ISSUEDAT";
+  public static final String HMAC_FIELD = "HMAC";
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  @DatabaseField(canBeNull = false, columnName = NICKNAME_FIELD)
+  private String nickname;
+
+  @DatabaseField(id = true, columnName = LOWERCASE_NICKNAME_FIELD)
+  private String lowercaseNickname;
+
+  @DatabaseField(canBeNull = false, columnName = IP_FIELD)
+  private String ip;
+
+  @DatabaseField(canBeNull = false, columnName = ISSUED_AT_FIELD)
+  private Long issuedAt;
+
+  @DatabaseField(canBeNull = false, columnName = HMAC_FIELD)
+  private String hmac;
+
+  public AuthSession(String nickname, String ip, long issuedAt) {
+    this.nickname = nickname;
+    this.lowercaseNickname = nickname.toLowerCase(Locale.ROOT);
+    this.ip = ip;
+    this.issuedAt = issuedAt;
+  }
+
+  public AuthSession() {
+
+  }
+
+  public AuthSession sign(byte[] key) {
+    this.hmac = this.computeHmac(key);
+
+    return this;
+  }
+
+  /**
+   * Checks that the session was signed with the key and wasn't modified after that, e.g. by someone with write access to the database.
+   */
+  public boolean verify(byte[] key) {
+    if (this.hmac == null) {
+      return false;
+    }
+
+    return MessageDigest.isEqual(this.hmac.getBytes(StandardCharsets.US_ASCII), this.computeHmac(key).getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private String computeHmac(byte[] key) {
+    try {
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+      // Fields are separated with the character that can't be a part of them.
+      String payload = this.lowercaseNickname + '\n' + this.nickname + '\n' + this.ip + '\n' + this.issuedAt;
+      StringBuilder hex = new StringBuilder();
+      for (byte b : mac.doFinal(payload.getBytes(StandardCharsets.UTF_8))) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return hex.toString();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public boolean isExpired(long lifetime) {
+    return this.getIssuedAt() + lifetime <= System.currentTimeMillis();
+  }
+
+  public String getNickname() {
+    return this.nickname;
+  }
+
+  public String getLowercaseNickname() {
+    return this.lowercaseNickname;
+  }
+
+  public String getIP() {
+    return this.ip;
+  }
+
+  public long getIssuedAt() {
+    return this.issuedAt == null ? 0 : this.issuedAt;
+  }
+
+  public String getHmac() {
+    return this.hmac;
+  }
+}
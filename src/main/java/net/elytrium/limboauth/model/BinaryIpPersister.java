@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.model;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.field.types.BaseDataType;
+import com.j256.ormlite.support.DatabaseResults;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+
+/**
+ * Stores the IP address strings as 4 (IPv4) or 16 (IPv6) bytes. The empty address is stored as an empty array.
+ */
+public class BinaryIpPersister extends BaseDataType {
+
+  private static final BinaryIpPersister INSTANCE = new BinaryIpPersister();
+  private static final byte[] EMPTY = new byte[0];
+
+  private BinaryIpPersister() {
+    super(SqlType.BYTE_ARRAY);
+  }
+
+  public static BinaryIpPersister getSingleton() {
+    return INSTANCE;
+  }
+
+  @Override
+  public Object parseDefaultString(FieldType fieldType, String defaultStr) throws SQLException {
+    return this.javaToSqlArg(fieldType, defaultStr);
+  }
+
+  @Override
+  public Object resultToSqlArg(FieldType fieldType, DatabaseResults results, int columnPos) throws SQLException {
+    return results.getBytes(columnPos);
+  }
+
+  @Override
+  public Object javaToSqlArg(FieldType fieldType, Object javaObject) throws SQLException {
+    String ip = (String) javaObject;
+    if (ip.isEmpty()) {
+      return EMPTY;
+    }
+
+    // InetAddress#getByName resolves the host names, so only the literal addresses are passed to it.
+    int scope = ip.indexOf('%');
+    String address = scope == -1 ? ip : ip.substring(0, scope);
+    if (address.indexOf(':') == -1 && !address.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9'))) {
+      throw new SQLException("Invalid IP address: " + ip);
+    }
+
+    try {
+      return InetAddress.getByName(address).getAddress();
+    } catch (UnknownHostException e) {
+      throw new SQLException("Invalid IP address: " + ip, e);
+    }
+  }
+
+  @Override
+  public Object sqlArgToJava(FieldType fieldType, Object sqlArg, int columnPos) throws SQLException {
+    byte[] bytes = (byte[]) sqlArg;
+    if (bytes.length == 0) {
+      return "";
+    }
+
+    try {
+      return InetAddress.getByAddress(bytes).getHostAddress();
+    } catch (UnknownHostException e) {
+      throw new SQLException("Invalid binary IP address length: " + bytes.length, e);
+    }
+  }
+
+  @Override
+  public boolean isArgumentHolderRequired() {
+    return true;
+  }
+
+  @Override
+  public Class<?> getPrimaryClass() {
+    return String.class;
+  }
+}
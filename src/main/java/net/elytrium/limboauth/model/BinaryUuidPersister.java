@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.model;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.field.types.BaseDataType;
+import com.j256.ormlite.support.DatabaseResults;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Stores the UUIDs as 16 bytes. The empty UUID is stored as an empty array, so it can still be compared with "".
+ * The query arguments can also be strings.
+ */
+public class BinaryUuidPersister extends BaseDataType {
+
+  private static final BinaryUuidPersister INSTANCE = new BinaryUuidPersister();
+  private static final byte[] EMPTY = new byte[0];
+
+  private BinaryUuidPersister() {
+    super(SqlType.BYTE_ARRAY);
+  }
+
+  public static BinaryUuidPersister getSingleton() {
+    return INSTANCE;
+  }
+
+  @Override
+  public Object parseDefaultString(FieldType fieldType, String defaultStr) throws SQLException {
+    return this.javaToSqlArg(fieldType, defaultStr);
+  }
+
+  @Override
+  public Object resultToSqlArg(FieldType fieldType, DatabaseResults results, int columnPos) throws SQLException {
+    return results.getBytes(columnPos);
+  }
+
+  @Override
+  public Object javaToSqlArg(FieldType fieldType, Object javaObject) throws SQLException {
+    UUID value;
+    if (javaObject instanceof String) {
+      String uuid = (String) javaObject;
+      if (uuid.isEmpty()) {
+        return EMPTY;
+      }
+
+      try {
+        value = UUID.fromString(uuid);
+      } catch (IllegalArgumentException e) {
+        throw new SQLException("Invalid UUID: " + uuid, e);
+      }
+    } else {
+      value = (UUID) javaObject;
+      if (RegisteredPlayer.EMPTY_UUID.equals(value)) {
+        return EMPTY;
+      }
+    }
+
+    return ByteBuffer.allocate(16).putLong(value.getMostSignificantBits()).putLong(value.getLeastSignificantBits()).array();
+  }
+
+  @Override
+  public Object sqlArgToJava(FieldType fieldType, Object sqlArg, int columnPos) throws SQLException {
+    byte[] bytes = (byte[]) sqlArg;
+    if (bytes.length == 0) {
+      return RegisteredPlayer.EMPTY_UUID;
+    } else if (bytes.length != 16) {
+      throw new SQLException("Invalid binary UUID length: " + bytes.length);
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  @Override
+  public boolean isArgumentHolderRequired() {
+    return true;
+  }
+
+  @Override
+  public Class<?> getPrimaryClass() {
+    return UUID.class;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.model;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+@DatabaseTable(tableName = "AUTH_INVALIDATIONS")
+public class CacheInvalidation {
+
+  public static final String ID_FIELD = "ID";
+  public static final String LOWERCASE_NICKNAME_FIELD = "LOWERCASENICKNAME";
+  public static final String ORIGIN_FIELD = "ORIGIN";
+  public static final String CREATED_AT_FIELD = "CREATEDAT";
+
+  @DatabaseField(generatedId = true, columnName = ID_FIELD)
+  private long id;
+
+  @DatabaseField(canBeNull = false, columnName = LOWERCASE_NICKNAME_FIELD)
+  private String lowercaseNickname;
+
+  @DatabaseField(canBeNull = false, columnName = ORIGIN_FIELD)
+  private String origin;
+
+  @DatabaseField(canBeNull = false, index = true, columnName = CREATED_AT_FIELD)
+  private Long createdAt;
+
+  public CacheInvalidation(String lowercaseNickname, String origin) {
+    this.lowercaseNickname = lowercaseNickname;
+    this.origin = origin;
+    this.createdAt = System.currentTimeMillis();
+  }
+
+  public CacheInvalidation() {
+
+  }
+
+  public long getId() {
+    return this.id;
+  }
+
+  public String getLowercaseNickname() {
+    return this.lowercaseNickname;
+  }
+
+  public String getOrigin() {
+    return this.origin;
+  }
+
+  public long getCreatedAt() {
+    return this.createdAt == null ? 0 : this.createdAt;
+  }
+}
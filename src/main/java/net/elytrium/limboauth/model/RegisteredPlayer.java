@@ -25,6 +25,7 @@ import java.net.InetSocketAddress;
 import java.util.Locale;
 import java.util.UUID;
 import net.elytrium.limboauth.Settings;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 @DatabaseTable(tableName = "AUTH")
 public class RegisteredPlayer {
@@ -41,6 +42,9 @@ public class RegisteredPlayer {
   public static final String PREMIUM_UUID_FIELD = "PREMIUMUUID";
   public static final String TOKEN_ISSUED_AT_FIELD = "ISSUEDTIME";
 
+  // Stored as "", so the accounts without the UUIDs are found with the same queries in both schemas.
+  static final UUID EMPTY_UUID = new UUID(0, 0);
+
   private static final BCrypt.Hasher HASHER = BCrypt.withDefaults();
 
   @DatabaseField(canBeNull = false, columnName = NICKNAME_FIELD)
@@ -61,11 +65,11 @@ public class RegisteredPlayer {
   @DatabaseField(columnName = REG_DATE_FIELD)
   private Long regDate = System.currentTimeMillis();
 
-  @DatabaseField(columnName = UUID_FIELD)
-  private String uuid = "";
+  @DatabaseField(columnName = UUID_FIELD, persisterClass = TextUuidPersister.class)
+  private UUID uuid = EMPTY_UUID;
 
-  @DatabaseField(columnName = RegisteredPlayer.PREMIUM_UUID_FIELD)
-  private String premiumUuid = "";
+  @DatabaseField(columnName = RegisteredPlayer.PREMIUM_UUID_FIELD, persisterClass = TextUuidPersister.class)
+  private UUID premiumUuid = EMPTY_UUID;
 
   @DatabaseField(columnName = LOGIN_IP_FIELD)
   private String loginIp;
@@ -85,8 +89,8 @@ public class RegisteredPlayer {
     this.ip = ip;
     this.totpToken = totpToken;
     this.regDate = regDate;
-    this.uuid = uuid;
-    this.premiumUuid = premiumUuid;
+    this.uuid = parseUuid(uuid);
+    this.premiumUuid = parseUuid(premiumUuid);
     this.loginIp = loginIp;
     this.loginDate = loginDate;
   }
@@ -96,10 +100,14 @@ public class RegisteredPlayer {
   }
 
   public RegisteredPlayer(String nickname, UUID uuid, InetSocketAddress ip) {
-    this(nickname, uuid.toString(), ip.getAddress().getHostAddress());
+    this(nickname, uuid, ip.getAddress().getHostAddress());
   }
 
   public RegisteredPlayer(String nickname, String uuid, String ip) {
+    this(nickname, parseUuid(uuid), ip);
+  }
+
+  private RegisteredPlayer(String nickname, UUID uuid, String ip) {
     this.nickname = nickname;
     this.lowercaseNickname = nickname.toLowerCase(Locale.ROOT);
     this.uuid = uuid;
@@ -115,6 +123,16 @@ public class RegisteredPlayer {
     return HASHER.hashToString(Settings.IMP.MAIN.BCRYPT_COST, password.toCharArray());
   }
 
+  private static UUID parseUuid(String uuid) {
+    return uuid == null || uuid.isEmpty() ? EMPTY_UUID : UUID.fromString(uuid);
+  }
+
+  @Nullable
+  private static UUID toNullable(@Nullable UUID uuid) {
+    // The NULL columns of the old rows are read as null.
+    return uuid == null || EMPTY_UUID.equals(uuid) ? null : uuid;
+  }
+
   public RegisteredPlayer setNickname(String nickname) {
     this.nickname = nickname;
     this.lowercaseNickname = nickname.toLowerCase(Locale.ROOT);
@@ -179,29 +197,55 @@ public class RegisteredPlayer {
   }
 
   public RegisteredPlayer setUuid(String uuid) {
+    this.uuid = parseUuid(uuid);
+
+    return this;
+  }
+
+  public RegisteredPlayer setUuid(UUID uuid) {
     this.uuid = uuid;
 
     return this;
   }
 
   public String getUuid() {
-    return this.uuid == null ? "" : this.uuid;
+    UUID uuid = this.getUuidValue();
+    return uuid == null ? "" : uuid.toString();
+  }
+
+  /**
+   * The UUIDs are converted by the persisters of the schema, so they aren't parsed on every login.
+   *
+   * @return null if the UUID isn't saved
+   */
+  @Nullable
+  public UUID getUuidValue() {
+    return toNullable(this.uuid);
   }
 
   public RegisteredPlayer setPremiumUuid(String premiumUuid) {
-    this.premiumUuid = premiumUuid;
+    this.premiumUuid = parseUuid(premiumUuid);
 
     return this;
   }
 
   public RegisteredPlayer setPremiumUuid(UUID premiumUuid) {
-    this.premiumUuid = premiumUuid.toString();
+    this.premiumUuid = premiumUuid;
 
     return this;
   }
 
   public String getPremiumUuid() {
-    return this.premiumUuid == null ? "" : this.premiumUuid;
+    UUID premiumUuid = this.getPremiumUuidValue();
+    return premiumUuid == null ? "" : premiumUuid.toString();
+  }
+
+  /**
+   * @return null if the player isn't premium
+   */
+  @Nullable
+  public UUID getPremiumUuidValue() {
+    return toNullable(this.premiumUuid);
   }
 
   public String getLoginIp() {
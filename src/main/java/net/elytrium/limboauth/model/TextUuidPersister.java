@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.elytrium.limboauth.model;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.field.types.BaseDataType;
+import com.j256.ormlite.support.DatabaseResults;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Stores the UUIDs as strings, the empty UUID is stored as "". The query arguments can also be strings.
+ * The invalid UUIDs (e.g. edited manually) aren't read, so they aren't overwritten with the empty ones when the player is saved.
+ */
+public class TextUuidPersister extends BaseDataType {
+
+  private static final TextUuidPersister INSTANCE = new TextUuidPersister();
+  private static final int DEFAULT_WIDTH = 255;
+
+  private TextUuidPersister() {
+    super(SqlType.STRING);
+  }
+
+  public static TextUuidPersister getSingleton() {
+    return INSTANCE;
+  }
+
+  @Override
+  public Object parseDefaultString(FieldType fieldType, String defaultStr) {
+    return defaultStr;
+  }
+
+  @Override
+  public Object resultToSqlArg(FieldType fieldType, DatabaseResults results, int columnPos) throws SQLException {
+    return results.getString(columnPos);
+  }
+
+  @Override
+  public Object javaToSqlArg(FieldType fieldType, Object javaObject) {
+    if (javaObject instanceof String) {
+      return javaObject;
+    }
+
+    return RegisteredPlayer.EMPTY_UUID.equals(javaObject) ? "" : javaObject.toString();
+  }
+
+  @Override
+  public Object sqlArgToJava(FieldType fieldType, Object sqlArg, int columnPos) throws SQLException {
+    String uuid = (String) sqlArg;
+    if (uuid.isEmpty()) {
+      return RegisteredPlayer.EMPTY_UUID;
+    }
+
+    try {
+      return UUID.fromString(uuid);
+    } catch (IllegalArgumentException e) {
+      throw new SQLException("Invalid UUID: " + uuid, e);
+    }
+  }
+
+  @Override
+  public int getDefaultWidth() {
+    return DEFAULT_WIDTH;
+  }
+
+  @Override
+  public boolean isArgumentHolderRequired() {
+    return true;
+  }
+
+  @Override
+  public Class<?> getPrimaryClass() {
+    return UUID.class;
+  }
+}
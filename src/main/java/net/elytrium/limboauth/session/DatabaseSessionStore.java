@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.session;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.elytrium.limboauth.jfr.InstrumentedDao;
+import net.elytrium.limboauth.model.AuthSession;
+import net.elytrium.limboauth.model.SQLRuntimeException;
+import net.elytrium.limboauth.storage.SingleWriter;
+
+/**
+ * Keeps the sessions in the AUTH_SESSIONS table, so they survive restarts and are shared by the proxies that use the same database.
+ * Recent lookups are cached locally, a session removed on another proxy is evicted from the cache by the invalidation bus,
+ * or is accepted until the cache entry expires, if the bus is disabled.
+ */
+public class DatabaseSessionStore implements SessionStore {
+
+  private final Map<String, CachedSession> nearCache = new ConcurrentHashMap<>();
+  private final Dao<AuthSession, String> sessionDao;
+  private final long nearCacheMillis;
+
+  /**
+   * The single writer is null if the writes shouldn't be queued.
+   */
+  public DatabaseSessionStore(ConnectionSource connectionSource, SingleWriter singleWriter, long nearCacheMillis) {
+    try {
+      TableUtils.createTableIfNotExists(connectionSource, AuthSession.class);
+      Dao<AuthSession, String> sessionDao = InstrumentedDao.wrap(DaoManager.createDao(connectionSource, AuthSession.class));
+      this.sessionDao = singleWriter == null ? sessionDao : singleWriter.wrap(sessionDao);
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+
+    this.nearCacheMillis = nearCacheMillis;
+  }
+
+  @Override
+  public void save(AuthSession session) {
+    try {
+      this.sessionDao.createOrUpdate(session);
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+
+    this.cache(session.getLowercaseNickname(), session);
+  }
+
+  @Override
+  public AuthSession find(String lowercaseNickname) {
+    if (this.nearCacheMillis > 0) {
+      CachedSession cachedSession = this.nearCache.get(lowercaseNickname);
+      if (cachedSession != null && cachedSession.getCheckTime() + this.nearCacheMillis > System.currentTimeMillis()) {
+        return cachedSession.getSession();
+      }
+    }
+
+    AuthSession session;
+    try {
+      session = this.sessionDao.queryForId(lowercaseNickname);
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+
+    // Missing sessions aren't cached, saving a session on another proxy doesn't publish an invalidation that would evict the miss.
+    if (session != null) {
+      this.cache(lowercaseNickname, session);
+    }
+
+    return session;
+  }
+
+  @Override
+  public void remove(String lowercaseNickname) {
+    this.nearCache.remove(lowercaseNickname);
+    try {
+      this.sessionDao.deleteById(lowercaseNickname);
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+  }
+
+  @Override
+  public void invalidate(String lowercaseNickname) {
+    this.nearCache.remove(lowercaseNickname);
+  }
+
+  @Override
+  public void purgeExpired(long issuedBefore) {
+    long now = System.currentTimeMillis();
+    this.nearCache.values().removeIf(cachedSession -> cachedSession.getCheckTime() + this.nearCacheMillis <= now);
+
+    // One statement for all the expired sessions, instead of deleting them one by one.
+    try {
+      DeleteBuilder<AuthSession, String> deleteBuilder = this.sessionDao.deleteBuilder();
+      deleteBuilder.where().lt(AuthSession.ISSUED_AT_FIELD, issuedBefore);
+      this.sessionDao.delete(deleteBuilder.prepare());
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    this.nearCache.clear();
+  }
+
+  private void cache(String lowercaseNickname, AuthSession session) {
+    if (this.nearCacheMillis > 0) {
+      this.nearCache.put(lowercaseNickname, new CachedSession(System.currentTimeMillis(), session));
+    }
+  }
+
+  private static class CachedSession {
+
+    private final long checkTime;
+    private final AuthSession session;
+
+    CachedSession(long checkTime, AuthSession session) {
+      this.checkTime = checkTime;
+      this.session = session;
+    }
+
+    public long getCheckTime() {
+      return this.checkTime;
+    }
+
+    public AuthSession getSession() {
+      return this.session;
+    }
+  }
+}
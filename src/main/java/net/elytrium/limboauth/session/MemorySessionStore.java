@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.elytrium.limboauth.model.AuthSession;
+
+public class MemorySessionStore implements SessionStore {
+
+  private final Map<String, AuthSession> sessions = new ConcurrentHashMap<>();
+
+  @Override
+  public void save(AuthSession session) {
+    this.sessions.put(session.getLowercaseNickname(), session);
+  }
+
+  @Override
+  public AuthSession find(String lowercaseNickname) {
+    return this.sessions.get(lowercaseNickname);
+  }
+
+  @Override
+  public void remove(String lowercaseNickname) {
+    this.sessions.remove(lowercaseNickname);
+  }
+
+  @Override
+  public void invalidate(String lowercaseNickname) {
+    // The sessions aren't shared, so the account changes made on another proxy should end the local session.
+    this.sessions.remove(lowercaseNickname);
+  }
+
+  @Override
+  public void purgeExpired(long issuedBefore) {
+    this.sessions.values().removeIf(session -> session.getIssuedAt() < issuedBefore);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.session;
+
+import net.elytrium.limboauth.model.AuthSession;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Storage of the sessions, that allow the players to join again from the same IP address without entering the password.
+ * The sessions are stored as is, the signature and the lifetime are checked by the caller.
+ */
+public interface SessionStore {
+
+  void save(AuthSession session);
+
+  @Nullable
+  AuthSession find(String lowercaseNickname);
+
+  void remove(String lowercaseNickname);
+
+  /**
+   * Called when the session was changed on another proxy, that has already updated the shared storage.
+   */
+  void invalidate(String lowercaseNickname);
+
+  /**
+   * Removes all the sessions issued before the given time.
+   */
+  void purgeExpired(long issuedBefore);
+
+  default void shutdown() {
+
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * Plugins, whose databases can be imported with the /limboauth import command.
+ * The default queries rename the columns to the LimboAuth ones and order the rows by nickname, so the import can be resumed from an offset.
+ */
+public enum ImportSource {
+
+  AUTHME(
+      "SELECT realname AS NICKNAME, username AS LOWERCASENICKNAME, password AS HASH, regip AS IP, ip AS LOGINIP,"
+          + " regdate AS REGDATE, lastlogin AS LOGINDATE FROM authme ORDER BY username",
+      UnaryOperator.identity()
+  ),
+  NLOGIN(
+      "SELECT last_name AS NICKNAME, password AS HASH, last_ip AS IP, last_ip AS LOGINIP, creation_date AS REGDATE,"
+          + " last_seen AS LOGINDATE, unique_id AS UUID, mojang_id AS PREMIUMUUID FROM nlogin ORDER BY last_name",
+      UnaryOperator.identity()
+  ),
+  JPREMIUM(
+      "SELECT lastNickname AS NICKNAME, hashedPassword AS HASH, firstAddress AS IP, lastAddress AS LOGINIP, firstSeen AS REGDATE,"
+          + " lastSeen AS LOGINDATE, uniqueId AS UUID, premiumId AS PREMIUMUUID FROM user_profiles ORDER BY lastNickname",
+      ImportSource::convertJPremiumHash
+  );
+
+  private final String defaultQuery;
+  private final UnaryOperator<String> hashConverter;
+
+  ImportSource(String defaultQuery, UnaryOperator<String> hashConverter) {
+    this.defaultQuery = defaultQuery;
+    this.hashConverter = hashConverter;
+  }
+
+  public String getDefaultQuery() {
+    return this.defaultQuery;
+  }
+
+  public String convertHash(String hash) {
+    return this.hashConverter.apply(hash);
+  }
+
+  private static String convertJPremiumHash(String hash) {
+    // JPremium stores the algorithm name before the salt, LimboAuth migration hashes expect SHA$salt$hash.
+    return hash.startsWith("SHA256$") || hash.startsWith("SHA512$") ? "SHA" + hash.substring(6) : hash;
+  }
+
+  public String getName() {
+    return this.name().toLowerCase(Locale.ROOT);
+  }
+}
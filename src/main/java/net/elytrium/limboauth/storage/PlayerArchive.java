@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.support.ConnectionSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+
+/**
+ * Moves the inactive players from the AUTH table to the AUTH_ARCHIVE table (or deletes them), and restores them on the next lookup.
+ * The players are read in the primary key order, so every batch continues the previous one, and LOGINDATE doesn't need an index.
+ */
+public class PlayerArchive {
+
+  private final ConnectionSource connectionSource;
+  private final Dao<RegisteredPlayer, String> playerDao;
+  private final Dao<RegisteredPlayer, String> archiveDao;
+  private final SingleWriter singleWriter;
+
+  /**
+   * @param archiveDao   null if the archive table doesn't exist
+   * @param singleWriter null if the writes are not run by the single writer
+   */
+  public PlayerArchive(Dao<RegisteredPlayer, String> playerDao, Dao<RegisteredPlayer, String> archiveDao, SingleWriter singleWriter) {
+    this.connectionSource = playerDao.getConnectionSource();
+    this.playerDao = playerDao;
+    this.archiveDao = archiveDao;
+    this.singleWriter = singleWriter;
+  }
+
+  /**
+   * Archives or deletes the players, that haven't logged in since the time.
+   * A player is skipped if they logged in after being read, the LOGINDATE is compared by the delete query.
+   *
+   * @return the count of the archived or deleted players
+   */
+  public long archive(long inactiveBefore, boolean delete, int batchSize, long batchDelayMillis) throws SQLException, InterruptedException {
+    if (!delete && this.archiveDao == null) {
+      throw new IllegalStateException("The archive table doesn't exist");
+    }
+
+    long archived = 0;
+    String lastNickname = null;
+    while (true) {
+      QueryBuilder<RegisteredPlayer, String> queryBuilder = this.playerDao.queryBuilder()
+          .orderBy(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, true)
+          .limit((long) batchSize);
+      if (lastNickname == null) {
+        queryBuilder.where().lt(RegisteredPlayer.LOGIN_DATE_FIELD, inactiveBefore);
+      } else {
+        queryBuilder.where()
+            .lt(RegisteredPlayer.LOGIN_DATE_FIELD, inactiveBefore)
+            .and()
+            .gt(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, lastNickname);
+      }
+
+      List<RegisteredPlayer> players = this.playerDao.query(queryBuilder.prepare());
+      if (players.isEmpty()) {
+        return archived;
+      }
+
+      archived += this.write(() -> TransactionManager.callInTransaction(this.connectionSource, () -> {
+        int moved = 0;
+        for (RegisteredPlayer player : players) {
+          DeleteBuilder<RegisteredPlayer, String> deleteBuilder = this.playerDao.deleteBuilder();
+          deleteBuilder.where()
+              .eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, player.getLowercaseNickname())
+              .and()
+              .eq(RegisteredPlayer.LOGIN_DATE_FIELD, player.getLoginDate());
+          if (this.playerDao.delete(deleteBuilder.prepare()) != 0) {
+            if (!delete) {
+              this.archiveDao.createOrUpdate(player);
+            }
+
+            ++moved;
+          }
+        }
+
+        return moved;
+      }));
+
+      lastNickname = players.get(players.size() - 1).getLowercaseNickname();
+      if (players.size() < batchSize) {
+        return archived;
+      }
+
+      // Lets the logins use the database between the batches.
+      Thread.sleep(batchDelayMillis);
+    }
+  }
+
+  /**
+   * Moves the archived player back to the AUTH table.
+   *
+   * @return null if the player isn't archived
+   */
+  public RegisteredPlayer restore(String lowercaseNickname) throws SQLException {
+    if (this.archiveDao == null) {
+      return null;
+    }
+
+    RegisteredPlayer player = this.archiveDao.queryForId(lowercaseNickname);
+    if (player == null) {
+      return null;
+    }
+
+    this.write(() -> TransactionManager.callInTransaction(this.connectionSource, () -> {
+      // Another lookup could restore the player at the same time.
+      this.playerDao.createIfNotExists(player);
+      this.archiveDao.deleteById(lowercaseNickname);
+      return null;
+    }));
+
+    return this.playerDao.queryForId(lowercaseNickname);
+  }
+
+  private <T> T write(Callable<T> write) throws SQLException {
+    if (this.singleWriter == null) {
+      try {
+        return write.call();
+      } catch (SQLException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new SQLException(e);
+      }
+    }
+
+    // The transaction is run by the writer thread, so it doesn't wait for the database lock held by the writer.
+    return this.singleWriter.execute(write);
+  }
+}
@@ -0,0 +1,542 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.jdbc.JdbcDatabaseResults;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import net.elytrium.limboauth.Settings;
+import net.elytrium.limboauth.dependencies.DatabaseLibrary;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+import net.elytrium.limboauth.model.TextUuidPersister;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Streams the players table to a backup file and back, keeping only one row in memory.
+ *
+ * <p>The binary format is a GZIP stream of: magic, version, column count, column names and types,
+ * then length-prefixed records, terminated by -1. Each value in a record is a presence flag followed by
+ * a long or a length-prefixed UTF-8 string.
+ *
+ * <p>The CSV format follows RFC 4180, the first row contains the column names. Empty unquoted values are nulls.
+ */
+public class PlayerBackup {
+
+  private static final int MAGIC = 0x4C41424B; // LABK
+  private static final int VERSION = 1;
+  private static final int END_OF_RECORDS = -1;
+  private static final byte STRING_TYPE = 'S';
+  private static final byte LONG_TYPE = 'L';
+  private static final int FETCH_SIZE = 1000;
+  private static final int PROGRESS_INTERVAL = 50000;
+  private static final DateTimeFormatter FILE_NAME_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+  private final Dao<RegisteredPlayer, String> playerDao;
+  @Nullable
+  private final SingleWriter singleWriter;
+  private final FieldType[] fieldTypes;
+  private final boolean[] longColumns;
+
+  public PlayerBackup(Dao<RegisteredPlayer, String> playerDao) {
+    this(playerDao, null);
+  }
+
+  /**
+   * The single writer is null if the restored players shouldn't be written by it.
+   */
+  public PlayerBackup(Dao<RegisteredPlayer, String> playerDao, @Nullable SingleWriter singleWriter) {
+    this.playerDao = playerDao;
+    this.singleWriter = singleWriter;
+    this.fieldTypes = playerDao.getTableInfo().getFieldTypes();
+    this.longColumns = new boolean[this.fieldTypes.length];
+    for (int i = 0; i < this.fieldTypes.length; ++i) {
+      Class<?> type = this.fieldTypes[i].getType();
+      this.longColumns[i] = type == Long.class || type == long.class;
+    }
+  }
+
+  /**
+   * Writes all the players to the file. The file is replaced only after the export is finished.
+   *
+   * @return the amount of exported players
+   */
+  public long exportPlayers(Path file, BackupFormat format, ProgressListener listener) throws SQLException, IOException {
+    ConnectionSource connectionSource = this.playerDao.getConnectionSource();
+    String tableName = this.playerDao.getTableInfo().getTableName();
+
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int i = 0; i < this.fieldTypes.length; ++i) {
+      if (i != 0) {
+        sql.append(", ");
+      }
+
+      connectionSource.getDatabaseType().appendEscapedEntityName(sql, this.fieldTypes[i].getColumnName());
+    }
+    sql.append(" FROM ");
+    connectionSource.getDatabaseType().appendEscapedEntityName(sql, tableName);
+
+    Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+    long exported = 0;
+    DatabaseConnection databaseConnection = connectionSource.getReadOnlyConnection(tableName);
+    try {
+      Connection connection = databaseConnection.getUnderlyingConnection();
+      boolean autoCommit = connection.getAutoCommit();
+      // PostgreSQL uses cursors only outside the auto-commit mode.
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+        // MySQL Connector/J streams the rows one by one only with this fetch size, otherwise it loads the whole result set into memory.
+        statement.setFetchSize(Settings.IMP.DATABASE.STORAGE_TYPE == DatabaseLibrary.MYSQL ? Integer.MIN_VALUE : FETCH_SIZE);
+        try (ResultSet resultSet = statement.executeQuery();
+            RecordWriter writer = format == BackupFormat.BINARY
+                ? new BinaryRecordWriter(Files.newOutputStream(temporaryFile), this.fieldTypes, this.longColumns)
+                : new CsvRecordWriter(Files.newOutputStream(temporaryFile), this.fieldTypes)) {
+          // The columns are read by their persisters, so the binary UUIDs and IP addresses are written in the text form.
+          DatabaseResults results = new JdbcDatabaseResults(statement, resultSet, null, false);
+          Map<String, Integer> columnPositions = new HashMap<>();
+          for (int i = 0; i < this.fieldTypes.length; ++i) {
+            columnPositions.put(this.fieldTypes[i].getColumnName(), i);
+          }
+
+          Object[] values = new Object[this.fieldTypes.length];
+          while (resultSet.next()) {
+            for (int i = 0; i < values.length; ++i) {
+              Object value = this.fieldTypes[i].resultToJava(results, columnPositions);
+              values[i] = value instanceof UUID ? TextUuidPersister.getSingleton().javaToSqlArg(this.fieldTypes[i], value) : value;
+            }
+
+            writer.write(values);
+            if (++exported % PROGRESS_INTERVAL == 0) {
+              listener.onProgress(exported, exported, 0);
+            }
+          }
+        }
+      } finally {
+        connection.rollback();
+        connection.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException | IOException e) {
+      Files.deleteIfExists(temporaryFile);
+      throw e;
+    } finally {
+      connectionSource.releaseConnection(databaseConnection);
+    }
+
+    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+    listener.onFinish(exported, exported, 0);
+    return exported;
+  }
+
+  /**
+   * Inserts the players from the backup file, the format is detected automatically.
+   * Players that are already registered are skipped.
+   */
+  public void restorePlayers(Path file, ProgressListener listener) throws SQLException, IOException {
+    Settings.IMPORT config = Settings.IMP.IMPORT;
+    int transactionSize = Math.max(config.TRANSACTION_SIZE, config.BATCH_SIZE);
+    ConnectionSource connectionSource = this.playerDao.getConnectionSource();
+
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file));
+        RecordReader reader = isGzip(inputStream) ? new BinaryRecordReader(inputStream) : new CsvRecordReader(inputStream);
+        PlayerBatchWriter writer = new PlayerBatchWriter(this.playerDao, config.BATCH_SIZE, this.singleWriter)) {
+      List<String> columns = reader.getColumns();
+      FieldType[] mapping = new FieldType[columns.size()];
+      for (int i = 0; i < mapping.length; ++i) {
+        for (FieldType fieldType : this.fieldTypes) {
+          // Unknown columns (e.g. from a newer version) are ignored.
+          if (fieldType.getColumnName().equalsIgnoreCase(columns.get(i))) {
+            mapping[i] = fieldType;
+            break;
+          }
+        }
+      }
+
+      long processed = 0;
+      Object[] values;
+      while ((values = reader.read()) != null) {
+        RegisteredPlayer player = new RegisteredPlayer();
+        for (int i = 0; i < mapping.length; ++i) {
+          FieldType fieldType = mapping[i];
+          if (fieldType != null) {
+            fieldType.assignField(connectionSource, player, this.convert(fieldType, values[i]), false, null);
+          }
+        }
+
+        writer.add(player);
+        if (++processed % transactionSize == 0) {
+          writer.commit();
+          listener.onProgress(processed, writer.getWritten(), writer.getSkipped());
+        }
+      }
+
+      writer.commit();
+      listener.onFinish(processed, writer.getWritten(), writer.getSkipped());
+    }
+  }
+
+  public static Path getBackupFile(Path directory, String prefix, BackupFormat format) {
+    return directory.resolve(prefix + "-" + LocalDateTime.now().format(FILE_NAME_DATE_FORMAT) + "." + format.getExtension());
+  }
+
+  /**
+   * Deletes the oldest backups with the prefix, so only {@code keep} of them are left.
+   */
+  public static void deleteOldBackups(Path directory, String prefix, int keep) throws IOException {
+    List<Path> backups;
+    try (Stream<Path> files = Files.list(directory)) {
+      // Backup file names contain the date, so sorting them by name sorts them by date.
+      backups = files
+          .filter(file -> file.getFileName().toString().startsWith(prefix + "-") && !file.getFileName().toString().endsWith(".tmp"))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+
+    for (int i = 0; i < backups.size() - keep; ++i) {
+      Files.delete(backups.get(i));
+    }
+  }
+
+  @Nullable
+  private Object convert(FieldType fieldType, @Nullable Object value) throws IOException {
+    Class<?> type = fieldType.getType();
+    if (value instanceof String && (type == Long.class || type == long.class)) {
+      try {
+        return Long.parseLong((String) value);
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid " + fieldType.getColumnName() + " value: " + value, e);
+      }
+    } else if (value instanceof String && type == UUID.class) {
+      try {
+        return TextUuidPersister.getSingleton().sqlArgToJava(fieldType, value, 0);
+      } catch (SQLException e) {
+        throw new IOException("Invalid " + fieldType.getColumnName() + " value: " + value, e);
+      }
+    }
+
+    return value;
+  }
+
+  private static boolean isGzip(InputStream inputStream) throws IOException {
+    inputStream.mark(2);
+    int first = inputStream.read();
+    int second = inputStream.read();
+    inputStream.reset();
+    return first == (GZIPInputStream.GZIP_MAGIC & 0xFF) && second == (GZIPInputStream.GZIP_MAGIC >> 8);
+  }
+
+  private interface RecordWriter extends Closeable {
+
+    void write(Object[] values) throws IOException;
+  }
+
+  private interface RecordReader extends Closeable {
+
+    List<String> getColumns();
+
+    /**
+     * Reads the next record, {@link Long} values are returned only by the binary format.
+     *
+     * @return the record values, or {@code null} if there are no records left
+     */
+    @Nullable
+    Object[] read() throws IOException;
+  }
+
+  private static class BinaryRecordWriter implements RecordWriter {
+
+    private final DataOutputStream output;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(this.recordBuffer);
+    private final boolean[] longColumns;
+
+    BinaryRecordWriter(OutputStream outputStream, FieldType[] fieldTypes, boolean[] longColumns) throws IOException {
+      this.output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(outputStream, 65536)));
+      this.longColumns = longColumns;
+
+      this.output.writeInt(MAGIC);
+      this.output.writeInt(VERSION);
+      this.output.writeInt(fieldTypes.length);
+      for (int i = 0; i < fieldTypes.length; ++i) {
+        this.output.writeUTF(fieldTypes[i].getColumnName());
+        this.output.writeByte(longColumns[i] ? LONG_TYPE : STRING_TYPE);
+      }
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+      this.recordBuffer.reset();
+      for (int i = 0; i < values.length; ++i) {
+        Object value = values[i];
+        this.record.writeBoolean(value != null);
+        if (value != null) {
+          if (this.longColumns[i]) {
+            this.record.writeLong((Long) value);
+          } else {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            this.record.writeInt(bytes.length);
+            this.record.write(bytes);
+          }
+        }
+      }
+
+      this.output.writeInt(this.recordBuffer.size());
+      this.recordBuffer.writeTo(this.output);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        this.output.writeInt(END_OF_RECORDS);
+      } finally {
+        this.output.close();
+      }
+    }
+  }
+
+  private static class BinaryRecordReader implements RecordReader {
+
+    private final DataInputStream input;
+    private final List<String> columns = new ArrayList<>();
+    private final boolean[] longColumns;
+
+    BinaryRecordReader(InputStream inputStream) throws IOException {
+      this.input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream, 65536)));
+      if (this.input.readInt() != MAGIC) {
+        throw new IOException("Not a LimboAuth backup file");
+      }
+
+      int version = this.input.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported backup version: " + version);
+      }
+
+      int columnCount = this.input.readInt();
+      this.longColumns = new boolean[columnCount];
+      for (int i = 0; i < columnCount; ++i) {
+        this.columns.add(this.input.readUTF());
+        this.longColumns[i] = this.input.readByte() == LONG_TYPE;
+      }
+    }
+
+    @Override
+    public List<String> getColumns() {
+      return this.columns;
+    }
+
+    @Nullable
+    @Override
+    public Object[] read() throws IOException {
+      int length = this.input.readInt();
+      if (length == END_OF_RECORDS) {
+        return null;
+      }
+
+      Object[] values = new Object[this.longColumns.length];
+      for (int i = 0; i < values.length; ++i) {
+        if (this.input.readBoolean()) {
+          if (this.longColumns[i]) {
+            values[i] = this.input.readLong();
+          } else {
+            byte[] bytes = new byte[this.input.readInt()];
+            this.input.readFully(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+          }
+        }
+      }
+
+      return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.input.close();
+    }
+  }
+
+  private static class CsvRecordWriter implements RecordWriter {
+
+    private final Writer output;
+
+    CsvRecordWriter(OutputStream outputStream, FieldType[] fieldTypes) throws IOException {
+      this.output = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 65536);
+
+      Object[] columns = new Object[fieldTypes.length];
+      for (int i = 0; i < fieldTypes.length; ++i) {
+        columns[i] = fieldTypes[i].getColumnName();
+      }
+
+      this.write(columns);
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+      for (int i = 0; i < values.length; ++i) {
+        if (i != 0) {
+          this.output.write(',');
+        }
+
+        Object value = values[i];
+        if (value instanceof String) {
+          this.writeString((String) value);
+        } else if (value != null) {
+          this.output.write(value.toString());
+        }
+      }
+
+      this.output.write("\r\n");
+    }
+
+    private void writeString(String value) throws IOException {
+      // Empty strings are quoted to tell them apart from nulls.
+      boolean quote = value.isEmpty();
+      for (int i = 0; i < value.length() && !quote; ++i) {
+        char character = value.charAt(i);
+        quote = character == ',' || character == '"' || character == '\r' || character == '\n';
+      }
+
+      if (quote) {
+        this.output.write('"');
+        this.output.write(value.replace("\"", "\"\""));
+        this.output.write('"');
+      } else {
+        this.output.write(value);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.output.close();
+    }
+  }
+
+  private static class CsvRecordReader implements RecordReader {
+
+    private final BufferedReader input;
+    private final List<String> columns;
+    private final StringBuilder value = new StringBuilder();
+
+    CsvRecordReader(InputStream inputStream) throws IOException {
+      this.input = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 65536);
+      Object[] header = this.read();
+      if (header == null) {
+        throw new EOFException("The CSV file is empty");
+      }
+
+      this.columns = new ArrayList<>(header.length);
+      for (Object column : header) {
+        this.columns.add((String) column);
+      }
+    }
+
+    @Override
+    public List<String> getColumns() {
+      return this.columns;
+    }
+
+    @Nullable
+    @Override
+    public Object[] read() throws IOException {
+      int character = this.input.read();
+      if (character == -1) {
+        return null;
+      }
+
+      List<Object> values = new ArrayList<>(this.columns == null ? 16 : this.columns.size());
+      while (true) {
+        this.value.setLength(0);
+        boolean quoted = character == '"';
+        if (quoted) {
+          while (true) {
+            character = this.input.read();
+            if (character == -1) {
+              throw new EOFException("Unterminated quoted value");
+            } else if (character == '"') {
+              character = this.input.read();
+              if (character != '"') {
+                break;
+              }
+            }
+
+            this.value.append((char) character);
+          }
+        } else {
+          while (character != ',' && character != '\r' && character != '\n' && character != -1) {
+            this.value.append((char) character);
+            character = this.input.read();
+          }
+        }
+
+        values.add(quoted || this.value.length() != 0 ? this.value.toString() : null);
+
+        if (character == ',') {
+          character = this.input.read();
+        } else {
+          if (character == '\r') {
+            this.input.mark(1);
+            if (this.input.read() != '\n') {
+              this.input.reset();
+            }
+          }
+
+          return values.toArray();
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.input.close();
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.jdbc.TypeValMapper;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.elytrium.limboauth.LimboAuth;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Inserts players with JDBC batches, committing them in chunks.
+ * If a batch fails (e.g. some of the players are already registered), the uncommitted players are inserted one by one,
+ * and the players that can't be inserted are skipped.
+ * The players that can't be converted to the column values (e.g. with a malformed UUID for the binary schema) are skipped when added.
+ * With the SQLite single writer, the players are written on commit, by the writer thread, so the batches don't wait for the other writes.
+ */
+public class PlayerBatchWriter implements AutoCloseable {
+
+  private final ConnectionSource connectionSource;
+  private final DatabaseConnection databaseConnection;
+  private final Connection connection;
+  private final boolean autoCommit;
+  private final PreparedStatement statement;
+  private final FieldType[] fieldTypes;
+  private final int[] sqlTypes;
+  private final int batchSize;
+  private final List<Object[]> uncommitted = new ArrayList<>();
+  @Nullable
+  private final SingleWriter singleWriter;
+
+  private int batched;
+  private boolean batchFailed;
+  private long written;
+  private long skipped;
+
+  public PlayerBatchWriter(Dao<RegisteredPlayer, String> playerDao, int batchSize) throws SQLException {
+    this(playerDao, batchSize, null);
+  }
+
+  /**
+   * The single writer is null if the writes shouldn't be queued.
+   */
+  public PlayerBatchWriter(Dao<RegisteredPlayer, String> playerDao, int batchSize, @Nullable SingleWriter singleWriter) throws SQLException {
+    final String tableName = playerDao.getTableInfo().getTableName();
+    this.connectionSource = playerDao.getConnectionSource();
+    this.fieldTypes = Arrays.stream(playerDao.getTableInfo().getFieldTypes())
+        .filter(fieldType -> !fieldType.isGeneratedId())
+        .toArray(FieldType[]::new);
+    this.sqlTypes = new int[this.fieldTypes.length];
+    for (int i = 0; i < this.fieldTypes.length; ++i) {
+      this.sqlTypes[i] = TypeValMapper.getTypeValForSqlType(this.fieldTypes[i].getSqlType());
+    }
+
+    this.batchSize = batchSize;
+    this.singleWriter = singleWriter;
+
+    StringBuilder sql = new StringBuilder("INSERT INTO ");
+    this.connectionSource.getDatabaseType().appendEscapedEntityName(sql, tableName);
+    sql.append(" (");
+    for (int i = 0; i < this.fieldTypes.length; ++i) {
+      if (i != 0) {
+        sql.append(", ");
+      }
+
+      this.connectionSource.getDatabaseType().appendEscapedEntityName(sql, this.fieldTypes[i].getColumnName());
+    }
+    sql.append(") VALUES (").append("?, ".repeat(this.fieldTypes.length - 1)).append("?)");
+
+    this.databaseConnection = this.connectionSource.getReadWriteConnection(tableName);
+    try {
+      this.connection = this.databaseConnection.getUnderlyingConnection();
+      this.autoCommit = this.connection.getAutoCommit();
+      this.connection.setAutoCommit(false);
+      this.statement = this.connection.prepareStatement(sql.toString());
+    } catch (SQLException e) {
+      this.connectionSource.releaseConnection(this.databaseConnection);
+      throw e;
+    }
+  }
+
+  public void add(RegisteredPlayer player) throws SQLException {
+    Object[] values = new Object[this.fieldTypes.length];
+    try {
+      for (int i = 0; i < this.fieldTypes.length; ++i) {
+        values[i] = this.fieldTypes[i].extractJavaFieldToSqlArgValue(player);
+      }
+    } catch (SQLException e) {
+      ++this.skipped;
+      LimboAuth.getLogger().warn("The player {} wasn't inserted: {}", player.getNickname(), e.getMessage());
+      return;
+    }
+
+    this.uncommitted.add(values);
+    if (this.singleWriter == null) {
+      this.addBatch(values);
+    }
+  }
+
+  /**
+   * Commits all the added players.
+   */
+  public void commit() throws SQLException {
+    if (this.singleWriter == null) {
+      this.commitUncommitted();
+    } else {
+      this.singleWriter.executeAlone(() -> {
+        for (Object[] values : this.uncommitted) {
+          this.addBatch(values);
+        }
+
+        this.commitUncommitted();
+        return null;
+      });
+    }
+  }
+
+  private void addBatch(Object[] values) throws SQLException {
+    if (this.batchFailed) {
+      return;
+    }
+
+    this.bind(values);
+    this.statement.addBatch();
+    if (++this.batched == this.batchSize) {
+      this.executeBatch();
+    }
+  }
+
+  private void commitUncommitted() throws SQLException {
+    this.executeBatch();
+    if (this.batchFailed) {
+      this.connection.rollback();
+      this.writeOneByOne();
+      this.batchFailed = false;
+    } else {
+      this.connection.commit();
+      this.written += this.uncommitted.size();
+    }
+
+    this.uncommitted.clear();
+  }
+
+  private void executeBatch() throws SQLException {
+    if (this.batched != 0) {
+      this.batched = 0;
+      try {
+        this.statement.executeBatch();
+      } catch (SQLException e) {
+        this.statement.clearBatch();
+        this.batchFailed = true;
+      }
+    }
+  }
+
+  private void writeOneByOne() throws SQLException {
+    // Some databases (e.g. PostgreSQL) abort the whole transaction after an error, so every player is committed separately.
+    this.connection.setAutoCommit(true);
+    SQLException lastException = null;
+    try {
+      for (Object[] values : this.uncommitted) {
+        try {
+          this.bind(values);
+          this.statement.executeUpdate();
+          ++this.written;
+        } catch (SQLException e) {
+          lastException = e;
+          ++this.skipped;
+        }
+      }
+    } finally {
+      this.connection.setAutoCommit(false);
+    }
+
+    if (lastException != null) {
+      LimboAuth.getLogger().warn("Some players weren't inserted, the last error: {}", lastException.getMessage());
+    }
+  }
+
+  private void bind(Object[] values) throws SQLException {
+    for (int i = 0; i < values.length; ++i) {
+      if (values[i] == null) {
+        this.statement.setNull(i + 1, this.sqlTypes[i]);
+      } else {
+        this.statement.setObject(i + 1, values[i], this.sqlTypes[i]);
+      }
+    }
+  }
+
+  public long getWritten() {
+    return this.written;
+  }
+
+  public long getSkipped() {
+    return this.skipped;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try {
+      this.statement.close();
+      this.connection.setAutoCommit(this.autoCommit);
+    } finally {
+      this.connectionSource.releaseConnection(this.databaseConnection);
+    }
+  }
+}
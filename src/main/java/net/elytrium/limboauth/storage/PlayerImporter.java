@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.Dao;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import net.elytrium.limboauth.Settings;
+import net.elytrium.limboauth.dependencies.DatabaseLibrary;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Streams players from the database of another auth plugin into the LimboAuth database.
+ */
+public class PlayerImporter {
+
+  private final Dao<RegisteredPlayer, String> playerDao;
+  @Nullable
+  private final SingleWriter singleWriter;
+  private final Path dataDirectory;
+  private final ImportSource source;
+  private final ProgressListener listener;
+
+  /**
+   * The single writer is null if the writes shouldn't be queued.
+   */
+  public PlayerImporter(Dao<RegisteredPlayer, String> playerDao, @Nullable SingleWriter singleWriter, Path dataDirectory, ImportSource source,
+      ProgressListener listener) {
+    this.playerDao = playerDao;
+    this.singleWriter = singleWriter;
+    this.dataDirectory = dataDirectory;
+    this.source = source;
+    this.listener = listener;
+  }
+
+  /**
+   * Imports the players, skipping the first {@code offset} rows of the source query.
+   * Rows are counted as processed only after they are committed, so the processed count can be used as the offset to resume the import.
+   */
+  public void importPlayers(long offset) throws ReflectiveOperationException, SQLException, IOException {
+    Settings.IMPORT config = Settings.IMP.IMPORT;
+    DatabaseLibrary databaseLibrary = config.STORAGE_TYPE;
+    String query = config.QUERY.isEmpty() ? this.source.getDefaultQuery() : config.QUERY;
+    int transactionSize = Math.max(config.TRANSACTION_SIZE, config.BATCH_SIZE);
+
+    try (Connection connection = config.JDBC_URL.isEmpty()
+        ? databaseLibrary.connect(this.dataDirectory, config.HOSTNAME, config.DATABASE + config.CONNECTION_PARAMETERS, config.USER, config.PASSWORD)
+        : databaseLibrary.connect(this.dataDirectory, config.JDBC_URL, config.USER, config.PASSWORD);
+        PlayerBatchWriter writer = new PlayerBatchWriter(this.playerDao, config.BATCH_SIZE, this.singleWriter)) {
+      // PostgreSQL uses cursors only outside the auto-commit mode.
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+        // MySQL Connector/J streams the rows one by one only with this fetch size, otherwise it loads the whole result set into memory.
+        statement.setFetchSize(databaseLibrary == DatabaseLibrary.MYSQL ? Integer.MIN_VALUE : config.BATCH_SIZE);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          Set<String> columns = getColumns(resultSet.getMetaData());
+          long processed = 0;
+          long invalid = 0;
+          while (resultSet.next()) {
+            if (++processed <= offset) {
+              continue;
+            }
+
+            RegisteredPlayer player = this.readPlayer(resultSet, columns);
+            if (player == null) {
+              ++invalid;
+            } else {
+              writer.add(player);
+            }
+
+            if (processed % transactionSize == 0) {
+              writer.commit();
+              this.listener.onProgress(processed, writer.getWritten(), writer.getSkipped() + invalid);
+            }
+          }
+
+          writer.commit();
+          this.listener.onFinish(processed, writer.getWritten(), writer.getSkipped() + invalid);
+        }
+      } finally {
+        connection.rollback();
+      }
+    }
+  }
+
+  @Nullable
+  private RegisteredPlayer readPlayer(ResultSet resultSet, Set<String> columns) throws SQLException {
+    String nickname = getString(resultSet, columns, RegisteredPlayer.NICKNAME_FIELD);
+    String lowercaseNickname = getString(resultSet, columns, RegisteredPlayer.LOWERCASE_NICKNAME_FIELD);
+    // AuthMe stores "Player" as the real name if it's unknown.
+    if (nickname == null || (lowercaseNickname != null && !nickname.toLowerCase(Locale.ROOT).equals(lowercaseNickname))) {
+      nickname = lowercaseNickname;
+    }
+
+    if (nickname == null || nickname.isEmpty()) {
+      return null;
+    }
+
+    String premiumUuid = formatUuid(getString(resultSet, columns, RegisteredPlayer.PREMIUM_UUID_FIELD));
+    String hash = getString(resultSet, columns, RegisteredPlayer.HASH_FIELD);
+    if (hash == null || hash.isEmpty()) {
+      // Premium players don't have passwords.
+      if (premiumUuid.isEmpty()) {
+        return null;
+      }
+
+      hash = "";
+    }
+
+    RegisteredPlayer player = new RegisteredPlayer()
+        .setNickname(nickname)
+        .setHash(this.source.convertHash(hash));
+    try {
+      player.setUuid(formatUuid(getString(resultSet, columns, RegisteredPlayer.UUID_FIELD)));
+      player.setPremiumUuid(premiumUuid);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+
+    String ip = getString(resultSet, columns, RegisteredPlayer.IP_FIELD);
+    String loginIp = getString(resultSet, columns, RegisteredPlayer.LOGIN_IP_FIELD);
+    player.setIP(ip == null ? "" : ip);
+    player.setLoginIp(loginIp == null ? player.getIP() : loginIp);
+
+    String totpToken = getString(resultSet, columns, RegisteredPlayer.TOTP_TOKEN_FIELD);
+    if (totpToken != null) {
+      player.setTotpToken(totpToken);
+    }
+
+    Long regDate = getTime(resultSet, columns, RegisteredPlayer.REG_DATE_FIELD);
+    if (regDate != null) {
+      player.setRegDate(regDate);
+    }
+
+    Long loginDate = getTime(resultSet, columns, RegisteredPlayer.LOGIN_DATE_FIELD);
+    if (loginDate != null) {
+      player.setLoginDate(loginDate);
+    }
+
+    return player;
+  }
+
+  private static Set<String> getColumns(ResultSetMetaData metaData) throws SQLException {
+    Set<String> columns = new HashSet<>();
+    for (int i = 1; i <= metaData.getColumnCount(); ++i) {
+      columns.add(metaData.getColumnLabel(i).toUpperCase(Locale.ROOT));
+    }
+
+    return columns;
+  }
+
+  @Nullable
+  private static String getString(ResultSet resultSet, Set<String> columns, String column) throws SQLException {
+    return columns.contains(column) ? resultSet.getString(column) : null;
+  }
+
+  @Nullable
+  private static Long getTime(ResultSet resultSet, Set<String> columns, String column) throws SQLException {
+    if (!columns.contains(column)) {
+      return null;
+    }
+
+    Object time = resultSet.getObject(column);
+    if (time instanceof Timestamp) {
+      return ((Timestamp) time).getTime();
+    } else if (time instanceof Number) {
+      return ((Number) time).longValue();
+    } else {
+      return null;
+    }
+  }
+
+  private static String formatUuid(@Nullable String uuid) {
+    if (uuid == null) {
+      return "";
+    } else if (uuid.length() == 32) {
+      // Some plugins store UUIDs without dashes.
+      return uuid.substring(0, 8) + "-" + uuid.substring(8, 12) + "-" + uuid.substring(12, 16) + "-" + uuid.substring(16, 20) + "-" + uuid.substring(20);
+    } else {
+      return uuid;
+    }
+  }
+}
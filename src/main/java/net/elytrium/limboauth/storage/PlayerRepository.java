@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.PreparedUpdate;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.UpdateBuilder;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+
+/**
+ * The player lookups and updates of the login path and the commands, prepared once instead of building the SQL on every call.
+ * The values are bound with the {@link SelectArg}s, so the SQL text is the same for all the players, and the driver can cache the statement.
+ */
+public class PlayerRepository {
+
+  private final Dao<RegisteredPlayer, String> playerDao;
+  private final PlayerArchive archive;
+  // The arguments are stored in the prepared statements, so every thread borrows its own set.
+  private final Queue<Statements> statements = new ConcurrentLinkedQueue<>();
+
+  public PlayerRepository(Dao<RegisteredPlayer, String> playerDao) {
+    this(playerDao, null);
+  }
+
+  /**
+   * @param archive the archived players are restored by the nickname lookups, null to not look them up
+   */
+  public PlayerRepository(Dao<RegisteredPlayer, String> playerDao, PlayerArchive archive) {
+    this.playerDao = playerDao;
+    this.archive = archive;
+  }
+
+  public Dao<RegisteredPlayer, String> getDao() {
+    return this.playerDao;
+  }
+
+  public RegisteredPlayer findByNickname(String nickname) throws SQLException {
+    String lowercaseNickname = nickname.toLowerCase(Locale.ROOT);
+    RegisteredPlayer player = this.execute(statements -> {
+      statements.nickname.setValue(lowercaseNickname);
+      return this.playerDao.queryForFirst(statements.findByNickname);
+    });
+
+    return player == null ? this.restore(lowercaseNickname) : player;
+  }
+
+  public RegisteredPlayer findByPremiumUuid(UUID premiumUuid) throws SQLException {
+    return this.execute(statements -> {
+      statements.premiumUuid.setValue(premiumUuid);
+      return this.playerDao.queryForFirst(statements.findByPremiumUuid);
+    });
+  }
+
+  /**
+   * Finds the account with the premium UUID and the account with the nickname with one query.
+   */
+  public List<RegisteredPlayer> findByPremiumUuidOrNickname(UUID premiumUuid, String lowercaseNickname) throws SQLException {
+    List<RegisteredPlayer> players = this.execute(statements -> {
+      statements.premiumUuid.setValue(premiumUuid);
+      statements.nickname.setValue(lowercaseNickname);
+      return this.playerDao.query(statements.findByPremiumUuidOrNickname);
+    });
+
+    if (players.stream().noneMatch(player -> lowercaseNickname.equals(player.getLowercaseNickname()))) {
+      RegisteredPlayer restored = this.restore(lowercaseNickname);
+      if (restored != null) {
+        players.add(restored);
+      }
+    }
+
+    return players;
+  }
+
+  /**
+   * Reads only the password hash, it is empty for the premium accounts.
+   *
+   * @return null if the player isn't registered
+   */
+  public String findHash(String nickname) throws SQLException {
+    String lowercaseNickname = nickname.toLowerCase(Locale.ROOT);
+    RegisteredPlayer player = this.execute(statements -> {
+      statements.nickname.setValue(lowercaseNickname);
+      return this.playerDao.queryForFirst(statements.findHash);
+    });
+
+    if (player == null) {
+      player = this.restore(lowercaseNickname);
+    }
+
+    return player == null ? null : player.getHash();
+  }
+
+  public boolean isPremiumUuid(UUID premiumUuid) throws SQLException {
+    return this.execute(statements -> {
+      statements.premiumUuid.setValue(premiumUuid);
+      return this.playerDao.countOf(statements.countPremiumByUuid) != 0;
+    });
+  }
+
+  public int updateLoginData(String nickname, String loginIp, long loginDate) throws SQLException {
+    return this.execute(statements -> {
+      statements.nickname.setValue(nickname.toLowerCase(Locale.ROOT));
+      statements.loginIp.setValue(loginIp);
+      statements.loginDate.setValue(loginDate);
+      return this.playerDao.update(statements.updateLoginData);
+    });
+  }
+
+  /**
+   * Saves the UUID, if the account doesn't have it yet.
+   */
+  public int setUuidIfEmpty(String nickname, UUID uuid) throws SQLException {
+    return this.execute(statements -> {
+      statements.nickname.setValue(nickname.toLowerCase(Locale.ROOT));
+      statements.uuid.setValue(uuid);
+      return this.playerDao.update(statements.setUuidIfEmpty);
+    });
+  }
+
+  /**
+   * Removes the password of the account with the exact nickname, the row isn't touched if the password is already removed.
+   */
+  public int removeHashByExactNickname(String nickname) throws SQLException {
+    return this.execute(statements -> {
+      statements.exactNickname.setValue(nickname);
+      return this.playerDao.update(statements.removeHashByExactNickname);
+    });
+  }
+
+  public int updateHashByExactNickname(String nickname, String hash) throws SQLException {
+    return this.execute(statements -> {
+      statements.exactNickname.setValue(nickname);
+      statements.hash.setValue(hash);
+      return this.playerDao.update(statements.updateHashByExactNickname);
+    });
+  }
+
+  public int updateHash(String nickname, String hash) throws SQLException {
+    return this.execute(statements -> {
+      statements.nickname.setValue(nickname.toLowerCase(Locale.ROOT));
+      statements.hash.setValue(hash);
+      return this.playerDao.update(statements.updateHash);
+    });
+  }
+
+  public int updateTotpTokenByExactNickname(String nickname, String totpToken) throws SQLException {
+    return this.execute(statements -> {
+      statements.exactNickname.setValue(nickname);
+      statements.totpToken.setValue(totpToken);
+      return this.playerDao.update(statements.updateTotpTokenByExactNickname);
+    });
+  }
+
+  private RegisteredPlayer restore(String lowercaseNickname) throws SQLException {
+    return this.archive == null ? null : this.archive.restore(lowercaseNickname);
+  }
+
+  private <T> T execute(StatementsCall<T> call) throws SQLException {
+    Statements statements = this.statements.poll();
+    if (statements == null) {
+      statements = new Statements(this.playerDao);
+    }
+
+    try {
+      return call.call(statements);
+    } finally {
+      this.statements.offer(statements);
+    }
+  }
+
+  private interface StatementsCall<T> {
+
+    T call(Statements statements) throws SQLException;
+  }
+
+  private static class Statements {
+
+    private final SelectArg nickname = new SelectArg();
+    private final SelectArg exactNickname = new SelectArg();
+    private final SelectArg premiumUuid = new SelectArg();
+    private final SelectArg uuid = new SelectArg();
+    private final SelectArg hash = new SelectArg();
+    private final SelectArg loginIp = new SelectArg();
+    private final SelectArg loginDate = new SelectArg();
+    private final SelectArg totpToken = new SelectArg();
+
+    private final PreparedQuery<RegisteredPlayer> findByNickname;
+    private final PreparedQuery<RegisteredPlayer> findByPremiumUuid;
+    private final PreparedQuery<RegisteredPlayer> findByPremiumUuidOrNickname;
+    private final PreparedQuery<RegisteredPlayer> findHash;
+    private final PreparedQuery<RegisteredPlayer> countPremiumByUuid;
+    private final PreparedUpdate<RegisteredPlayer> updateLoginData;
+    private final PreparedUpdate<RegisteredPlayer> setUuidIfEmpty;
+    private final PreparedUpdate<RegisteredPlayer> removeHashByExactNickname;
+    private final PreparedUpdate<RegisteredPlayer> updateHashByExactNickname;
+    private final PreparedUpdate<RegisteredPlayer> updateHash;
+    private final PreparedUpdate<RegisteredPlayer> updateTotpTokenByExactNickname;
+
+    Statements(Dao<RegisteredPlayer, String> playerDao) throws SQLException {
+      QueryBuilder<RegisteredPlayer, String> queryBuilder = playerDao.queryBuilder();
+      queryBuilder.where().eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, this.nickname);
+      this.findByNickname = queryBuilder.prepare();
+
+      queryBuilder = playerDao.queryBuilder();
+      queryBuilder.where().eq(RegisteredPlayer.PREMIUM_UUID_FIELD, this.premiumUuid);
+      this.findByPremiumUuid = queryBuilder.prepare();
+
+      queryBuilder = playerDao.queryBuilder();
+      queryBuilder.where()
+          .eq(RegisteredPlayer.PREMIUM_UUID_FIELD, this.premiumUuid)
+          .or()
+          .eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, this.nickname);
+      this.findByPremiumUuidOrNickname = queryBuilder.prepare();
+
+      queryBuilder = playerDao.queryBuilder();
+      queryBuilder.selectColumns(RegisteredPlayer.HASH_FIELD);
+      queryBuilder.where().eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, this.nickname);
+      this.findHash = queryBuilder.prepare();
+
+      queryBuilder = playerDao.queryBuilder();
+      queryBuilder.setCountOf(true);
+      queryBuilder.where()
+          .eq(RegisteredPlayer.PREMIUM_UUID_FIELD, this.premiumUuid)
+          .and()
+          .eq(RegisteredPlayer.HASH_FIELD, "");
+      this.countPremiumByUuid = queryBuilder.prepare();
+
+      UpdateBuilder<RegisteredPlayer, String> updateBuilder = playerDao.updateBuilder();
+      updateBuilder.where().eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, this.nickname);
+      updateBuilder.updateColumnValue(RegisteredPlayer.LOGIN_IP_FIELD, this.loginIp);
+      updateBuilder.updateColumnValue(RegisteredPlayer.LOGIN_DATE_FIELD, this.loginDate);
+      this.updateLoginData = updateBuilder.prepare();
+
+      updateBuilder = playerDao.updateBuilder();
+      updateBuilder.where()
+          .eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, this.nickname)
+          .and()
+          .eq(RegisteredPlayer.UUID_FIELD, "");
+      updateBuilder.updateColumnValue(RegisteredPlayer.UUID_FIELD, this.uuid);
+      this.setUuidIfEmpty = updateBuilder.prepare();
+
+      updateBuilder = playerDao.updateBuilder();
+      updateBuilder.where()
+          .eq(RegisteredPlayer.NICKNAME_FIELD, this.exactNickname)
+          .and()
+          .ne(RegisteredPlayer.HASH_FIELD, "");
+      updateBuilder.updateColumnValue(RegisteredPlayer.HASH_FIELD, "");
+      this.removeHashByExactNickname = updateBuilder.prepare();
+
+      updateBuilder = playerDao.updateBuilder();
+      updateBuilder.where().eq(RegisteredPlayer.NICKNAME_FIELD, this.exactNickname);
+      updateBuilder.updateColumnValue(RegisteredPlayer.HASH_FIELD, this.hash);
+      this.updateHashByExactNickname = updateBuilder.prepare();
+
+      updateBuilder = playerDao.updateBuilder();
+      updateBuilder.where().eq(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, this.nickname);
+      updateBuilder.updateColumnValue(RegisteredPlayer.HASH_FIELD, this.hash);
+      this.updateHash = updateBuilder.prepare();
+
+      updateBuilder = playerDao.updateBuilder();
+      updateBuilder.where().eq(RegisteredPlayer.NICKNAME_FIELD, this.exactNickname);
+      updateBuilder.updateColumnValue(RegisteredPlayer.TOTP_TOKEN_FIELD, this.totpToken);
+      this.updateTotpTokenByExactNickname = updateBuilder.prepare();
+    }
+  }
+}
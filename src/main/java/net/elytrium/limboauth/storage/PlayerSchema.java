@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.DatabaseFieldConfig;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.DatabaseTableConfig;
+import com.j256.ormlite.table.TableUtils;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import net.elytrium.limboauth.LimboAuth;
+import net.elytrium.limboauth.dependencies.DatabaseLibrary;
+import net.elytrium.limboauth.model.BinaryIpPersister;
+import net.elytrium.limboauth.model.BinaryUuidPersister;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+
+/**
+ * The AUTH table schemas: the text one, and the binary one with the UUIDs and the IP addresses stored as bytes.
+ * The UUID fields are UUIDs and the IP fields are strings in both of them, the persisters convert them to the columns.
+ */
+public final class PlayerSchema {
+
+  private static final String CONVERSION_TABLE_SUFFIX = "_CONVERSION";
+  private static final String OLD_TABLE_SUFFIX = "_OLD";
+  private static final String ARCHIVE_TABLE_SUFFIX = "_ARCHIVE";
+  private static final int BATCH_SIZE = 1000;
+  private static final long LOG_INTERVAL_MILLIS = 10000;
+
+  private PlayerSchema() {
+
+  }
+
+  public static DatabaseTableConfig<RegisteredPlayer> createTableConfig(DatabaseLibrary databaseLibrary, DatabaseType databaseType, boolean binary)
+      throws SQLException {
+    return createTableConfig(databaseLibrary, databaseType, binary, DatabaseTableConfig.extractTableName(databaseType, RegisteredPlayer.class));
+  }
+
+  private static DatabaseTableConfig<RegisteredPlayer> createTableConfig(DatabaseLibrary databaseLibrary, DatabaseType databaseType, boolean binary,
+      String tableName) throws SQLException {
+    List<DatabaseFieldConfig> fieldConfigs = new ArrayList<>();
+    for (Field field : RegisteredPlayer.class.getDeclaredFields()) {
+      DatabaseFieldConfig fieldConfig = DatabaseFieldConfig.fromField(databaseType, tableName, field);
+      if (fieldConfig != null) {
+        fieldConfigs.add(fieldConfig);
+      }
+    }
+
+    if (binary) {
+      String columnDefinition;
+      switch (databaseLibrary) {
+        case SQLITE: {
+          columnDefinition = "BLOB";
+          break;
+        }
+        case POSTGRESQL: {
+          columnDefinition = "BYTEA";
+          break;
+        }
+        default: {
+          // The empty UUIDs and IPs are stored as empty arrays, BINARY(16) would pad them with zeros.
+          columnDefinition = "VARBINARY(16)";
+          break;
+        }
+      }
+
+      for (DatabaseFieldConfig fieldConfig : fieldConfigs) {
+        switch (fieldConfig.getColumnName()) {
+          case RegisteredPlayer.UUID_FIELD:
+          case RegisteredPlayer.PREMIUM_UUID_FIELD: {
+            fieldConfig.setDataPersister(BinaryUuidPersister.getSingleton());
+            fieldConfig.setColumnDefinition(columnDefinition);
+            break;
+          }
+          case RegisteredPlayer.IP_FIELD:
+          case RegisteredPlayer.LOGIN_IP_FIELD: {
+            fieldConfig.setDataPersister(BinaryIpPersister.getSingleton());
+            fieldConfig.setColumnDefinition(columnDefinition);
+            break;
+          }
+          default: {
+            break;
+          }
+        }
+      }
+    }
+
+    return new DatabaseTableConfig<>(RegisteredPlayer.class, tableName, fieldConfigs);
+  }
+
+  /**
+   * DaoManager and TableUtils return the DAO cached for the class even for another table config, so the DAOs of the both schemas are created directly.
+   */
+  public static Dao<RegisteredPlayer, String> createDao(ConnectionSource connectionSource, DatabaseTableConfig<RegisteredPlayer> tableConfig)
+      throws SQLException {
+    return new PlayerDao(connectionSource, tableConfig);
+  }
+
+  /**
+   * Creates the DAO of the archive table with its own schema, it isn't converted with the AUTH table.
+   * A new archive table is created with the schema of the AUTH table.
+   *
+   * @return null if the table doesn't exist and shouldn't be created
+   */
+  public static Dao<RegisteredPlayer, String> createArchiveDao(ConnectionSource connectionSource, DatabaseLibrary databaseLibrary, boolean create)
+      throws SQLException {
+    DatabaseType databaseType = connectionSource.getDatabaseType();
+    String tableName = DatabaseTableConfig.extractTableName(databaseType, RegisteredPlayer.class);
+    String archiveTableName = tableName + ARCHIVE_TABLE_SUFFIX;
+    Dao<RegisteredPlayer, String> archiveDao = createDao(connectionSource, createTableConfig(databaseLibrary, databaseType, false, archiveTableName));
+    if (archiveDao.isTableExists()) {
+      if (isBinary(connectionSource, archiveTableName)) {
+        archiveDao = createDao(connectionSource, createTableConfig(databaseLibrary, databaseType, true, archiveTableName));
+      }
+
+      return archiveDao;
+    } else if (!create) {
+      return null;
+    }
+
+    archiveDao = createDao(connectionSource, createTableConfig(databaseLibrary, databaseType, isBinary(connectionSource, tableName), archiveTableName));
+    TableUtils.createTable(archiveDao);
+    return archiveDao;
+  }
+
+  /**
+   * Reads the type of the UUID column of the existing table.
+   */
+  public static boolean isBinary(ConnectionSource connectionSource, String tableName) throws SQLException {
+    DatabaseConnection databaseConnection = connectionSource.getReadOnlyConnection(tableName);
+    try {
+      Connection connection = databaseConnection.getUnderlyingConnection();
+      try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), connection.getSchema(), tableName, null)) {
+        while (columns.next()) {
+          if (RegisteredPlayer.UUID_FIELD.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+            String typeName = columns.getString("TYPE_NAME").toUpperCase(Locale.ROOT);
+            return typeName.contains("BINARY") || typeName.contains("BLOB") || typeName.contains("BYTEA");
+          }
+        }
+      }
+    } finally {
+      connectionSource.releaseConnection(databaseConnection);
+    }
+
+    throw new SQLException("The " + RegisteredPlayer.UUID_FIELD + " column of " + tableName + " is not found");
+  }
+
+  /**
+   * Copies the players to a table with the target schema in batched transactions, and replaces the table with it.
+   * The rows are copied in the primary key order, so the interrupted conversion continues from the last committed batch.
+   * Runs before the SQLite single writer of the connection is created, so the batches don't compete with it for the database lock.
+   *
+   * @return false if some players couldn't be read or converted, the table is left unchanged then
+   */
+  public static boolean convert(Dao<RegisteredPlayer, String> sourceDao, DatabaseLibrary databaseLibrary, boolean binary) throws SQLException {
+    ConnectionSource connectionSource = sourceDao.getConnectionSource();
+    DatabaseType databaseType = connectionSource.getDatabaseType();
+    String tableName = sourceDao.getTableInfo().getTableName();
+    String conversionTableName = tableName + CONVERSION_TABLE_SUFFIX;
+
+    DatabaseTableConfig<RegisteredPlayer> conversionTableConfig = createTableConfig(databaseLibrary, databaseType, binary, conversionTableName);
+    Dao<RegisteredPlayer, String> conversionDao = createDao(connectionSource, conversionTableConfig);
+    if (!conversionDao.isTableExists()) {
+      TableUtils.createTable(conversionDao);
+    }
+
+    long total = sourceDao.countOf();
+    long copied = conversionDao.countOf();
+    LimboAuth.getLogger().info("Converting {} players to the {} schema, {} are already converted.", total, binary ? "binary" : "text", copied);
+
+    String lastNickname = copied == 0 ? null : getLastNickname(conversionDao);
+    long lastLog = System.currentTimeMillis();
+    try (PlayerBatchWriter writer = new PlayerBatchWriter(conversionDao, BATCH_SIZE)) {
+      while (true) {
+        QueryBuilder<RegisteredPlayer, String> queryBuilder = sourceDao.queryBuilder()
+            .orderBy(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, true)
+            .limit((long) BATCH_SIZE);
+        if (lastNickname != null) {
+          queryBuilder.where().gt(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, lastNickname);
+        }
+
+        List<RegisteredPlayer> players;
+        try {
+          players = sourceDao.query(queryBuilder.prepare());
+        } catch (SQLException e) {
+          // E.g. an invalid UUID, it isn't copied as the empty one.
+          LimboAuth.getLogger().error("Couldn't read the players to convert, the {} table is left unchanged.", tableName, e);
+          return false;
+        }
+        if (players.isEmpty()) {
+          break;
+        }
+
+        for (RegisteredPlayer player : players) {
+          writer.add(player);
+        }
+
+        writer.commit();
+        lastNickname = players.get(players.size() - 1).getLowercaseNickname();
+        copied += players.size();
+        if (System.currentTimeMillis() - lastLog >= LOG_INTERVAL_MILLIS) {
+          lastLog = System.currentTimeMillis();
+          LimboAuth.getLogger().info("Converted {}/{} players.", copied, total);
+        }
+      }
+
+      if (writer.getSkipped() != 0) {
+        LimboAuth.getLogger().error("{} players weren't converted, the {} table is left unchanged.", writer.getSkipped(), tableName);
+        return false;
+      }
+    }
+
+    long converted = conversionDao.countOf();
+    long sourceCount = sourceDao.countOf();
+    if (converted != sourceCount) {
+      LimboAuth.getLogger().error("The conversion copied {} players of {}, the {} table is left unchanged.", converted, sourceCount, tableName);
+      return false;
+    }
+
+    String escapedTableName = escape(databaseType, tableName);
+    String escapedConversionTableName = escape(databaseType, conversionTableName);
+    if (databaseLibrary == DatabaseLibrary.MYSQL || databaseLibrary == DatabaseLibrary.MARIADB) {
+      // MySQL commits every DDL statement, but renames the tables atomically.
+      String escapedOldTableName = escape(databaseType, tableName + OLD_TABLE_SUFFIX);
+      sourceDao.executeRawNoArgs("RENAME TABLE " + escapedTableName + " TO " + escapedOldTableName
+          + ", " + escapedConversionTableName + " TO " + escapedTableName);
+      sourceDao.executeRawNoArgs("DROP TABLE " + escapedOldTableName);
+    } else {
+      TransactionManager.callInTransaction(connectionSource, () -> {
+        sourceDao.executeRawNoArgs("DROP TABLE " + escapedTableName);
+        sourceDao.executeRawNoArgs("ALTER TABLE " + escapedConversionTableName + " RENAME TO " + escapedTableName);
+        return null;
+      });
+    }
+
+    LimboAuth.getLogger().info("Converted {} players to the {} schema.", converted, binary ? "binary" : "text");
+    return true;
+  }
+
+  private static String getLastNickname(Dao<RegisteredPlayer, String> conversionDao) throws SQLException {
+    RegisteredPlayer player = conversionDao.queryBuilder()
+        .selectColumns(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD)
+        .orderBy(RegisteredPlayer.LOWERCASE_NICKNAME_FIELD, false)
+        .queryForFirst();
+    return player == null ? null : player.getLowercaseNickname();
+  }
+
+  private static String escape(DatabaseType databaseType, String name) {
+    StringBuilder builder = new StringBuilder();
+    databaseType.appendEscapedEntityName(builder, name);
+    return builder.toString();
+  }
+
+  private static class PlayerDao extends BaseDaoImpl<RegisteredPlayer, String> {
+
+    PlayerDao(ConnectionSource connectionSource, DatabaseTableConfig<RegisteredPlayer> tableConfig) throws SQLException {
+      super(connectionSource, tableConfig);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.Dao;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+import net.elytrium.limboauth.model.RegisteredPlayer;
+import net.elytrium.limboauth.model.SQLRuntimeException;
+
+/**
+ * Registered players count, that is updated on register and unregister instead of counting the rows on every read.
+ * The players changed by the import, the restore, or the other proxies are counted on the next {@link #recount()}.
+ */
+public class RegisteredPlayerCount {
+
+  private final Dao<RegisteredPlayer, String> playerDao;
+  private final LongAdder changes = new LongAdder();
+  private volatile long counted = -1;
+  private volatile long countTime;
+
+  public RegisteredPlayerCount(Dao<RegisteredPlayer, String> playerDao) {
+    this.playerDao = playerDao;
+  }
+
+  public void increment() {
+    this.changes.increment();
+  }
+
+  public void decrement() {
+    this.changes.decrement();
+  }
+
+  /**
+   * Counts the rows of the table, should be called asynchronously, as it takes seconds on the big tables.
+   */
+  public void recount() {
+    try {
+      // The players registered while counting may be counted twice until the next recount.
+      this.changes.reset();
+      this.counted = this.playerDao.countOf();
+      this.countTime = System.currentTimeMillis();
+    } catch (SQLException e) {
+      throw new SQLRuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the count, or -1 if the players weren't counted yet.
+   */
+  public long get() {
+    long counted = this.counted;
+    return counted == -1 ? -1 : Math.max(0, counted + this.changes.sum());
+  }
+
+  public long getCountTime() {
+    return this.countTime;
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.storage;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.ConnectionSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the database writes on one thread, and commits the writes, that were queued at the same time, in one transaction.
+ * SQLite allows only one writer, so otherwise the concurrent writes wait for the file lock, and every single-row write syncs the file.
+ * The callers still wait for their writes, so they get the same results and exceptions as without the queue.
+ */
+public class SingleWriter {
+
+  private static final Set<String> WRITE_METHODS = Set.of(
+      "create", "createIfNotExists", "createOrUpdate", "update", "updateId", "updateRaw", "delete", "deleteById", "deleteIds",
+      "executeRaw", "executeRawNoArgs"
+  );
+
+  private final ConnectionSource connectionSource;
+  private final int maxBatchSize;
+  private final BlockingQueue<Write<?>> queue = new LinkedBlockingQueue<>();
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  public SingleWriter(ConnectionSource connectionSource, int maxBatchSize) {
+    this.connectionSource = connectionSource;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.thread = new Thread(this::run, "LimboAuth Database Writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Wraps the DAO, so its write methods are run by this writer, the other methods are called directly.
+   */
+  @SuppressWarnings("unchecked")
+  public <T, K> Dao<T, K> wrap(Dao<T, K> dao) {
+    InvocationHandler handler = (proxy, method, args) -> {
+      if (method.getDeclaringClass() != Object.class && WRITE_METHODS.contains(method.getName())) {
+        return this.execute(() -> invoke(dao, method, args));
+      }
+
+      return invoke(dao, method, args);
+    };
+
+    return (Dao<T, K>) Proxy.newProxyInstance(Dao.class.getClassLoader(), new Class<?>[] {Dao.class}, handler);
+  }
+
+  public <T> T execute(Callable<T> write) throws SQLException {
+    return this.enqueue(write, false);
+  }
+
+  /**
+   * Runs the write on the writer thread outside of the batched transactions, the other writes wait until it is finished.
+   * Used by the writes that manage their own connection and transaction, e.g. the JDBC batches of the import.
+   */
+  public <T> T executeAlone(Callable<T> write) throws SQLException {
+    return this.enqueue(write, true);
+  }
+
+  private <T> T enqueue(Callable<T> write, boolean alone) throws SQLException {
+    // The writes from the writer thread itself, and the writes after the shutdown are run directly.
+    if (!this.running || Thread.currentThread() == this.thread) {
+      return call(write);
+    }
+
+    Write<T> queuedWrite = new Write<>(write, alone);
+    this.queue.add(queuedWrite);
+    // The writer could stop before the write was queued.
+    if (!this.running && this.queue.remove(queuedWrite)) {
+      return call(write);
+    }
+
+    try {
+      return queuedWrite.result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for the database write", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new SQLException(cause);
+    }
+  }
+
+  /**
+   * Stops the thread after the queued writes are committed.
+   */
+  public void shutdown() {
+    this.running = false;
+    try {
+      this.thread.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public int getQueued() {
+    return this.queue.size();
+  }
+
+  private void run() {
+    List<Write<?>> batch = new ArrayList<>();
+    while (this.running || !this.queue.isEmpty()) {
+      try {
+        Write<?> first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+
+        if (first.alone) {
+          try {
+            first.call();
+            first.complete();
+          } catch (Throwable t) {
+            first.fail(t);
+          }
+
+          continue;
+        }
+
+        batch.add(first);
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      // Only this thread takes the writes, so the peeked write is the polled one.
+      Write<?> next;
+      while (batch.size() < this.maxBatchSize && (next = this.queue.peek()) != null && !next.alone) {
+        batch.add(this.queue.poll());
+      }
+
+      try {
+        TransactionManager.callInTransaction(this.connectionSource, () -> {
+          for (Write<?> write : batch) {
+            write.call();
+          }
+
+          return null;
+        });
+
+        batch.forEach(Write::complete);
+      } catch (Throwable t) {
+        if (batch.size() == 1) {
+          batch.get(0).fail(t);
+        } else {
+          // The transaction was rolled back, so the writes are run again in their own transactions, to fail only the broken one.
+          for (Write<?> write : batch) {
+            try {
+              TransactionManager.callInTransaction(this.connectionSource, () -> {
+                write.call();
+                return null;
+              });
+
+              write.complete();
+            } catch (Throwable writeThrowable) {
+              write.fail(writeThrowable);
+            }
+          }
+        }
+      }
+
+      batch.clear();
+    }
+
+    // Left by the interruption, the callers shouldn't wait for them forever.
+    Write<?> write;
+    while ((write = this.queue.poll()) != null) {
+      write.fail(new SQLException("The database writer was stopped"));
+    }
+  }
+
+  private static <T> T call(Callable<T> write) throws SQLException {
+    try {
+      return write.call();
+    } catch (SQLException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new SQLException(e);
+    }
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Exception {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+
+      throw (Error) cause;
+    }
+  }
+
+  private static class Write<T> {
+
+    private final Callable<T> write;
+    private final boolean alone;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private T value;
+
+    Write(Callable<T> write, boolean alone) {
+      this.write = write;
+      this.alone = alone;
+    }
+
+    void call() throws Exception {
+      this.value = this.write.call();
+    }
+
+    void complete() {
+      this.result.complete(this.value);
+    }
+
+    void fail(Throwable throwable) {
+      this.result.completeExceptionally(throwable);
+    }
+  }
+}
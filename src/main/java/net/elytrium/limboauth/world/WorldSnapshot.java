@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2021 - 2023 Elytrium
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.elytrium.limboauth.world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import net.elytrium.limboapi.api.LimboFactory;
+import net.elytrium.limboapi.api.chunk.VirtualBlock;
+import net.elytrium.limboapi.api.chunk.VirtualWorld;
+
+/**
+ * The blocks and the light, that a world file has set in the auth world, stored in a binary file next to the world file.
+ * Applying the snapshot skips parsing the world file, if neither the file, nor the settings it was loaded with, were changed.
+ */
+public final class WorldSnapshot {
+
+  private static final int MAGIC = 0x4C415753;
+  private static final int FORMAT_VERSION = 1;
+  private static final int KEY_LENGTH = 32;
+  private static final int HEADER_LENGTH = Integer.BYTES * 2 + KEY_LENGTH + Long.BYTES;
+
+  private static final byte SET_BLOCK = 1;
+  private static final byte REMOVE_BLOCK = 2;
+  private static final byte FILL_BLOCK_LIGHT = 3;
+  private static final byte FILL_SKY_LIGHT = 4;
+
+  // The world files read only these methods, the other ones may return the mutable chunks, so their changes can't be recorded.
+  private static final Set<String> READ_METHODS = Set.of(
+      "getBlock", "getBiome", "getBlockLight", "getDimension", "getSpawnX", "getSpawnY", "getSpawnZ", "getYaw", "getPitch"
+  );
+
+  private WorldSnapshot() {
+
+  }
+
+  /**
+   * Hashes the world file content together with the settings, that change the loaded world.
+   */
+  public static byte[] createKey(Path worldFile, String... settings) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream inputStream = Files.newInputStream(worldFile)) {
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+
+    for (String setting : settings) {
+      byte[] bytes = setting.getBytes(StandardCharsets.UTF_8);
+      digest.update(new byte[] {(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8), (byte) bytes.length});
+      digest.update(bytes);
+    }
+
+    return digest.digest();
+  }
+
+  /**
+   * Applies the snapshot to the world.
+   *
+   * @return false if there is no snapshot, or it was made with the other key, the world is not changed in this case.
+   */
+  public static boolean load(Path snapshotFile, byte[] key, LimboFactory factory, VirtualWorld world) throws IOException {
+    if (!Files.isRegularFile(snapshotFile)) {
+      return false;
+    }
+
+    try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        return false;
+      }
+
+      byte[] storedKey = new byte[KEY_LENGTH];
+      buffer.get(storedKey);
+      if (!MessageDigest.isEqual(storedKey, key) || buffer.getLong() != buffer.remaining()) {
+        return false;
+      }
+
+      Map<Short, VirtualBlock> blocks = new HashMap<>();
+      try {
+        while (buffer.hasRemaining()) {
+          byte operation = buffer.get();
+          switch (operation) {
+            case SET_BLOCK: {
+              int x = buffer.getInt();
+              int y = buffer.getInt();
+              int z = buffer.getInt();
+              world.setBlock(x, y, z, blocks.computeIfAbsent(buffer.getShort(), id -> factory.createSimpleBlock(id, true)));
+              break;
+            }
+            case REMOVE_BLOCK: {
+              world.setBlock(buffer.getInt(), buffer.getInt(), buffer.getInt(), null);
+              break;
+            }
+            case FILL_BLOCK_LIGHT: {
+              world.fillBlockLight(buffer.get());
+              break;
+            }
+            case FILL_SKY_LIGHT: {
+              world.fillSkyLight(buffer.get());
+              break;
+            }
+            default: {
+              throw new IOException("Unknown world snapshot operation " + operation);
+            }
+          }
+        }
+      } catch (BufferUnderflowException e) {
+        throw new IOException("The world snapshot is truncated", e);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Wraps the world to record the changes, that are made while loading the world file.
+   */
+  public static Recorder record(VirtualWorld world) {
+    return new Recorder(world);
+  }
+
+  public static final class Recorder implements InvocationHandler {
+
+    private final VirtualWorld world;
+    private final VirtualWorld proxy;
+    private final ByteArrayOutputStream operations = new ByteArrayOutputStream();
+    private final DataOutputStream output = new DataOutputStream(this.operations);
+    private String unsupportedMethod;
+
+    private Recorder(VirtualWorld world) {
+      this.world = world;
+      this.proxy = (VirtualWorld) Proxy.newProxyInstance(VirtualWorld.class.getClassLoader(), new Class<?>[] {VirtualWorld.class}, this);
+    }
+
+    public VirtualWorld getWorld() {
+      return this.proxy;
+    }
+
+    /**
+     * Returns the name of the first called method, which changes can't be recorded, or null if all the changes were recorded.
+     */
+    public String getUnsupportedMethod() {
+      return this.unsupportedMethod;
+    }
+
+    /**
+     * Writes the recorded changes, the file is replaced atomically, so a reader never sees a partially written snapshot.
+     */
+    public void save(Path snapshotFile, byte[] key) throws IOException {
+      if (this.unsupportedMethod != null) {
+        throw new IllegalStateException("The world changes made with " + this.unsupportedMethod + " weren't recorded");
+      }
+
+      Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+      try (OutputStream outputStream = Files.newOutputStream(temporaryFile);
+          DataOutputStream snapshotOutput = new DataOutputStream(outputStream)) {
+        snapshotOutput.writeInt(MAGIC);
+        snapshotOutput.writeInt(FORMAT_VERSION);
+        snapshotOutput.write(key);
+        snapshotOutput.writeLong(this.operations.size());
+        this.operations.writeTo(snapshotOutput);
+      }
+
+      Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getDeclaringClass() == Object.class) {
+        switch (method.getName()) {
+          case "equals": {
+            return proxy == args[0];
+          }
+          case "hashCode": {
+            return System.identityHashCode(proxy);
+          }
+          default: {
+            return this.world.toString();
+          }
+        }
+      }
+
+      this.recordOperation(method, args);
+
+      try {
+        return method.invoke(this.world, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    private void recordOperation(Method method, Object[] args) throws IOException {
+      String name = method.getName();
+      if (this.unsupportedMethod != null || READ_METHODS.contains(name)) {
+        return;
+      }
+
+      if (name.equals("setBlock") && args.length == 4) {
+        VirtualBlock block = (VirtualBlock) args[3];
+        this.output.writeByte(block == null ? REMOVE_BLOCK : SET_BLOCK);
+        this.output.writeInt((Integer) args[0]);
+        this.output.writeInt((Integer) args[1]);
+        this.output.writeInt((Integer) args[2]);
+        if (block != null) {
+          this.output.writeShort(block.getModernID());
+        }
+      } else if ((name.equals("fillBlockLight") || name.equals("fillSkyLight")) && args.length == 1) {
+        this.output.writeByte(name.equals("fillBlockLight") ? FILL_BLOCK_LIGHT : FILL_SKY_LIGHT);
+        this.output.writeByte((Integer) args[0]);
+      } else {
+        this.unsupportedMethod = name;
+      }
+    }
+  }
+}